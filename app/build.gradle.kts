@@ -25,10 +25,45 @@ dependencies {
   implementation("com.fasterxml.jackson.core:jackson-annotations:2.17.0")
   implementation("com.fasterxml.jackson.core:jackson-core:2.17.0")
   implementation("com.typesafe:config:1.4.3")
+  implementation("com.github.luben:zstd-jni:1.5.6-3")
   testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+  testRuntimeOnly("org.junit.platform:junit-platform-launcher")
   runtimeOnly("org.slf4j:slf4j-simple:2.0.13")
   implementation("com.google.auth:google-auth-library-oauth2-http:1.23.0")
   implementation(project(":collector"))
 }
 
-tasks.test { useJUnitPlatform() }
\ No newline at end of file
+tasks.test {
+  useJUnitPlatform()
+  workingDir = rootProject.rootDir   // test đọc data/collections, data/lexicons như khi chạy app
+  maxHeapSize = "1g"
+}
+
+// Benchmark JMH (app/src/jmh/java), chạy: ./gradlew :app:jmh -Pjmh="JsonlScanBenchmark -prof gc"
+val jmh by sourceSets.creating {
+  compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+  runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
+dependencies {
+  "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+  "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+  group = "verification"
+  description = "Chạy các benchmark JMH trong src/jmh"
+  classpath = jmh.runtimeClasspath
+  mainClass.set("org.openjdk.jmh.Main")
+  workingDir = rootProject.rootDir
+  args((findProperty("jmh") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList<String>())
+}
+
+// Dựng lại snapshot dạng cột thiếu/cũ: data/collections -> data/snapshots (xem ColumnarSnapshot)
+tasks.register<JavaExec>("snapshots") {
+  group = "application"
+  description = "Dựng snapshot dạng cột cho các collection trong data/collections"
+  classpath = sourceSets.main.get().runtimeClasspath
+  mainClass.set("app.model.service.ingest.ColumnarSnapshot")
+  workingDir = rootProject.rootDir
+}
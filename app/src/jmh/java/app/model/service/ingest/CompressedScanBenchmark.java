@@ -0,0 +1,86 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import collector.core.Compression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Đọc lại collection yagi-sept (chép copies lần) qua FileConnector khi collector ghi nó dạng .jsonl,
+ * .jsonl.gz hay .jsonl.zst (Compression.newWriter). Kích thước file in ra lúc setup.
+ *   ./gradlew :app:jmh -Pjmh="CompressedScanBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedScanBenchmark {
+
+    @Param("data/collections/yagi-sept")
+    public String collection;
+
+    @Param({"NONE", "GZIP", "ZSTD"})
+    public String codec;
+
+    @Param("4")
+    public int copies;
+
+    private Path root;
+    private FileConnector connector;
+    private final QuerySpec spec = QuerySpec.ofKeywords(List.of());
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> lines;
+        try (Stream<Path> s = Files.walk(Path.of(collection))) {
+            lines = s.filter(p -> JsonlCodec.of(p) == JsonlCodec.PLAIN).sorted()
+                    .flatMap(p -> {
+                        try { return Files.readAllLines(p, StandardCharsets.UTF_8).stream(); }
+                        catch (IOException e) { throw new UncheckedIOException(e); }
+                    })
+                    .filter(l -> !l.isBlank())
+                    .toList();
+        }
+        if (lines.isEmpty()) throw new IllegalStateException("no .jsonl under " + collection);
+
+        Compression c = Compression.valueOf(codec);
+        root = Files.createTempDirectory("jsonl-codec");
+        Path file = Files.createDirectories(root.resolve("bench")).resolve("raw" + c.suffix());
+        try (BufferedWriter w = Compression.newWriter(file)) {
+            for (int k = 0; k < copies; k++) {
+                for (String l : lines) {
+                    w.write(l);
+                    w.newLine();
+                }
+            }
+        }
+        System.out.println("[bench] " + c + " | rows=" + lines.size() * copies + " | " + Files.size(file) / 1024 + " KB");
+        connector = new FileConnector(root);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole bh) {
+        try (Stream<RawPost> s = connector.fetch(spec)) {
+            s.forEach(bh::consume);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Đọc toàn bộ collection yagi-sept: JsonlScanner (mmap + JsonParser) so với cách cũ
+ * (BufferedReader.lines + ObjectMapper.readTree). Xem cấp phát bằng -prof gc:
+ *   ./gradlew :app:jmh -Pjmh="JsonlScanBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonlScanBenchmark {
+
+    @Param("data/collections/yagi-sept")
+    public String collection;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private List<Path> files;
+
+    @Setup
+    public void setup() throws IOException {
+        try (Stream<Path> s = Files.walk(Path.of(collection))) {
+            files = s.filter(p -> JsonlCodec.of(p) == JsonlCodec.PLAIN).sorted().toList();
+        }
+        if (files.isEmpty()) throw new IllegalStateException("no .jsonl under " + collection);
+    }
+
+    @Benchmark
+    public void mappedScan(Blackhole bh) throws IOException {
+        for (Path f : files) {
+            try (JsonlScanner sc = new JsonlScanner(new JsonlChunks.Chunk(0, f, 0, Files.size(f)))) {
+                while (sc.nextLine()) bh.consume(sc.parseLine());
+            }
+        }
+    }
+
+    @Benchmark
+    public void treeParse(Blackhole bh) throws IOException {
+        for (Path f : files) {
+            try (BufferedReader br = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.isBlank()) bh.consume(parseTree(line));
+                }
+            }
+        }
+    }
+
+    /** FileConnector.parseJsonSafely trước khi có JsonlScanner. */
+    private RawPost parseTree(String line) {
+        try {
+            JsonNode n = mapper.readTree(line);
+            String createdAt = stringOr(nodeGet(n, "ts"), stringOr(nodeGet(n, "createdAt"), null));
+            Map<String, Object> meta = new LinkedHashMap<>();
+            putIfPresent(meta, "type", nodeGet(n, "type"));
+            putIfPresent(meta, "threadId", nodeGet(n, "threadId"));
+            putIfPresent(meta, "replyTo", nodeGet(n, "replyTo"));
+            if (n.has("hashtags") && n.get("hashtags").isArray()) {
+                List<String> tags = new ArrayList<>();
+                for (JsonNode t : n.get("hashtags")) {
+                    if (t != null && !t.isNull()) tags.add(t.asText());
+                }
+                meta.put("hashtags", tags);
+            }
+            return new RawPost(stringOr(nodeGet(n, "id"), "gen"), stringOr(nodeGet(n, "platform"), null),
+                    stringOr(nodeGet(n, "text"), ""), stringOr(nodeGet(n, "lang"), null), createdAt,
+                    stringOr(nodeGet(n, "userLoc"), null), meta);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String nodeGet(JsonNode n, String field) {
+        JsonNode v = n == null ? null : n.get(field);
+        if (v == null || v.isNull()) return null;
+        String s = v.asText();
+        return (s != null && !s.isBlank()) ? s : null;
+    }
+
+    private static void putIfPresent(Map<String, Object> m, String k, String v) {
+        if (v != null && !v.isBlank()) m.put(k, v);
+    }
+
+    private static String stringOr(String v, String def) {
+        return (v == null || v.isBlank()) ? def : v;
+    }
+}
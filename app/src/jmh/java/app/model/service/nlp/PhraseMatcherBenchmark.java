@@ -0,0 +1,140 @@
+package app.model.service.nlp;
+
+import app.util.TextNorm;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Khớp cụm trên textNorm của posts bài đầu collection, với lexicon entries cụm (nửa là bigram/trigram
+ * có thật trong corpus, còn lại ghép ngẫu nhiên từ từ vựng của corpus):
+ *   - taxonomy*: theo ký tự, automaton (PhraseMatcher.scan) so với String.contains từng cụm như trước;
+ *   - sentiment*: theo id token, automaton so với thử mọi cụm ở từng vị trí (matchAt cũ).
+ * Cách cũ tăng tuyến tính theo số cụm, automaton gần như không đổi.
+ *   ./gradlew :app:jmh -Pjmh="PhraseMatcherBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhraseMatcherBenchmark {
+
+    @Param("data/collections/yagi-sept")
+    public String collection;
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    @Param("200")
+    public int posts;
+
+    private List<String> texts;
+    private List<List<String>> tokens;
+    private int[][] ids;
+    private List<String> phrases;
+    private List<List<String>> phraseTokens;
+    private PhraseMatcher chars, words;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> all = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(Path.of(collection))) {
+            for (Path f : s.filter(p -> p.getFileName().toString().endsWith(".jsonl")).sorted().toList()) {
+                for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    JsonNode text = mapper.readTree(line).get("text");
+                    if (text != null && text.isTextual()) all.add(TextNorm.normalize(text.asText()));
+                }
+            }
+        }
+        if (all.isEmpty()) throw new IllegalStateException("no posts under " + collection);
+
+        // cụm có thật trước (bigram/trigram của corpus), phần còn lại ghép ngẫu nhiên
+        Set<String> seen = new LinkedHashSet<>();
+        Set<List<String>> real = new LinkedHashSet<>();
+        for (String t : all) {
+            List<String> toks = Vocabulary.tokenize(t);
+            seen.addAll(toks);
+            for (int n = 2; n <= 3; n++) {
+                for (int i = 0; i + n <= toks.size(); i++) real.add(List.copyOf(toks.subList(i, i + n)));
+            }
+        }
+        Set<List<String>> lexicon = new LinkedHashSet<>();
+        for (List<String> p : real) {
+            if (lexicon.size() >= entries / 2) break;
+            lexicon.add(p);
+        }
+        List<String> vocab = List.copyOf(seen);
+        Random rnd = new Random(7);
+        while (lexicon.size() < entries) {
+            List<String> p = new ArrayList<>();
+            for (int k = 0, n = 2 + rnd.nextInt(3); k < n; k++) p.add(vocab.get(rnd.nextInt(vocab.size())));
+            lexicon.add(List.copyOf(p));
+        }
+
+        phraseTokens = List.copyOf(lexicon);
+        phrases = phraseTokens.stream().map(p -> String.join(" ", p)).toList();
+        Vocabulary v = new Vocabulary();
+        PhraseMatcher.Builder cb = new PhraseMatcher.Builder(), wb = new PhraseMatcher.Builder();
+        for (int p = 0; p < phrases.size(); p++) {
+            cb.add(phrases.get(p));
+            int[] sym = phraseTokens.get(p).stream().mapToInt(v::intern).toArray();
+            wb.add(sym);
+        }
+        chars = cb.build();
+        words = wb.build();
+
+        texts = all.subList(0, Math.min(posts, all.size()));
+        tokens = texts.stream().map(Vocabulary::tokenize).toList();
+        ids = texts.stream().map(t -> {
+            Vocabulary.Tokens enc = v.encode(t);
+            return Arrays.copyOf(enc.ids(), enc.size());
+        }).toArray(int[][]::new);
+    }
+
+    @Benchmark
+    public void taxonomyScan(Blackhole bh) {
+        for (String t : texts) chars.scan(t, (p, end) -> bh.consume(p));
+    }
+
+    @Benchmark
+    public void taxonomyContains(Blackhole bh) {
+        for (String t : texts) {
+            for (int p = 0; p < phrases.size(); p++) if (t.contains(phrases.get(p))) bh.consume(p);
+        }
+    }
+
+    @Benchmark
+    public void sentimentScan(Blackhole bh) {
+        for (int[] t : ids) words.scan(t, 0, t.length, (p, end) -> bh.consume(p));
+    }
+
+    @Benchmark
+    public void sentimentPerPosition(Blackhole bh) {
+        for (List<String> toks : tokens) {
+            for (int i = 0; i < toks.size(); i++) {
+                int best = 0;
+                for (List<String> p : phraseTokens) {
+                    if (p.size() > best && i + p.size() <= toks.size() && toks.subList(i, i + p.size()).equals(p)) best = p.size();
+                }
+                bh.consume(best);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package app.model.service.pipeline;
+
+import app.model.domain.CleanPost;
+import app.model.domain.RawPost;
+import app.model.service.dedup.DedupOptions;
+import app.model.service.dedup.PostDeduplicator;
+import app.model.service.ingest.FileConnector;
+import app.model.service.ingest.IngestOptions;
+import app.model.service.ingest.QuerySpec;
+import app.model.service.nlp.LocalNlpModel;
+import app.model.service.preprocess.DefaultPreprocessService;
+import app.model.service.preprocess.PreprocessService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Độ co giãn của stage NLP trong StagedPipeline theo số luồng (1/2/4/8): toàn bộ bài trong
+ * data/collections (nhân copies lần, id khác nhau), tiền xử lý + chấm sentiment/damage/relief
+ * bằng LocalNlpModel.analyzeAll, sink chỉ tiêu thụ kết quả (không ghi DB). Chỉ có ý nghĩa trên
+ * máy nhiều nhân:
+ *   ./gradlew :app:jmh -Pjmh="NlpScalingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NlpScalingBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param("3")
+    public int copies;
+
+    private List<RawPost> posts;
+    private PreprocessService preprocess;
+    private LocalNlpModel nlp;
+    private PipelineOptions options;
+
+    @Setup
+    public void setup() {
+        FileConnector fc = new FileConnector(Path.of("data", "collections"), IngestOptions.parallel().withTextNorm(true));
+        List<RawPost> base;
+        try (Stream<RawPost> s = fc.fetch(QuerySpec.ofKeywords(List.of()))) {
+            base = s.toList();
+        }
+        posts = new ArrayList<>(base.size() * copies);
+        for (int c = 0; c < copies; c++) {
+            for (RawPost p : base) {
+                posts.add(new RawPost(p.id() + "#" + c, p.platform(), p.text(), p.lang(), p.createdAt(), p.userLoc(), p.meta()));
+            }
+        }
+        preprocess = new DefaultPreprocessService();
+        nlp = new LocalNlpModel();
+        options = PipelineOptions.defaults().withNlpWorkers(threads);
+    }
+
+    @Benchmark
+    public StagedPipeline.Result score(Blackhole bh) {
+        StagedPipeline p = new StagedPipeline(options, preprocess, cp -> !cp.textNorm().isBlank(),
+                new PostDeduplicator(DedupOptions.IDS), this::analyze);
+        return p.run(posts.stream(), bh::consume);
+    }
+
+    private StagedPipeline.Analyzed analyze(CleanPost cp) {
+        LocalNlpModel.Analysis a = nlp.analyzeAll(cp.rawId(), cp.textNorm(), cp.lang(), cp.ts());
+        return new StagedPipeline.Analyzed(cp, a.sentiment(), a.damageTypes(), a.reliefItems());
+    }
+}
@@ -0,0 +1,60 @@
+package app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * textNorm cho mọi bài của một collection: TextNorm.normalize (một lượt, bộ đệm dùng lại) so với
+ * normalizeReference (chuỗi regex cũ của DefaultPreprocessService).
+ *   ./gradlew :app:jmh -Pjmh="TextNormBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextNormBenchmark {
+
+    @Param("data/collections/yagi-sept")
+    public String collection;
+
+    private List<String> texts;
+    private final TextNorm.Scratch scratch = new TextNorm.Scratch();
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        texts = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(Path.of(collection))) {
+            for (Path f : s.filter(p -> p.getFileName().toString().endsWith(".jsonl")).sorted().toList()) {
+                for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    JsonNode text = mapper.readTree(line).get("text");
+                    if (text != null && text.isTextual()) texts.add(text.asText());
+                }
+            }
+        }
+        if (texts.isEmpty()) throw new IllegalStateException("no posts under " + collection);
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (String t : texts) bh.consume(TextNorm.normalize(t, scratch));
+    }
+
+    @Benchmark
+    public void normalizeReference(Blackhole bh) {
+        for (String t : texts) bh.consume(TextNorm.normalizeReference(t));
+    }
+}
@@ -0,0 +1,120 @@
+package app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Parse mọi ts/createdAt của các collection có sẵn: TimestampParser (một instance mỗi file như
+ * JsonlScanner, hoặc parseOnce) so với chuỗi regex + Instant.parse + DateTimeFormatter cũ.
+ * input=garbled: cùng các giá trị nhưng ký tự cuối bị thay, không parse được.
+ *   ./gradlew :app:jmh -Pjmh="TimestampParserBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampParserBenchmark {
+
+    @Param("data/collections")
+    public String collections;
+
+    @Param({"bundled", "garbled"})
+    public String input;
+
+    /** Giá trị thời gian theo từng file. */
+    private List<List<String>> files;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        files = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(Path.of(collections))) {
+            for (Path f : s.filter(p -> p.getFileName().toString().endsWith(".jsonl")).sorted().toList()) {
+                List<String> values = new ArrayList<>();
+                for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    JsonNode n = mapper.readTree(line);
+                    for (String field : new String[]{"ts", "createdAt"}) {
+                        JsonNode v = n.get(field);
+                        if (v == null || v.isNull() || v.asText().isBlank()) continue;
+                        String t = v.asText();
+                        values.add("garbled".equals(input) ? t.substring(0, t.length() - 1) + "?" : t);
+                    }
+                }
+                if (!values.isEmpty()) files.add(values);
+            }
+        }
+        if (files.isEmpty()) throw new IllegalStateException("no timestamps under " + collections);
+    }
+
+    @Benchmark
+    public void perFileParser(Blackhole bh) {
+        for (List<String> values : files) {
+            TimestampParser p = new TimestampParser();
+            for (String v : values) bh.consume(p.parse(v));
+        }
+    }
+
+    @Benchmark
+    public void parseOnce(Blackhole bh) {
+        for (List<String> values : files) {
+            for (String v : values) bh.consume(TimestampParser.parseOnce(v));
+        }
+    }
+
+    @Benchmark
+    public void reference(Blackhole bh) {
+        for (List<String> values : files) {
+            for (String v : values) bh.consume(parseInstantSafe(v));
+        }
+    }
+
+    /** FileConnector/DefaultPreprocessService.parseInstantSafe trước khi có TimestampParser. */
+    private static Optional<Instant> parseInstantSafe(String s) {
+        if (s == null || s.isBlank()) return Optional.empty();
+        String x = s.trim();
+
+        if (x.matches("^\\d{13}$")) {
+            try { return Optional.of(Instant.ofEpochMilli(Long.parseLong(x))); }
+            catch (NumberFormatException ignore) {}
+        }
+        if (x.matches("^\\d{10}$")) {
+            try { return Optional.of(Instant.ofEpochSecond(Long.parseLong(x))); }
+            catch (NumberFormatException ignore) {}
+        }
+        try { return Optional.of(Instant.parse(x)); }
+        catch (DateTimeParseException ignore) {}
+
+        try {
+            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            LocalDateTime ldt = LocalDateTime.parse(x, fmt);
+            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
+        } catch (DateTimeParseException ignore) {}
+
+        try {
+            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+            LocalDateTime ldt = LocalDateTime.parse(x, fmt);
+            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
+        } catch (DateTimeParseException ignore) {}
+
+        return Optional.empty();
+    }
+}
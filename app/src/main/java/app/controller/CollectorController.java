@@ -1,12 +1,14 @@
 package app.controller;
 
 import collector.api.CollectorService;
+import collector.core.Compression;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
+import java.io.BufferedReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -15,7 +17,6 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Stream;
 
 public class CollectorController {
     private Path projectRoot = Path.of("").toAbsolutePath();
@@ -185,8 +186,8 @@ public class CollectorController {
         if (sampleList == null) return;
         sampleList.getItems().clear();
 
-        try (Stream<String> lines = Files.lines(jsonlFile)) {
-            lines.limit(maxLines).map(this::formatSampleLine).forEach(sampleList.getItems()::add);
+        try (BufferedReader r = Compression.newReader(jsonlFile)) {
+            r.lines().limit(maxLines).map(this::formatSampleLine).forEach(sampleList.getItems()::add);
         } catch (Exception e) {
             sampleList.getItems().add("Không thể đọc mẫu dữ liệu: " + e.getMessage());
         }
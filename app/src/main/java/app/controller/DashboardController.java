@@ -58,7 +58,7 @@ public class DashboardController {
     private Path dbPath;
     private AnalyticsRepo analyticsRepo;
     private InsightService insights;
-    private final LocalNlpModel nlpModel = new LocalNlpModel();
+    private final LocalNlpModel nlpModel = LocalNlpModel.shared();
     private LocalDate initialFromDate = null;
     private LocalDate initialToDate = null;
 
@@ -84,6 +84,7 @@ public class DashboardController {
     }
 
     public void loadData() {
+        analyzedKey = null;
         if (this.runId == null || this.runId.isBlank()) this.runId = resolveLatestRunId();
         if (this.runId == null || this.runId.isBlank()) {
             System.err.println("[Dashboard] runId is null/blank; skip loading.");
@@ -408,8 +409,7 @@ public class DashboardController {
         task3Chart.getData().clear();
         LocalDate from = (dpFrom != null) ? dpFrom.getValue() : null;
         LocalDate to   = (dpTo   != null) ? dpTo.getValue()   : null;
-        List<RawPost> posts = fetchRawPosts(runId, from, to);
-        Map<String, int[]> stats = computeTask3Stats(posts);
+        Map<String, int[]> stats = computeTask3Stats(analyzedPosts(from, to));
         List<Map.Entry<String, int[]>> ordered = new ArrayList<>(stats.entrySet());
         ordered.sort((a,b) -> Integer.compare(
                 (b.getValue()[0]+b.getValue()[1]+b.getValue()[2]),
@@ -428,10 +428,10 @@ public class DashboardController {
         task3Chart.getData().addAll(sPos, sNeg, sNeu);
     }
 
-    private Map<String, int[]> computeTask3Stats(List<RawPost> posts) {
+    private Map<String, int[]> computeTask3Stats(List<AnalyzedPost> posts) {
         Map<String, int[]> stats = new HashMap<>();
-        for (RawPost p : posts) {
-            Map<String, Double> sentiments = nlpModel.analyzeReliefSentiment(p.text());
+        for (AnalyzedPost p : posts) {
+            Map<String, Double> sentiments = p.analysis().reliefSentiment();
             for (var entry : sentiments.entrySet()) {
                 String item = entry.getKey();
                 double score = entry.getValue();
@@ -448,8 +448,7 @@ public class DashboardController {
         try {
             LocalDate from = (dpFrom != null) ? dpFrom.getValue() : null;
             LocalDate to   = (dpTo   != null) ? dpTo.getValue()   : null;
-            List<RawPost> posts = fetchRawPosts(runId, from, to);
-            Map<String, int[]> stats = computeTask3Stats(posts);
+            Map<String, int[]> stats = computeTask3Stats(analyzedPosts(from, to));
             Path baseDir = (dbPath != null ? dbPath.getParent() : Path.of("data"));
             Path outDir = baseDir.resolve("exports");
             Files.createDirectories(outDir);
@@ -479,10 +478,9 @@ public class DashboardController {
         task4Chart.getData().clear();
         LocalDate from = (dpFrom != null) ? dpFrom.getValue() : null;
         LocalDate to   = (dpTo   != null) ? dpTo.getValue()   : null;
-        List<RawPost> posts = fetchRawPosts(runId, from, to);
         Map<String, Map<String, List<Double>>> timeSeries = new HashMap<>();
-        for (RawPost p : posts) {
-            Map<String, Double> sentiments = nlpModel.analyzeReliefSentiment(p.text());
+        for (AnalyzedPost p : analyzedPosts(from, to)) {
+            Map<String, Double> sentiments = p.analysis().reliefSentiment();
             for (var entry : sentiments.entrySet()) {
                 String item = entry.getKey();
                 double score = entry.getValue();
@@ -523,7 +521,7 @@ public class DashboardController {
         }
         if (btnRefreshTask4 != null) {
             // Làm nút Refresh cập nhật tất cả theo khoảng thời gian đã chọn
-            btnRefreshTask4.setOnAction(e -> { loadOverview(); loadTask3(); loadTask4(); });
+            btnRefreshTask4.setOnAction(e -> { analyzedKey = null; loadOverview(); loadTask3(); loadTask4(); });
         }
         if (btnExportTask3 != null) {
             btnExportTask3.setOnAction(e -> exportTask3Csv());
@@ -693,8 +691,7 @@ public class DashboardController {
     }
 
     private String summarizeTask3Fallback(LocalDate from, LocalDate to) {
-        List<RawPost> posts = fetchRawPosts(runId, from, to);
-        Map<String, int[]> stats = computeTask3Stats(posts);
+        Map<String, int[]> stats = computeTask3Stats(analyzedPosts(from, to));
         if (stats.isEmpty()) return "Không có dữ liệu hài lòng trong phạm vi được chọn.";
         var byNeg = stats.entrySet().stream().sorted((a,b) -> Integer.compare(b.getValue()[1], a.getValue()[1])).limit(3).toList();
         var byPos = stats.entrySet().stream().sorted((a,b) -> Integer.compare(b.getValue()[0], a.getValue()[0])).limit(3).toList();
@@ -710,10 +707,9 @@ public class DashboardController {
     }
 
     private String summarizeTask4Fallback(LocalDate from, LocalDate to) {
-        List<RawPost> posts = fetchRawPosts(runId, from, to);
         Map<String, Map<String, List<Double>>> timeSeries = new HashMap<>();
-        for (RawPost p : posts) {
-            Map<String, Double> sentiments = nlpModel.analyzeReliefSentiment(p.text());
+        for (AnalyzedPost p : analyzedPosts(from, to)) {
+            Map<String, Double> sentiments = p.analysis().reliefSentiment();
             for (var entry : sentiments.entrySet()) {
                 String item = entry.getKey();
                 double score = entry.getValue();
@@ -761,6 +757,29 @@ public class DashboardController {
 
     private record RawPost(String text, String date) {}
 
+    /** Bài của run đã qua LocalNlpModel.analyzeAll. */
+    private record AnalyzedPost(String date, LocalNlpModel.Analysis analysis) {}
+
+    private String analyzedKey;
+    private List<AnalyzedPost> analyzedCache = List.of();
+
+    /**
+     * Mỗi bài trong (run, from, to) chỉ được phân tích một lần; Task 3, Task 4, xuất CSV và tóm tắt
+     * dự phòng dùng chung kết quả. Đổi run/khoảng ngày, lexicon được nạp lại hoặc bấm Refresh thì đọc lại.
+     */
+    private List<AnalyzedPost> analyzedPosts(LocalDate from, LocalDate to) {
+        String key = runId + "|" + from + "|" + to + "|" + nlpModel.lexiconVersion();
+        if (!key.equals(analyzedKey)) {
+            List<AnalyzedPost> out = new ArrayList<>();
+            for (RawPost p : fetchRawPosts(runId, from, to)) {
+                out.add(new AnalyzedPost(p.date(), nlpModel.analyzeAll(null, p.text(), "vi", null)));
+            }
+            analyzedCache = out;
+            analyzedKey = key;
+        }
+        return analyzedCache;
+    }
+
     private List<RawPost> fetchRawPosts(String runId) { return fetchRawPosts(runId, null, null); }
 
     private List<RawPost> fetchRawPosts(String runId, LocalDate from, LocalDate to) {
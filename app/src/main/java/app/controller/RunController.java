@@ -78,7 +78,10 @@ public class RunController {
             lastRunId = result.runId;
             if (statusLabel != null) {
                 statusLabel.setText("Nhập: " + result.ingested +
-                        " | Phân tích: " + result.analyzed + " ✓ (run=" + lastRunId + ")");
+                        " | Phân tích: " + result.analyzed + (result.complete ? " ✓" : " ⚠ thiếu dữ liệu: "
+                        + result.incompleteConnectors().stream().map(c -> c.connector() + " " + c.status())
+                                .collect(java.util.stream.Collectors.joining(", ")))
+                        + " (run=" + lastRunId + ")");
             }
             openDashboard(pipeline, lastRunId);
             if (runBtn != null) runBtn.setDisable(false);
@@ -0,0 +1,16 @@
+package app.model.domain;
+
+/**
+ * Mốc đọc của một file JSONL trong chế độ ingest tăng dần.
+ * path   : đường dẫn tương đối so với thư mục collections
+ * size   : kích thước file lúc ghi mốc
+ * offset : đã xử lý xong mọi dòng trước byte này (luôn là biên dòng)
+ * hash   : dấu vân tay phần đầu/cuối vùng đã đọc, để phát hiện file bị ghi đè
+ */
+public record FileWatermark(
+    String path,
+    long size,
+    long offset,
+    long mtime,
+    String hash
+) {}
\ No newline at end of file
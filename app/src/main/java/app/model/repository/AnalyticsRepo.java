@@ -47,6 +47,21 @@ public class AnalyticsRepo {
         } catch (Exception e) { throw new RuntimeException(e); }
     }
 
+    /** Cộng số đếm vào bucket đã có (ingest tăng dần); tạo mới nếu chưa có. */
+    public void addOverallSentiment(String runId, Instant bucketStart, int pos, int neg, int neu) {
+        final String sql = "INSERT INTO overall_sentiment(run_id,bucket_start,pos,neg,neu) VALUES(?,?,?,?,?) " +
+                "ON CONFLICT(run_id,bucket_start) DO UPDATE SET " +
+                "pos = pos + excluded.pos, neg = neg + excluded.neg, neu = neu + excluded.neu";
+        try (var con = db.connect(); var ps = con.prepareStatement(sql)) {
+            ps.setString(1, runId);
+            ps.setString(2, bucketStart.toString());
+            ps.setInt(3, pos);
+            ps.setInt(4, neg);
+            ps.setInt(5, neu);
+            ps.executeUpdate();
+        } catch (Exception e) { throw new RuntimeException(e); }
+    }
+
     public void saveOverallSentiment(String runId, Instant bucketStart, int pos, int neg, int neu) {
         upsertOverallSentiment(runId, bucketStart, pos, neg, neu);
     }
@@ -45,6 +45,17 @@ public class PostsRepo {
         }
     }
 
+    /** Duyệt (id, text đã chuẩn hoá) các post của run, dùng để nạp bộ khử trùng khi cộng dồn. */
+    public void forEachInRun(String runId, java.util.function.BiConsumer<String, String> action) {
+        final String sql = "SELECT id, text FROM posts WHERE run_id = ?";
+        try (var conn = db.connect(); var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, runId);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) action.accept(rs.getString(1), rs.getString(2));
+            }
+        } catch (Exception e) { throw new RuntimeException(e); }
+    }
+
     // pipeline sẽ set runId trước khi gọi saveBatch
     private String currentRunId = "unknown";
     public void attachRun(String runId){ this.currentRunId = runId; }
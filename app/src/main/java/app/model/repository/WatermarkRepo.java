@@ -0,0 +1,77 @@
+package app.model.repository;
+
+import app.model.domain.FileWatermark;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watermark của ingest tăng dần, theo "scope" (bộ keyword + cửa sổ thời gian của lượt chạy).
+ * Mỗi scope gắn với một run_id: các lượt tăng dần sau cộng dồn vào run đó.
+ */
+public class WatermarkRepo {
+    private final SQLite db;
+
+    public WatermarkRepo(SQLite db){ this.db = db; }
+
+    /** run_id đang cộng dồn của scope; null nếu chưa chạy lần nào. */
+    public String findRun(String scope) {
+        final String sql = "SELECT run_id FROM ingest_watermarks WHERE scope = ? LIMIT 1";
+        try (var con = db.connect(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, scope);
+            try (var rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (Exception e) { throw new RuntimeException(e); }
+    }
+
+    public Map<String, FileWatermark> load(String scope) {
+        final String sql = "SELECT path,size,last_offset,mtime,hash FROM ingest_watermarks WHERE scope = ?";
+        Map<String, FileWatermark> out = new LinkedHashMap<>();
+        try (var con = db.connect(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, scope);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    var w = new FileWatermark(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getString(5));
+                    out.put(w.path(), w);
+                }
+            }
+        } catch (Exception e) { throw new RuntimeException(e); }
+        return out;
+    }
+
+    /** Thay toàn bộ watermark của scope (một transaction). */
+    public void replace(String scope, String runId, List<FileWatermark> marks) {
+        final String del = "DELETE FROM ingest_watermarks WHERE scope = ?";
+        final String ins = "INSERT INTO ingest_watermarks(scope,path,size,last_offset,mtime,hash,run_id,updated_at) VALUES(?,?,?,?,?,?,?,?)";
+        var con = db.connect();
+        try {
+            con.setAutoCommit(false);
+            try (var pd = con.prepareStatement(del); var pi = con.prepareStatement(ins)) {
+                pd.setString(1, scope);
+                pd.executeUpdate();
+                String now = Instant.now().toString();
+                for (var w : marks) {
+                    pi.setString(1, scope);
+                    pi.setString(2, w.path());
+                    pi.setLong(3, w.size());
+                    pi.setLong(4, w.offset());
+                    pi.setLong(5, w.mtime());
+                    pi.setString(6, w.hash());
+                    pi.setString(7, runId);
+                    pi.setString(8, now);
+                    pi.addBatch();
+                }
+                pi.executeBatch();
+            }
+            con.commit();
+            con.setAutoCommit(true);
+        } catch (Exception e) {
+            try { con.rollback(); } catch (Exception ex) {}
+            throw new RuntimeException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package app.model.service.dedup;
+
+/**
+ * Tuỳ chọn khử trùng lặp ở đầu pipeline.
+ *
+ * - ids           : bỏ bản ghi có id đã gặp (giữ bản đầu tiên theo thứ tự đọc).
+ * - nearDuplicate : bỏ bài có textNorm gần trùng bài đã giữ (SimHash, xem SimHashIndex).
+ * - maxDistance   : số bit lệch tối đa giữa hai chữ ký SimHash để coi là gần trùng (0..3).
+ * - minTokens     : bài ngắn hơn số từ này không bị xét gần trùng (câu ngắn kiểu "a di da phat"
+ *                   trùng nhau giữa nhiều người viết là chuyện bình thường).
+ */
+public record DedupOptions(boolean ids, boolean nearDuplicate, int maxDistance, int minTokens) {
+
+    public static final DedupOptions NONE = new DedupOptions(false, false, 0, 0);
+    /** Mặc định: chỉ khử trùng theo id. */
+    public static final DedupOptions IDS = new DedupOptions(true, false, 3, 8);
+
+    public DedupOptions {
+        maxDistance = Math.max(0, Math.min(3, maxDistance));
+        minTokens = Math.max(1, minTokens);
+    }
+
+    public DedupOptions withNearDuplicate(boolean on) {
+        return new DedupOptions(ids, on, maxDistance, minTokens);
+    }
+
+    public DedupOptions withMaxDistance(int bits) {
+        return new DedupOptions(ids, nearDuplicate, bits, minTokens);
+    }
+
+    public DedupOptions withMinTokens(int tokens) {
+        return new DedupOptions(ids, nearDuplicate, maxDistance, tokens);
+    }
+
+    public boolean enabled() { return ids || nearDuplicate; }
+}
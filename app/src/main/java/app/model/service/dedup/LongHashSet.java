@@ -0,0 +1,75 @@
+package app.model.service.dedup;
+
+/**
+ * Tập long dùng địa chỉ mở (dò tuyến tính) trên một mảng long[] duy nhất: ~8-16 byte mỗi phần tử,
+ * không boxing, không object theo từng phần tử. Giá trị 0 dùng làm ô trống nên được đổi sang
+ * một hằng khác trước khi lưu.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+
+    private long[] slots;
+    private int size, mask, resizeAt;
+
+    LongHashSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, expected * 2L)) - 1) << 1;
+        slots = new long[cap];
+        mask = cap - 1;
+        resizeAt = (int) (cap * 0.7);
+    }
+
+    /** true nếu key chưa có (và đã được thêm). */
+    boolean add(long key) {
+        if (key == EMPTY) key = ZERO_KEY;
+        int i = (int) mix(key) & mask;
+        while (true) {
+            long s = slots[i];
+            if (s == EMPTY) break;
+            if (s == key) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        if (++size >= resizeAt) grow();
+        return true;
+    }
+
+    int size() { return size; }
+
+    /** Số byte mảng đang chiếm. */
+    long bytes() { return slots.length * 8L; }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        resizeAt = (int) (slots.length * 0.7);
+        for (long k : old) {
+            if (k == EMPTY) continue;
+            int i = (int) mix(k) & mask;
+            while (slots[i] != EMPTY) i = (i + 1) & mask;
+            slots[i] = k;
+        }
+    }
+
+    /** fmix64 của MurmurHash3: trộn đều các bit trước khi lấy chỉ số ô. */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Băm 64-bit của chuỗi (FNV-1a trên từng char, rồi trộn). */
+    static long hash(CharSequence s, int from, int to) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h ^ (to - from));
+    }
+}
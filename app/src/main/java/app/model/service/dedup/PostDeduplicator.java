@@ -0,0 +1,82 @@
+package app.model.service.dedup;
+
+/**
+ * Bộ lọc trùng lặp cho một lượt chạy pipeline.
+ *
+ * Không khoá, nhưng có thể dùng từ HAI luồng vì hai nửa không chung trạng thái: acceptId chỉ chạm
+ * tập id, acceptText chỉ chạm chỉ mục SimHash (StagedPipeline gọi acceptId trên luồng ingest và
+ * acceptText trên luồng lọc). Mỗi nửa bị ràng vào luồng đầu tiên gọi nó; gọi từ luồng khác thì ném
+ * IllegalStateException. seed chạm cả hai nên chỉ được gọi trước lần accept đầu tiên (trên luồng
+ * khởi chạy pipeline, trước khi Thread.start giao cho các luồng kia).
+ *
+ * Theo id: lưu băm 64-bit của id trong LongHashSet thay vì HashSet&lt;String&gt;, nên bộ nhớ
+ * chỉ ~16 byte mỗi id bất kể id dài bao nhiêu. Hai id khác nhau trùng băm (xác suất ~n²/2^65,
+ * cỡ 1e-8 với một triệu bài) thì bài sau bị bỏ nhầm; đổi lại không phải giữ chuỗi id.
+ * Gần trùng: SimHash trên textNorm (xem SimHashIndex).
+ */
+public final class PostDeduplicator {
+
+    private final DedupOptions options;
+    private final LongHashSet ids;
+    private final SimHashIndex near;
+    private int droppedIds, droppedNear;
+    private volatile Thread idOwner, textOwner;   // luồng đầu tiên gọi acceptId / acceptText
+
+    public PostDeduplicator(DedupOptions options) {
+        this(options, 1 << 14);
+    }
+
+    public PostDeduplicator(DedupOptions options, int expected) {
+        this.options = options != null ? options : DedupOptions.NONE;
+        this.ids = this.options.ids() ? new LongHashSet(expected) : null;
+        this.near = this.options.nearDuplicate() ? new SimHashIndex(this.options.maxDistance(), expected) : null;
+    }
+
+    /** false nếu id đã gặp (bài trùng, bỏ trước khi tiền xử lý). */
+    public boolean acceptId(String id) {
+        if (ids == null || id == null) return true;
+        if (idOwner != Thread.currentThread()) idOwner = claim(idOwner, "acceptId");
+        if (ids.add(LongHashSet.hash(id, 0, id.length()))) return true;
+        droppedIds++;
+        return false;
+    }
+
+    /** false nếu textNorm gần trùng một bài đã nhận (bỏ trước NLP). */
+    public boolean acceptText(String textNorm) {
+        if (near == null) return true;
+        if (textOwner != Thread.currentThread()) textOwner = claim(textOwner, "acceptText");
+        long sig = SimHashIndex.signature(textNorm, options.minTokens());
+        if (sig == 0 || near.add(sig)) return true;
+        droppedNear++;
+        return false;
+    }
+
+    /** Nạp bài đã xử lý từ trước (ví dụ khi cộng dồn vào run cũ) để bài mới không trùng với chúng. */
+    public void seed(String id, String textNorm) {
+        if (idOwner != null || textOwner != null) throw new IllegalStateException("seed after accept started");
+        if (ids != null && id != null) ids.add(LongHashSet.hash(id, 0, id.length()));
+        if (near != null) {
+            long sig = SimHashIndex.signature(textNorm, options.minTokens());
+            if (sig != 0) near.add(sig);
+        }
+    }
+
+    private static Thread claim(Thread owner, String method) {
+        Thread me = Thread.currentThread();
+        if (owner != null) {
+            throw new IllegalStateException(method + " called from " + me.getName() + " but bound to " + owner.getName());
+        }
+        return me;
+    }
+
+    public boolean enabled() { return options.enabled(); }
+
+    public int droppedIds() { return droppedIds; }
+
+    public int droppedNear() { return droppedNear; }
+
+    @Override public String toString() {
+        return "dedup | ids dropped=" + droppedIds + " | near-duplicates dropped=" + droppedNear
+                + (ids != null ? " | idSetKB=" + ids.bytes() / 1024 : "");
+    }
+}
@@ -0,0 +1,93 @@
+package app.model.service.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Phát hiện gần trùng bằng SimHash 64-bit trên các shingle 3 từ của textNorm.
+ *
+ * Hai văn bản được coi là gần trùng khi khoảng cách Hamming giữa hai chữ ký <= maxDistance (<= 3).
+ * Chữ ký được chia 4 băng 16 bit; theo nguyên lý chuồng bồ câu, hai chữ ký lệch <= 3 bit luôn
+ * trùng nhau ở ít nhất một băng, nên chỉ cần so với các chữ ký cùng giá trị băng.
+ * Bộ nhớ: bảng đầu danh sách cố định 4 x 65536 int, cộng 8 + 4 x 4 byte mỗi chữ ký.
+ */
+final class SimHashIndex {
+
+    private static final int BANDS = 4, BAND_BITS = 16, SHINGLE = 3;
+
+    private final int maxDistance;
+    private final int[][] head = new int[BANDS][1 << BAND_BITS];
+    private int[][] next = new int[BANDS][];
+    private long[] sigs;
+    private int size;
+
+    SimHashIndex(int maxDistance, int expected) {
+        this.maxDistance = Math.max(0, Math.min(BANDS - 1, maxDistance));
+        int cap = Math.max(16, expected);
+        sigs = new long[cap];
+        for (int b = 0; b < BANDS; b++) {
+            Arrays.fill(head[b], -1);
+            next[b] = new int[cap];
+        }
+    }
+
+    /** true nếu chưa có văn bản gần trùng (và chữ ký đã được thêm). */
+    boolean add(long sig) {
+        if (containsNear(sig)) return false;
+        if (size == sigs.length) {
+            int cap = size * 2;
+            sigs = Arrays.copyOf(sigs, cap);
+            for (int b = 0; b < BANDS; b++) next[b] = Arrays.copyOf(next[b], cap);
+        }
+        int id = size++;
+        sigs[id] = sig;
+        for (int b = 0; b < BANDS; b++) {
+            int key = band(sig, b);
+            next[b][id] = head[b][key];
+            head[b][key] = id;
+        }
+        return true;
+    }
+
+    private boolean containsNear(long sig) {
+        for (int b = 0; b < BANDS; b++) {
+            for (int id = head[b][band(sig, b)]; id >= 0; id = next[b][id]) {
+                if (Long.bitCount(sigs[id] ^ sig) <= maxDistance) return true;
+            }
+        }
+        return false;
+    }
+
+    int size() { return size; }
+
+    private static int band(long sig, int b) {
+        return (int) (sig >>> (b * BAND_BITS)) & ((1 << BAND_BITS) - 1);
+    }
+
+    /**
+     * SimHash của textNorm (từ cách nhau bởi một khoảng trắng); 0 nếu ít hơn minTokens từ
+     * (văn bản quá ngắn không đủ đặc trưng để so gần trùng).
+     */
+    static long signature(String textNorm, int minTokens) {
+        if (textNorm == null || textNorm.isEmpty()) return 0;
+        int[] starts = new int[16];
+        int n = 0;
+        for (int i = 0, len = textNorm.length(); i < len; i++) {
+            if (textNorm.charAt(i) != ' ' && (i == 0 || textNorm.charAt(i - 1) == ' ')) {
+                if (n == starts.length) starts = Arrays.copyOf(starts, n * 2);
+                starts[n++] = i;
+            }
+        }
+        if (n < Math.max(1, minTokens)) return 0;
+
+        int[] weight = new int[64];
+        int shingles = Math.max(1, n - SHINGLE + 1);
+        for (int s = 0; s < shingles; s++) {
+            int to = s + SHINGLE < n ? starts[s + SHINGLE] - 1 : textNorm.length();
+            long h = LongHashSet.hash(textNorm, starts[s], to);
+            for (int bit = 0; bit < 64; bit++) weight[bit] += ((h >>> bit) & 1) != 0 ? 1 : -1;
+        }
+        long sig = 0;
+        for (int bit = 0; bit < 64; bit++) if (weight[bit] > 0) sig |= 1L << bit;
+        return sig == 0 ? 1 : sig;
+    }
+}
@@ -0,0 +1,393 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import app.util.TimestampParser;
+import app.util.VnFold;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot nhị phân dạng cột của một collection, đọc lại bằng SnapshotConnector (mmap) để
+ * các lượt phân tích lặp lại không phải parse JSON.
+ *
+ * Bố cục file (big-endian):
+ *   header  : MAGIC, VERSION, rows, fingerprint nguồn (đường dẫn, số file, tổng byte, mtime lớn nhất)
+ *   section : [int độ dài][nội dung], theo thứ tự
+ *     DICT      từ điển chuỗi dùng chung (platform, lang, userLoc, type, hashtag)
+ *     TS        long[rows] epoch ms (NO_TS = không có/không đọc được thời gian)
+ *     PLATFORM, LANG, USER_LOC, TYPE   int[rows] mã từ điển (-1 = null)
+ *     HASHTAGS  mỗi dòng: varint (số tag + 1, 0 = không có) rồi varint mã từ điển
+ *     ID, TEXT, CREATED_AT, THREAD_ID, REPLY_TO   chuỗi UTF-8: varint (độ dài + 1, 0 = null)
+ *
+ * CREATED_AT chỉ lưu chuỗi gốc khi nó khác dạng ISO của TS (ví dụ epoch giây, có múi giờ,
+ * chính xác dưới ms); còn lại dựng lại từ TS nên RawPost đọc ra giống hệt lúc ghi (meta chỉ giữ
+ * type/threadId/replyTo/hashtags như FileConnector; surrogate lẻ trong chuỗi thành '?' như UTF-8).
+ *
+ * Dựng: refresh (SnapshotConnector.over gọi trước mỗi lượt đọc, RunPlan.withSnapshots) hoặc
+ *   ./gradlew :app:snapshots   (main: data/collections -> data/snapshots)
+ * Mỗi thư mục con của collectionsRoot thành "<tên thư mục>.snap"; file JSONL nằm thẳng dưới root
+ * không thuộc collection nào nên không có snapshot.
+ */
+public final class ColumnarSnapshot {
+
+    public static final String SUFFIX = ".snap";
+    static final long NO_TS = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x43534E50;   // "CSNP"
+    private static final int VERSION = 1;
+
+    static final int DICT = 0, TS = 1, PLATFORM = 2, LANG = 3, USER_LOC = 4, TYPE = 5, HASHTAGS = 6,
+            ID = 7, TEXT = 8, CREATED_AT = 9, THREAD_ID = 10, REPLY_TO = 11, SECTIONS = 12;
+
+    private ColumnarSnapshot() {}
+
+    /** Dấu vân tay các file JSONL của collection lúc dựng snapshot (để phát hiện snapshot cũ). */
+    record Source(String path, int files, long bytes, long mtime) {
+        static Source of(Path dir) {
+            int files = 0;
+            long bytes = 0, mtime = 0;
+            try (Stream<Path> s = Files.walk(dir)) {
+                for (Path p : s.filter(x -> JsonlCodec.of(x) != null && Files.isRegularFile(x)).toList()) {
+                    files++;
+                    bytes += Files.size(p);
+                    mtime = Math.max(mtime, Files.getLastModifiedTime(p).toMillis());
+                }
+            } catch (IOException | UncheckedIOException e) {
+                return new Source(dir.toAbsolutePath().normalize().toString(), -1, -1, -1);
+            }
+            return new Source(dir.toAbsolutePath().normalize().toString(), files, bytes, mtime);
+        }
+    }
+
+    /* ========================== Ghi ========================== */
+
+    /**
+     * Đọc toàn bộ collection (mọi file .jsonl/.jsonl.gz/.jsonl.zst bên dưới dir) và ghi snapshot.
+     * Trả về số bản ghi đã ghi.
+     */
+    public static int build(Path collectionDir, Path out) throws IOException {
+        Source src = Source.of(collectionDir);
+        FileConnector fc = new FileConnector(collectionDir, IngestOptions.parallel());
+        try (Stream<RawPost> posts = fc.fetch(QuerySpec.ofKeywords(List.of()))) {
+            return write(posts, out, src);
+        }
+    }
+
+    /**
+     * Dựng lại snapshot (trong snapshotsDir) của các collection được chọn mà chưa có, đã cũ hoặc không
+     * đọc được. collections chọn theo tên thư mục hoặc name trong dataset.yaml như FileConnector
+     * (rỗng = mọi collection). Trả về tên các snapshot ứng với lựa chọn, sắp theo tên.
+     */
+    public static List<String> refresh(Path collectionsRoot, Path snapshotsDir, Set<String> collections) throws IOException {
+        List<Path> dirs;
+        try (Stream<Path> s = Files.list(collectionsRoot)) {
+            dirs = s.filter(Files::isDirectory).sorted().toList();
+        }
+        List<String> names = new ArrayList<>();
+        for (Path dir : dirs) {
+            String name = dir.getFileName().toString();
+            if (!collections.isEmpty() && !selected(dir, collections)) continue;
+            names.add(name);
+            Path snap = snapshotsDir.resolve(name + SUFFIX);
+            if (isCurrent(snap, dir)) continue;
+            long t0 = System.nanoTime();
+            int rows = build(dir, snap);
+            System.out.println("[ColumnarSnapshot] built " + snap.getFileName() + " | rows=" + rows
+                    + " | " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        }
+        return names;
+    }
+
+    private static boolean selected(Path dir, Set<String> collections) {
+        DatasetManifest m = DatasetManifest.load(dir);
+        for (String n : collections) {
+            if (n.equalsIgnoreCase(dir.getFileName().toString())) return true;
+            if (m != null && n.equalsIgnoreCase(m.name())) return true;
+        }
+        return false;
+    }
+
+    /** snap tồn tại, đọc được và dựng từ đúng trạng thái hiện tại của collectionDir. */
+    static boolean isCurrent(Path snap, Path collectionDir) {
+        if (!Files.isRegularFile(snap)) return false;
+        try {
+            return open(snap).source.equals(Source.of(collectionDir));
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** ColumnarSnapshot [collectionsRoot] [snapshotsDir]: dựng lại các snapshot thiếu hoặc cũ. */
+    public static void main(String[] args) throws IOException {
+        Path root = Path.of(args.length > 0 ? args[0] : "data/collections");
+        Path out = Path.of(args.length > 1 ? args[1] : "data/snapshots");
+        List<String> names = refresh(root, out, Set.of());
+        System.out.println("[ColumnarSnapshot] " + names.size() + " snapshot(s) up to date in " + out.toAbsolutePath());
+    }
+
+    /** Ghi các bản ghi thành snapshot (không gắn với collection nguồn nào). */
+    public static int write(Stream<RawPost> posts, Path out) throws IOException {
+        return write(posts, out, new Source("", -1, -1, -1));
+    }
+
+    private static int write(Stream<RawPost> posts, Path out, Source src) throws IOException {
+        Columns cols = new Columns();
+        posts.forEachOrdered(cols::add);
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (DataOutputStream o = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            o.writeInt(MAGIC);
+            o.writeInt(VERSION);
+            o.writeInt(cols.rows);
+            o.writeUTF(src.path());
+            o.writeInt(src.files());
+            o.writeLong(src.bytes());
+            o.writeLong(src.mtime());
+            for (ByteArrayOutputStream sec : cols.sections()) {
+                o.writeInt(sec.size());
+                sec.writeTo(o);
+            }
+        } catch (IOException e) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+            throw e;
+        }
+        try {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return cols.rows;
+    }
+
+    /** Các cột được dựng dần trong bộ nhớ rồi ghi một lần. */
+    private static final class Columns {
+        final Map<String, Integer> dict = new LinkedHashMap<>();
+        final Section[] sec = new Section[SECTIONS];
+        int rows;
+
+        Columns() {
+            for (int i = 0; i < SECTIONS; i++) sec[i] = new Section();
+        }
+
+        void add(RawPost p) {
+            rows++;
+            String createdAt = p.createdAt();
+            long ts = timestampMillis(createdAt);
+            sec[TS].writeLong(ts);
+            sec[PLATFORM].writeInt(code(p.platform()));
+            sec[LANG].writeInt(code(p.lang()));
+            sec[USER_LOC].writeInt(code(p.userLoc()));
+
+            Map<String, Object> meta = p.meta() != null ? p.meta() : Map.of();
+            sec[TYPE].writeInt(code(asString(meta.get("type"))));
+            if (meta.get("hashtags") instanceof List<?> tags) {
+                sec[HASHTAGS].writeVarint(tags.size() + 1);
+                for (Object t : tags) sec[HASHTAGS].writeVarint(code(String.valueOf(t)));
+            } else {
+                sec[HASHTAGS].writeVarint(0);
+            }
+
+            sec[ID].writeString(p.id());
+            sec[TEXT].writeString(p.text());
+            // chuỗi gốc chỉ cần khi không dựng lại được từ TS
+            sec[CREATED_AT].writeString(createdAt != null && createdAt.equals(isoOf(ts)) ? null : createdAt);
+            sec[THREAD_ID].writeString(asString(meta.get("threadId")));
+            sec[REPLY_TO].writeString(asString(meta.get("replyTo")));
+        }
+
+        private int code(String s) {
+            if (s == null) return -1;
+            return dict.computeIfAbsent(s, k -> dict.size());
+        }
+
+        List<ByteArrayOutputStream> sections() {
+            Section d = sec[DICT];
+            d.writeVarint(dict.size());
+            for (String s : dict.keySet()) d.writeString(s);
+            return Arrays.asList(sec);
+        }
+    }
+
+    private static final class Section extends ByteArrayOutputStream {
+        void writeInt(int v) {
+            write(v >>> 24); write(v >>> 16); write(v >>> 8); write(v);
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeVarint(int v) {
+            while ((v & ~0x7F) != 0) {
+                write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void writeString(String s) {
+            if (s == null) { writeVarint(0); return; }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(b.length + 1);
+            write(b, 0, b.length);
+        }
+    }
+
+    private static String asString(Object o) {
+        return o == null ? null : o.toString();
+    }
+
+    /** Epoch ms theo cùng cách đọc thời gian của FileConnector; NO_TS nếu không có. */
+    static long timestampMillis(String when) {
+        Optional<Instant> t = TimestampParser.parseSafe(when);
+        if (t.isEmpty()) return NO_TS;
+        try {
+            return t.get().toEpochMilli();
+        } catch (ArithmeticException e) {
+            return t.get().isBefore(Instant.EPOCH) ? NO_TS + 1 : Long.MAX_VALUE;
+        }
+    }
+
+    static String isoOf(long ts) {
+        return ts == NO_TS ? null : Instant.ofEpochMilli(ts).toString();
+    }
+
+    /* ========================== Đọc ========================== */
+
+    /** Snapshot đã map: từ điển đã giải mã, các cột đọc tuần tự bằng con trỏ riêng. */
+    static final class Mapped {
+        final Path file;
+        final int rows;
+        final Source source;
+        final String[] dict;
+        final MappedByteBuffer buf;
+        final int[] start = new int[SECTIONS];
+
+        private Mapped(Path file, int rows, Source source, String[] dict, MappedByteBuffer buf) {
+            this.file = file;
+            this.rows = rows;
+            this.source = source;
+            this.dict = dict;
+            this.buf = buf;
+        }
+
+        /** true nếu collection nguồn còn đó nhưng đã khác lúc dựng snapshot. */
+        boolean stale() {
+            if (source.path().isEmpty()) return false;
+            Path dir = Path.of(source.path());
+            return Files.isDirectory(dir) && !Source.of(dir).equals(source);
+        }
+    }
+
+    static Mapped open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE - 8) throw new IOException("snapshot too large to map: " + size + " bytes");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 12 || buf.getInt(0) != MAGIC) throw new IOException("not a snapshot file");
+            if (buf.getInt(4) != VERSION) throw new IOException("unsupported snapshot version " + buf.getInt(4));
+            int rows = buf.getInt(8);
+
+            byte[] hb = headerBytes(buf);
+            DataInputStream hdr = new DataInputStream(new ByteArrayInputStream(hb));
+            Source src = new Source(hdr.readUTF(), hdr.readInt(), hdr.readLong(), hdr.readLong());
+            int pos = 12 + hb.length - hdr.available();
+
+            int[] start = new int[SECTIONS];
+            for (int s = 0; s < SECTIONS; s++) {
+                if (pos + 4 > size) throw new IOException("truncated snapshot");
+                int len = buf.getInt(pos);
+                start[s] = pos + 4;
+                pos += 4 + len;
+                if (len < 0 || pos > size) throw new IOException("truncated snapshot");
+            }
+
+            Cursor d = new Cursor(buf, start[DICT]);
+            String[] dict = new String[d.varint()];
+            for (int i = 0; i < dict.length; i++) dict[i] = d.string();
+
+            Mapped m = new Mapped(file, rows, src, dict, buf);
+            System.arraycopy(start, 0, m.start, 0, SECTIONS);
+            return m;
+        }
+    }
+
+    /** Phần header sau rows (tối đa 64 KB, đủ cho writeUTF của đường dẫn). */
+    private static byte[] headerBytes(MappedByteBuffer buf) {
+        int n = Math.min(buf.capacity() - 12, 2 + 65535 + 4 + 8 + 8);
+        byte[] b = new byte[n];
+        buf.get(12, b, 0, n);
+        return b;
+    }
+
+    /** Con trỏ đọc tuần tự trong một section. */
+    static final class Cursor {
+        private final MappedByteBuffer buf;
+        private int pos;
+        private byte[] scratch = new byte[256];
+
+        Cursor(MappedByteBuffer buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int i32() { int v = buf.getInt(pos); pos += 4; return v; }
+
+        long i64() { long v = buf.getLong(pos); pos += 8; return v; }
+
+        int varint() {
+            int v = 0, shift = 0;
+            byte b;
+            do {
+                b = buf.get(pos++);
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+
+        String string() {
+            int n = varint() - 1;
+            if (n < 0) return null;
+            if (scratch.length < n) scratch = new byte[Math.max(n, scratch.length * 2)];
+            buf.get(pos, scratch, 0, n);
+            pos += n;
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+
+        /** Gập (VnFold) chuỗi kế tiếp thẳng từ byte UTF-8 vào out, không dịch con trỏ. */
+        void foldString(VnFold.Sink out) {
+            out.reset();
+            int p = pos, n = 0, shift = 0;
+            byte b;
+            do {
+                b = buf.get(p++);
+                n |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            for (int i = p, e = p + n - 1; i < e; ) {
+                int c = buf.get(i) & 0xFF;
+                if (c < 0x80) { out.add(VnFold.alnum((char) c)); i++; continue; }
+                int len = c >= 0xF0 ? 4 : c >= 0xE0 ? 3 : 2;
+                int cp = c & (len == 2 ? 0x1F : len == 3 ? 0x0F : 0x07);
+                for (int k = 1; k < len; k++) cp = (cp << 6) | (buf.get(i + k) & 0x3F);
+                out.add(VnFold.alnum(cp));
+                i += len;
+            }
+        }
+
+        void skipString() {
+            int n = varint() - 1;
+            if (n > 0) pos += n;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package app.model.service.ingest;
+
+import app.util.TimestampParser;
+import app.util.VnFold;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * dataset.yaml của một collection: tên, cửa sổ thời gian khai báo và keywords_hint.
+ *
+ * Chỉ đọc đúng dạng YAML mà collector sinh ra (key: value, một cấp lồng như time.from,
+ * danh sách inline [..]); không cần thư viện YAML. Được cache theo mtime của file.
+ */
+record DatasetManifest(String name, Instant from, Instant to, List<String> keywordsHint) {
+
+    static final String FILE_NAME = "dataset.yaml";
+
+    private record Cached(long mtime, DatasetManifest manifest) {}
+    private static final Map<Path, Cached> CACHE = new ConcurrentHashMap<>();
+
+    /** Manifest của thư mục collection; null nếu không có hoặc không đọc được. */
+    static DatasetManifest load(Path collectionDir) {
+        Path f = collectionDir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(f)) return null;
+        try {
+            long mtime = Files.getLastModifiedTime(f).toMillis();
+            Cached c = CACHE.get(f);
+            if (c != null && c.mtime() == mtime) return c.manifest();
+
+            Map<String, String> kv = parse(Files.readAllLines(f, StandardCharsets.UTF_8));
+            DatasetManifest m = new DatasetManifest(
+                    kv.get("name"),
+                    TimestampParser.parseSafe(kv.get("time.from")).orElse(null),
+                    TimestampParser.parseSafe(kv.get("time.to")).orElse(null),
+                    list(kv.get("keywords_hint")));
+            CACHE.put(f, new Cached(mtime, m));
+            return m;
+        } catch (IOException e) {
+            System.err.println("[WARN] cannot read " + f + " | " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * false nếu theo khai báo, collection chắc chắn không có bản ghi thoả spec:
+     * cửa sổ thời gian không giao nhau, hoặc không hint nào liên quan tới keyword.
+     */
+    boolean mayMatch(QuerySpec spec) {
+        Instant sf = spec.from().orElse(null), st = spec.to().orElse(null);
+        if (st != null && from != null && from.isAfter(st)) return false;
+        if (sf != null && to != null && to.isBefore(sf)) return false;
+
+        if (spec.keywords() == null || spec.keywords().isEmpty() || keywordsHint.isEmpty()) return true;
+        for (String hint : keywordsHint) {
+            String h = fold(hint);
+            if (h.isEmpty()) continue;
+            for (String k : spec.keywords()) {
+                String kk = fold(k);
+                if (!kk.isEmpty() && (kk.contains(h) || h.contains(kk))) return true;
+            }
+        }
+        return false;
+    }
+
+    /** So khớp không dấu, bỏ '#' và coi '_' như khoảng trắng ("cuu_tro" ~ "#cuu tro"). */
+    private static String fold(String s) {
+        return VnFold.foldAlnum(s).replace("#", "").trim();
+    }
+
+    /* ========================== YAML tối giản ========================== */
+
+    private static Map<String, String> parse(List<String> lines) {
+        Map<String, String> out = new LinkedHashMap<>();
+        String section = null;
+        for (String raw : lines) {
+            String line = stripComment(raw);
+            if (line.isBlank()) continue;
+            boolean nested = Character.isWhitespace(line.charAt(0));
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (!nested) {
+                section = value.isEmpty() ? key : null;
+                if (!value.isEmpty()) out.put(key, unquote(value));
+            } else if (section != null) {
+                out.put(section + "." + key, unquote(value));
+            }
+        }
+        return out;
+    }
+
+    /** Bỏ phần chú thích "# ..." nằm ngoài dấu nháy. */
+    private static String stripComment(String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) { if (c == quote) quote = 0; }
+            else if (c == '"' || c == '\'') quote = c;
+            else if (c == '#' && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) return line.substring(0, i);
+        }
+        return line;
+    }
+
+    private static String unquote(String v) {
+        if (v.length() >= 2 && (v.charAt(0) == '"' || v.charAt(0) == '\'') && v.charAt(v.length() - 1) == v.charAt(0)) {
+            return v.substring(1, v.length() - 1);
+        }
+        return v;
+    }
+
+    private static List<String> list(String v) {
+        List<String> out = new ArrayList<>();
+        if (v == null) return out;
+        v = v.trim();
+        if (!v.startsWith("[") || !v.endsWith("]")) {
+            if (!v.isEmpty()) out.add(unquote(v));
+            return out;
+        }
+        StringBuilder cur = new StringBuilder();
+        char quote = 0;
+        for (int i = 1; i < v.length() - 1; i++) {
+            char c = v.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0; else cur.append(c);
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ',') {
+                if (!cur.toString().isBlank()) out.add(cur.toString().trim());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        if (!cur.toString().isBlank()) out.add(cur.toString().trim());
+        return out;
+    }
+}
\ No newline at end of file
@@ -1,24 +1,35 @@
 package app.model.service.ingest;
 
+import app.model.domain.FileWatermark;
 import app.model.domain.RawPost;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import app.util.TextNorm;
+import app.util.TimestampParser;
+import app.util.VnFold;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * FileConnector: đọc dữ liệu offline theo mô hình "drop-folder".
+ * Stream trả về là lười: đọc tuần tự từng file, từng dòng, không gom cả collection vào RAM.
+ * Với IngestOptions.parallel(...) các file (và đoạn byte của file lớn) được parse song song.
+ * Với IngestOptions.withIndex(true) truy vấn có cửa sổ thời gian/keyword chỉ đọc các block
+ * có thể khớp theo chỉ mục phụ của từng file.
+ * File .jsonl.gz / .jsonl.zst được đọc trong suốt bằng giải nén streaming (xem JsonlCodec).
  * Có debug chi tiết để soi pipeline.
  */
 public class FileConnector implements SocialConnector {
@@ -26,142 +37,399 @@ public class FileConnector implements SocialConnector {
     private static final boolean DEBUG = true;
 
     private final Path collectionsRoot;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final IngestOptions options;
 
     public FileConnector(Path collectionsRoot) {
+        this(collectionsRoot, IngestOptions.SEQUENTIAL);
+    }
+
+    public FileConnector(Path collectionsRoot, IngestOptions options) {
         this.collectionsRoot = collectionsRoot;
+        this.options = options != null ? options : IngestOptions.SEQUENTIAL;
     }
 
     @Override public String id() { return "file"; }
 
+    public Path collectionsRoot() { return collectionsRoot; }
+
     @Override
     public Stream<RawPost> fetch(QuerySpec spec) {
-        if (collectionsRoot == null || !Files.isDirectory(collectionsRoot)) {
-            System.err.println("[FileConnector] collectionsRoot not found: " + collectionsRoot);
-            return Stream.empty();
-        }
-
-        final Set<String> kws = spec.keywords(); // keys đã normalize từ Pipeline
-        final List<RawPost> out = new ArrayList<>();
-
-        final AtomicInteger fileCnt   = new AtomicInteger();
-        final AtomicInteger lineCnt   = new AtomicInteger();
-        final AtomicInteger parsedCnt = new AtomicInteger();
-        final AtomicInteger timeOkCnt = new AtomicInteger();
-        final AtomicInteger kwOkCnt   = new AtomicInteger();
-
-        try (Stream<Path> files = Files.walk(collectionsRoot, Integer.MAX_VALUE)) {
-            List<Path> jsonlFiles = files
-                    .filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".jsonl"))
-                    .toList();
-
-            fileCnt.addAndGet(jsonlFiles.size());
-
-            for (Path f : jsonlFiles) {
-                if (DEBUG) System.out.println("[FileConnector] reading " + f);
-
-                try (Stream<String> lines = readJsonlLinesSafely(f)) {
-                    for (String line : (Iterable<String>) lines::iterator) {
-                        lineCnt.incrementAndGet();
-
-                        RawPost rp = parseJsonSafely(line);
-                        if (rp == null) continue;
-                        parsedCnt.incrementAndGet();
+        List<Path> files = listJsonl(spec);
+        return files == null ? Stream.empty() : read(files, spec, null);
+    }
 
-                        // Lọc time
-                        boolean timeOk = withinTime(parseInstantSafe(rp.createdAt()), spec.from(), spec.to());
-                        if (!timeOk) continue;
-                        timeOkCnt.incrementAndGet();
+    /** Kết quả đọc tăng dần: bản ghi mới và watermark mới của từng file. */
+    public record Increment(Stream<RawPost> posts, List<FileWatermark> watermarks, boolean rewritten) {}
+
+    /**
+     * Ingest tăng dần: chỉ đọc file mới và phần được ghi thêm kể từ watermark trước
+     * (key là đường dẫn tương đối so với collectionsRoot).
+     *
+     * rewritten=true khi có file bị thu nhỏ, ghi đè hoặc bị xoá: kết quả cũ không còn cộng dồn
+     * được, bên gọi nên chạy lại với previous rỗng. Watermark mới chỉ nên được lưu sau khi
+     * đã xử lý xong posts.
+     * File nén chỉ được đọc cả file: đổi size/mtime là ghi đè, file chưa ghi xong (thiếu trailer/frame
+     * cuối) bị bỏ qua và không có mốc cho tới khi hoàn chỉnh.
+     */
+    public Increment fetchIncremental(QuerySpec spec, Map<String, FileWatermark> previous) {
+        List<Path> files = listJsonl(spec);
+        if (files == null) return new Increment(Stream.empty(), List.of(), false);
+        Map<String, FileWatermark> prev = previous != null ? previous : Map.of();
+
+        Map<Path, JsonlChunks.Range> limits = new HashMap<>();
+        List<FileWatermark> marks = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int changed = 0;
+        long newBytes = 0;
+        for (Path f : files) {
+            String key = collectionsRoot.relativize(f).toString().replace('\\', '/');
+            seen.add(key);
+            FileWatermark old = prev.get(key);
+            try {
+                long size = Files.size(f);
+                long mtime = Files.getLastModifiedTime(f).toMillis();
+                long from = 0;
+                // file nén được collector ghi lại từ đầu thành một stream (không ghi nối): mọi thay đổi
+                // size/mtime đều là ghi đè, và không có offset nào giữa stream để đọc tiếp
+                boolean compressed = JsonlCodec.isCompressed(f);
+                if (old != null) {
+                    boolean rewritten = compressed
+                            ? size != old.size() || mtime != old.mtime()
+                            : size < old.offset() || !Watermarks.hash(f, old.offset()).equals(old.hash());
+                    if (rewritten) {
+                        System.out.println("[FileConnector] incremental: file rewritten " + key);
+                        return new Increment(Stream.empty(), List.of(), true);
+                    }
+                    from = old.offset();
+                }
+                if (compressed && old == null && !Watermarks.isCompleteStream(f, size, mtime)) {
+                    // đang được ghi: chưa đọc, chưa ghi mốc; lượt sau đọc lại cả file
+                    System.out.println("[FileConnector] incremental: incomplete stream, skip " + key);
+                    limits.put(f, new JsonlChunks.Range(0, 0));
+                    continue;
+                }
+                long end = compressed ? Math.max(from, size) : Math.max(from, Watermarks.committedEnd(f, size));
+                limits.put(f, new JsonlChunks.Range(from, end));
+                if (end > from) { changed++; newBytes += end - from; }
+                String hash = (end == from && old != null) ? old.hash() : Watermarks.hash(f, end);
+                marks.add(new FileWatermark(key, size, end, mtime, hash));
+            } catch (IOException e) {
+                // giữ mốc cũ (nếu có), lần sau đọc lại
+                System.err.println("[FileConnector] incremental: cannot read " + f + " | " + e.getMessage());
+                limits.put(f, new JsonlChunks.Range(0, 0));
+                if (old != null) marks.add(old);
+            }
+        }
+        for (String key : prev.keySet()) {
+            if (!seen.contains(key)) {
+                System.out.println("[FileConnector] incremental: file removed " + key);
+                return new Increment(Stream.empty(), List.of(), true);
+            }
+        }
 
-                        // Lọc keyword (nếu có)
-                        boolean kwOk = (kws == null || kws.isEmpty())
-                                || matchByKeyword(normalizeVi(rp.text()), kws);
-                        if (!kwOk) continue;
-                        kwOkCnt.incrementAndGet();
+        if (DEBUG) System.out.println("[FileConnector] incremental | files=" + files.size()
+                + " | changed=" + changed + " | newKB=" + newBytes / 1024);
+        return new Increment(read(files, spec, limits), marks, false);
+    }
 
-                        out.add(rp);
+    /**
+     * Các file .jsonl (.jsonl.gz, .jsonl.zst) cần đọc (sắp theo đường dẫn); null nếu không đọc được thư mục.
+     * Mỗi thư mục con của collectionsRoot là một collection: chỉ duyệt các collection được
+     * chọn theo spec.collections(), và khi allDatasets=false thì bỏ qua collection mà
+     * dataset.yaml cho biết không thể khớp.
+     */
+    private List<Path> listJsonl(QuerySpec spec) {
+        if (collectionsRoot == null || !Files.isDirectory(collectionsRoot)) {
+            System.err.println("[FileConnector] collectionsRoot not found: " + collectionsRoot);
+            return null;
+        }
+        // Chỉ liệt kê đường dẫn; nội dung được đọc lười từng file, từng dòng.
+        List<Path> out = new ArrayList<>();
+        try (Stream<Path> top = Files.list(collectionsRoot)) {
+            for (Path p : top.toList()) {
+                if (Files.isDirectory(p)) {
+                    if (!selectCollection(p, spec)) continue;
+                    try (Stream<Path> files = Files.walk(p, Integer.MAX_VALUE)) {
+                        files.filter(FileConnector::isJsonl).forEach(out::add);
                     }
-                } catch (Exception e) {
-                    System.err.println("[FileConnector] read lines failed: " + f + " | " + e.getMessage());
+                } else if (isJsonl(p) && spec.collections().isEmpty()) {
+                    out.add(p);   // file nằm thẳng dưới root không thuộc collection nào
                 }
             }
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("[FileConnector] walk failed: " + e.getMessage());
+            return null;
         }
+        // Sắp theo đường dẫn để thứ tự bản ghi không phụ thuộc hệ điều hành.
+        out.sort(null);
+        return out;
+    }
 
-        if (DEBUG) {
-            System.out.println("[FileConnector] summary " +
-                    "| files=" + fileCnt.get() +
-                    " | lines=" + lineCnt.get() +
-                    " | parsed=" + parsedCnt.get() +
-                    " | timeOK=" + timeOkCnt.get() +
-                    " | kwOK=" + kwOkCnt.get() +
-                    " | result=" + out.size());
-            if (kws != null) System.out.println("[FileConnector] keywords=" + kws);
-            System.out.println("[FileConnector] root=" + collectionsRoot.toAbsolutePath());
+    private static boolean isJsonl(Path p) {
+        return JsonlCodec.of(p) != null && Files.isRegularFile(p);
+    }
+
+    private boolean selectCollection(Path dir, QuerySpec spec) {
+        DatasetManifest m = DatasetManifest.load(dir);
+        Set<String> wanted = spec.collections();
+        if (!wanted.isEmpty()) {
+            String dirName = dir.getFileName().toString();
+            boolean named = containsIgnoreCase(wanted, dirName)
+                    || (m != null && m.name() != null && containsIgnoreCase(wanted, m.name()));
+            if (!named) return false;
         }
+        if (spec.allDatasets() || m == null) return true;
+        boolean keep = m.mayMatch(spec);
+        if (!keep && DEBUG) System.out.println("[FileConnector] skip collection " + dir.getFileName()
+                + " (dataset.yaml: " + m.from() + ".." + m.to() + ", hints=" + m.keywordsHint() + ")");
+        return keep;
+    }
+
+    private static boolean containsIgnoreCase(Set<String> names, String s) {
+        for (String n : names) if (n.equalsIgnoreCase(s)) return true;
+        return false;
+    }
 
-        return out.stream();
+    /** limits: khoảng byte được phép đọc của từng file (null = cả file). */
+    private Stream<RawPost> read(List<Path> jsonlFiles, QuerySpec spec, Map<Path, JsonlChunks.Range> limits) {
+        final Set<String> kws = spec.keywords(); // keys đã normalize từ Pipeline
+        final Counters cnt = new Counters();
+        final LinePrefilter pre = new LinePrefilter(spec);
+        cnt.files.addAndGet(jsonlFiles.size());
+
+        Stream<RawPost> out = options.isParallel()
+                ? fetchParallel(jsonlFiles, spec, pre, cnt, limits)
+                // mỗi file (hoặc mỗi khoảng block theo chỉ mục) là một đoạn;
+                // flatMap chỉ lập kế hoạch/map file kế tiếp khi file trước đã duyệt xong
+                : jsonlFiles.stream()
+                        .flatMap(f -> plan(List.of(f), Long.MAX_VALUE, spec, cnt, limits).stream())
+                        .flatMap(c -> scanLazily(c, spec, pre, cnt));
+        return out.onClose(() -> { if (DEBUG) cnt.print(kws, collectionsRoot); });
+    }
+
+    /**
+     * Chia file thành đoạn; có chỉ mục thì chỉ lấy các khoảng block có thể khớp spec,
+     * có limits thì cắt thêm theo khoảng được phép đọc.
+     */
+    private List<JsonlChunks.Chunk> plan(List<Path> files, long splitBytes, QuerySpec spec, Counters cnt,
+                                         Map<Path, JsonlChunks.Range> limits) {
+        boolean restricted = spec.from().isPresent() || spec.to().isPresent()
+                || (spec.keywords() != null && !spec.keywords().isEmpty());
+        boolean useIndex = options.indexed() && restricted;
+        if (!useIndex && limits == null) return JsonlChunks.plan(files, splitBytes);
+
+        return JsonlChunks.plan(files, splitBytes, f -> {
+            List<JsonlChunks.Range> rs = useIndex ? indexRanges(f, spec, cnt) : null;
+            return limits == null ? rs : JsonlChunks.clip(rs, limits.get(f));
+        });
+    }
+
+    /** Khoảng block có thể khớp theo chỉ mục; null nếu không có chỉ mục (đọc cả file). */
+    private static List<JsonlChunks.Range> indexRanges(Path f, QuerySpec spec, Counters cnt) {
+        if (JsonlCodec.isCompressed(f)) return null;
+        JsonlIndex idx = JsonlIndex.forFile(f);
+        if (idx == null) return null;
+        List<JsonlChunks.Range> rs = idx.ranges(spec);
+        long kept = 0;
+        for (JsonlChunks.Range r : rs) kept += r.end() - r.start();
+        try { cnt.skippedBytes.addAndGet(Math.max(0, Files.size(f) - kept)); }
+        catch (IOException ignore) {}
+        return rs;
     }
 
-    /* ========================== Helpers / parsing ========================== */
+    /**
+     * Parse + lọc time/keyword dòng hiện tại của scanner; null nếu bị loại.
+     * Lọc sơ bộ trên byte thô trước: dòng chắc chắn bị loại thì không parse; điều kiện
+     * đã được quyết định chắc chắn thì không kiểm tra lại.
+     */
+    private RawPost acceptLine(JsonlScanner sc, QuerySpec spec, LinePrefilter pre, Counters cnt) {
+        cnt.lines.incrementAndGet();
+
+        int verdict = sc.prefilter(pre);
+        if (verdict == LinePrefilter.REJECT) { cnt.pushdown.incrementAndGet(); return null; }
+
+        RawPost rp = sc.parseLine();
+        if (rp == null) return null;
+        cnt.parsed.incrementAndGet();
+
+        // Lọc time
+        boolean timeKnown = (verdict & LinePrefilter.TIME_OK) != 0;
+        if (!timeKnown && !withinTime(Optional.ofNullable(sc.timestamps.parse(rp.createdAt())), spec.from(), spec.to())) return null;
+        cnt.timeOk.incrementAndGet();
+
+        // Lọc keyword (nếu có)
+        Set<String> kws = spec.keywords();
+        boolean kwOk = (verdict & LinePrefilter.KEYWORD_OK) != 0
+                || (kws == null || kws.isEmpty()) || matchByKeyword(VnFold.foldAlnum(rp.text()), kws);
+        if (!kwOk) return null;
+        cnt.kwOk.incrementAndGet();
+
+        // textNorm tính ngay trên luồng đọc để tiền xử lý không phải chuẩn hoá lại
+        if (options.textNorm()) rp.meta().put(TextNorm.META_KEY, TextNorm.normalize(rp.text()));
+        return rp;
+    }
 
-    private Stream<String> readJsonlLinesSafely(Path file) throws IOException {
-        BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8);
-        return br.lines()
-                 .filter(s -> s != null && !s.isBlank())
-                 .onClose(() -> { try { br.close(); } catch (IOException ignore) {} });
+    /* ========================== Đọc song song ========================== */
+
+    /**
+     * Chia các file thành đoạn byte, parse trên một pool cố định. Chỉ giữ tối đa
+     * 2 x workers đoạn đang xử lý nên bộ nhớ vẫn bị chặn. Với ordered=true kết quả
+     * được trả theo đúng thứ tự đoạn (tức thứ tự file, rồi vị trí trong file).
+     */
+    private Stream<RawPost> fetchParallel(List<Path> files, QuerySpec spec, LinePrefilter pre, Counters cnt,
+                                          Map<Path, JsonlChunks.Range> limits) {
+        List<JsonlChunks.Chunk> chunks = plan(files, options.splitBytes(), spec, cnt, limits);
+        if (DEBUG) System.out.println("[FileConnector] parallel ingest | workers=" + options.workers()
+                + " | chunks=" + chunks.size() + " | ordered=" + options.ordered());
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(options.workers(), r -> {
+            Thread t = new Thread(r, "file-ingest-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        ChunkResults results = new ChunkResults(chunks, pool, c -> readChunk(c, spec, pre, cnt),
+                options.ordered(), options.workers() * 2);
+        return StreamSupport.stream(results, false)
+                .flatMap(List::stream)
+                .onClose(pool::shutdownNow);
     }
 
-    private RawPost parseJsonSafely(String line) {
+    private List<RawPost> readChunk(JsonlChunks.Chunk c, QuerySpec spec, LinePrefilter pre, Counters cnt) {
+        List<RawPost> out = new ArrayList<>();
         try {
-            JsonNode n = mapper.readTree(line);
-
-            String id        = stringOr(nodeGet(n, "id"), uuid());
-            String text      = stringOr(nodeGet(n, "text"), "");
-            // Ưu tiên ts, sau đó createdAt
-            String createdAt = stringOr(nodeGet(n, "ts"), stringOr(nodeGet(n, "createdAt"), null));
-
-            String platform  = stringOr(nodeGet(n, "platform"), null);
-            String lang      = stringOr(nodeGet(n, "lang"), null);
-            String userLoc   = stringOr(nodeGet(n, "userLoc"), null);
-
-            Map<String, Object> meta = new LinkedHashMap<>();
-            putIfPresent(meta, "type",     nodeGet(n, "type"));
-            putIfPresent(meta, "threadId", nodeGet(n, "threadId"));
-            putIfPresent(meta, "replyTo",  nodeGet(n, "replyTo"));
-            if (n.has("hashtags") && n.get("hashtags").isArray()) {
-                List<String> tags = new ArrayList<>();
-                for (JsonNode t : n.get("hashtags")) {
-                    if (t != null && !t.isNull()) tags.add(t.asText());
+            if (DEBUG && c.start() == 0) System.out.println("[FileConnector] reading " + c.file());
+            try (JsonlScanner sc = new JsonlScanner(c)) {
+                while (sc.nextLine()) {
+                    RawPost rp = acceptLine(sc, spec, pre, cnt);
+                    if (rp != null) out.add(rp);
                 }
-                meta.put("hashtags", tags);
             }
-
-            return new RawPost(id, platform, text, lang, createdAt, userLoc, meta);
-        } catch (Exception e) {
-            return null;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("[FileConnector] read lines failed: " + c.file() + " | " + e.getMessage());
         }
+        return out;
     }
 
-    private static String nodeGet(JsonNode n, String field) {
-        if (n == null || field == null) return null;
-        JsonNode v = n.get(field);
-        if (v == null || v.isNull()) return null;
-        String s = v.asText();
-        return (s != null && !s.isBlank()) ? s : null;
-    }
+    /** Trả kết quả từng đoạn theo nhu cầu, nộp thêm việc khi một đoạn được lấy ra. */
+    private static final class ChunkResults extends Spliterators.AbstractSpliterator<List<RawPost>> {
+        private final Iterator<JsonlChunks.Chunk> pending;
+        private final ExecutorService pool;
+        private final Function<JsonlChunks.Chunk, List<RawPost>> task;
+        private final boolean ordered;
+        private final int window;
+        private final ArrayDeque<Future<List<RawPost>>> inFlight = new ArrayDeque<>();
+        private final ExecutorCompletionService<List<RawPost>> done;
+        private int submitted, taken;
+
+        ChunkResults(List<JsonlChunks.Chunk> chunks, ExecutorService pool,
+                     Function<JsonlChunks.Chunk, List<RawPost>> task, boolean ordered, int window) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.pending = chunks.iterator();
+            this.pool = pool;
+            this.task = task;
+            this.ordered = ordered;
+            this.window = Math.max(1, window);
+            this.done = new ExecutorCompletionService<>(pool);
+        }
 
-    private static void putIfPresent(Map<String, Object> m, String k, String v) {
-        if (v != null && !v.isBlank()) m.put(k, v);
+        private void refill() {
+            while (submitted - taken < window && pending.hasNext()) {
+                JsonlChunks.Chunk c = pending.next();
+                if (ordered) inFlight.add(pool.submit(() -> task.apply(c)));
+                else done.submit(() -> task.apply(c));
+                submitted++;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<RawPost>> action) {
+            refill();
+            if (taken == submitted) {
+                pool.shutdown();
+                return false;
+            }
+            List<RawPost> batch;
+            try {
+                batch = ordered ? inFlight.poll().get() : done.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                return false;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("[FileConnector] chunk failed: " + e.getCause(), e.getCause());
+            }
+            taken++;
+            refill();
+            action.accept(batch);
+            return true;
+        }
     }
 
-    private static String stringOr(String v, String def) {
-        return (v == null || v.isBlank()) ? def : v;
+    /** Bộ đếm debug, in ra khi stream được đóng (Pipeline duyệt xong). */
+    private static final class Counters {
+        final AtomicInteger files  = new AtomicInteger();
+        final AtomicInteger lines  = new AtomicInteger();
+        final AtomicInteger pushdown = new AtomicInteger();   // loại ngay trên byte thô
+        final AtomicInteger parsed = new AtomicInteger();
+        final AtomicInteger timeOk = new AtomicInteger();
+        final AtomicInteger kwOk   = new AtomicInteger();
+        final AtomicLong skippedBytes = new AtomicLong();    // bỏ qua nhờ chỉ mục
+
+        void print(Set<String> kws, Path root) {
+            System.out.println("[FileConnector] summary " +
+                    "| files=" + files.get() +
+                    " | indexSkippedKB=" + skippedBytes.get() / 1024 +
+                    " | lines=" + lines.get() +
+                    " | prefiltered=" + pushdown.get() +
+                    " | parsed=" + parsed.get() +
+                    " | timeOK=" + timeOk.get() +
+                    " | kwOK=" + kwOk.get() +
+                    " | result=" + kwOk.get());
+            if (kws != null) System.out.println("[FileConnector] keywords=" + kws);
+            System.out.println("[FileConnector] root=" + root.toAbsolutePath());
+        }
     }
 
-    private static String uuid() {
-        return "gen_" + UUID.randomUUID();
+    /* ========================== Đọc tuần tự ========================== */
+
+    /**
+     * Bản ghi của một đoạn, đọc lười: file chỉ được map khi bắt đầu duyệt.
+     * Lỗi đọc chỉ dừng file đó, không làm hỏng cả lượt chạy.
+     */
+    private Stream<RawPost> scanLazily(JsonlChunks.Chunk c, QuerySpec spec, LinePrefilter pre, Counters cnt) {
+        var it = new Spliterators.AbstractSpliterator<RawPost>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private JsonlScanner sc;
+            private boolean done;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super RawPost> action) {
+                if (done) return false;
+                try {
+                    if (sc == null) {
+                        if (DEBUG && c.start() == 0) System.out.println("[FileConnector] reading " + c.file());
+                        sc = new JsonlScanner(c);
+                    }
+                    while (sc.nextLine()) {
+                        RawPost rp = acceptLine(sc, spec, pre, cnt);
+                        if (rp != null) { action.accept(rp); return true; }
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("[FileConnector] read lines failed: " + c.file() + " | " + e.getMessage());
+                }
+                close();
+                return false;
+            }
+
+            void close() {
+                done = true;
+                if (sc != null) sc.close();
+                sc = null;
+            }
+        };
+        // file nén giữ luồng mở: đóng cả khi bên gọi dừng giữa chừng
+        return StreamSupport.stream(it, false).onClose(it::close);
     }
 
     /* ========================== Keyword & time helpers ========================== */
@@ -172,17 +440,6 @@ public class FileConnector implements SocialConnector {
         return false;
     }
 
-    private static String normalizeVi(String s) {
-        if (s == null) return "";
-        String lower = s.toLowerCase(Locale.ROOT).trim();
-        String nfd = java.text.Normalizer.normalize(lower, java.text.Normalizer.Form.NFD);
-        return nfd.replaceAll("\\p{M}+", "")
-                  .replace("đ", "d").replace("Đ", "D")
-                  .replaceAll("[^a-z0-9#\\s]", " ")
-                  .replaceAll("\\s+", " ")
-                  .trim();
-    }
-
     private static boolean withinTime(Optional<Instant> tsOpt,
                                       Optional<Instant> fromOpt,
                                       Optional<Instant> toOpt) {
@@ -192,34 +449,4 @@ public class FileConnector implements SocialConnector {
         boolean leTo   = toOpt.map(t -> !ts.isAfter(t)).orElse(true);
         return geFrom && leTo;
     }
-
-    private static Optional<Instant> parseInstantSafe(String s) {
-        if (s == null || s.isBlank()) return Optional.empty();
-        String x = s.trim();
-
-        if (x.matches("^\\d{13}$")) {
-            try { return Optional.of(Instant.ofEpochMilli(Long.parseLong(x))); }
-            catch (NumberFormatException ignore) {}
-        }
-        if (x.matches("^\\d{10}$")) {
-            try { return Optional.of(Instant.ofEpochSecond(Long.parseLong(x))); }
-            catch (NumberFormatException ignore) {}
-        }
-        try { return Optional.of(Instant.parse(x)); }
-        catch (DateTimeParseException ignore) {}
-
-        try {
-            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            LocalDateTime ldt = LocalDateTime.parse(x, fmt);
-            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignore) {}
-
-        try {
-            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
-            LocalDateTime ldt = LocalDateTime.parse(x, fmt);
-            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignore) {}
-
-        return Optional.empty();
-    }
 }
\ No newline at end of file
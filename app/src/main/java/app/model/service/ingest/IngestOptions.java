@@ -0,0 +1,48 @@
+package app.model.service.ingest;
+
+/**
+ * Tuỳ chọn đọc của FileConnector.
+ *
+ * - workers    : số luồng đọc/parse; 1 = tuần tự trên luồng gọi (mặc định).
+ * - ordered    : giữ thứ tự theo file và theo vị trí trong file (kết quả tái lập được).
+ * - splitBytes : file lớn hơn ngưỡng này được cắt thành nhiều đoạn byte (căn theo ký tự xuống dòng).
+ * - indexed    : dùng/duy trì chỉ mục "<file>.jsonl.idx" để bỏ qua các block ngoài cửa sổ thời gian
+ *                hoặc không thể chứa keyword (xem JsonlIndex).
+ * - textNorm   : tính textNorm (TextNorm.normalize) ngay lúc đọc, trên luồng đọc, và gắn vào
+ *                RawPost.meta để tiền xử lý dùng lại thay vì chuẩn hoá lại.
+ */
+public record IngestOptions(int workers, boolean ordered, long splitBytes, boolean indexed, boolean textNorm) {
+
+    public static final long DEFAULT_SPLIT_BYTES = 8L * 1024 * 1024;
+    private static final long MIN_SPLIT_BYTES = 64L * 1024;
+
+    public static final IngestOptions SEQUENTIAL = new IngestOptions(1, true, DEFAULT_SPLIT_BYTES, false, false);
+
+    public IngestOptions {
+        workers = Math.max(1, workers);
+        splitBytes = Math.max(MIN_SPLIT_BYTES, splitBytes);
+    }
+
+    public static IngestOptions parallel(int workers, boolean ordered) {
+        return new IngestOptions(workers, ordered, DEFAULT_SPLIT_BYTES, false, false);
+    }
+
+    /** Số luồng theo số nhân CPU, giữ thứ tự. */
+    public static IngestOptions parallel() {
+        return parallel(Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    public IngestOptions withSplitBytes(long bytes) {
+        return new IngestOptions(workers, ordered, bytes, indexed, textNorm);
+    }
+
+    public IngestOptions withIndex(boolean on) {
+        return new IngestOptions(workers, ordered, splitBytes, on, textNorm);
+    }
+
+    public IngestOptions withTextNorm(boolean on) {
+        return new IngestOptions(workers, ordered, splitBytes, indexed, on);
+    }
+
+    public boolean isParallel() { return workers > 1; }
+}
\ No newline at end of file
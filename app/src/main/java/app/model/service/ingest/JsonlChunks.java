@@ -0,0 +1,78 @@
+package app.model.service.ingest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Chia file JSONL thành các đoạn byte để đọc song song.
+ *
+ * Quy ước: một dòng thuộc về đoạn chứa byte đầu tiên của nó. Đoạn bắt đầu giữa dòng thì bỏ
+ * phần dư tới ký tự xuống dòng kế tiếp; dòng cuối được đọc quá biên cho tới hết dòng
+ * (xem JsonlScanner). Nhờ vậy không cần đọc trước để tìm biên khi lập kế hoạch.
+ */
+final class JsonlChunks {
+
+    private JsonlChunks() {}
+
+    /** Một đoạn [start, end) của file; seq là thứ tự toàn cục để ghép kết quả. */
+    record Chunk(int seq, Path file, long start, long end) {}
+
+    /** Khoảng byte [start, end) cần đọc trong một file; start là đầu dòng. */
+    record Range(long start, long end) {}
+
+    static List<Chunk> plan(List<Path> files, long splitBytes) {
+        return plan(files, splitBytes, f -> null);
+    }
+
+    /**
+     * Như plan(files, splitBytes) nhưng chỉ đọc các khoảng byte do ranges trả về
+     * (null = cả file, rỗng = bỏ qua file).
+     */
+    static List<Chunk> plan(List<Path> files, long splitBytes, Function<Path, List<Range>> ranges) {
+        List<Chunk> out = new ArrayList<>();
+        for (Path f : files) {
+            List<Range> rs = ranges.apply(f);
+            if (rs == null) {
+                long size;
+                try { size = Files.size(f); }
+                catch (IOException e) {
+                    System.err.println("[FileConnector] size failed: " + f + " | " + e.getMessage());
+                    continue;
+                }
+                rs = List.of(new Range(0, size));
+            }
+            for (Range r : rs) split(out, f, r.start(), r.end(), splitBytes);
+        }
+        return out;
+    }
+
+    /**
+     * Giao các khoảng rs (null = cả file) với khoảng limit (null = không giới hạn).
+     * Cả hai đều bắt đầu ở đầu dòng nên phần giao cũng vậy.
+     */
+    static List<Range> clip(List<Range> rs, Range limit) {
+        if (limit == null) return rs;
+        if (rs == null) return limit.end() > limit.start() ? List.of(limit) : List.of();
+        List<Range> out = new ArrayList<>();
+        for (Range r : rs) {
+            long s = Math.max(r.start(), limit.start()), e = Math.min(r.end(), limit.end());
+            if (e > s) out.add(new Range(s, e));
+        }
+        return out;
+    }
+
+    /** File nén không chia được: offset nén không phải biên dòng. */
+    private static void split(List<Chunk> out, Path f, long start, long end, long splitBytes) {
+        if (end - start <= splitBytes || JsonlCodec.isCompressed(f)) {
+            out.add(new Chunk(out.size(), f, start, end));
+            return;
+        }
+        for (long s = start; s < end; s += splitBytes) {
+            out.add(new Chunk(out.size(), f, s, Math.min(end, s + splitBytes)));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package app.model.service.ingest;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Định dạng nén của file JSONL, nhận theo đuôi tên file: .jsonl, .jsonl.gz, .jsonl.zst.
+ *
+ * File nén được giải nén kiểu streaming khi đọc; không map, không chia đoạn và không có
+ * chỉ mục phụ được vì offset byte nén không ứng với biên dòng. Nhiều member gzip/frame zstd
+ * nối tiếp nhau trong một file vẫn đọc được liên tục.
+ */
+enum JsonlCodec {
+    PLAIN(".jsonl"),
+    GZIP(".jsonl.gz"),
+    ZSTD(".jsonl.zst");
+
+    private static final int BUF = 64 * 1024;
+
+    final String suffix;
+
+    JsonlCodec(String suffix) { this.suffix = suffix; }
+
+    /** Codec theo tên file; null nếu không phải file JSONL. */
+    static JsonlCodec of(Path file) {
+        Path name = file.getFileName();
+        if (name == null) return null;
+        String n = name.toString();
+        for (JsonlCodec c : values()) if (n.endsWith(c.suffix)) return c;
+        return null;
+    }
+
+    static boolean isCompressed(Path file) {
+        JsonlCodec c = of(file);
+        return c != null && c != PLAIN;
+    }
+
+    /** Bọc luồng byte thô của file thành luồng JSONL đã giải nén. */
+    InputStream decode(InputStream raw) throws IOException {
+        return switch (this) {
+            case PLAIN -> new BufferedInputStream(raw, BUF);
+            case GZIP  -> new GZIPInputStream(raw, BUF);
+            case ZSTD  -> new BufferedInputStream(new ZstdInputStream(new BufferedInputStream(raw, BUF)), BUF);
+        };
+    }
+}
@@ -0,0 +1,276 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import app.util.TimestampParser;
+import app.util.VnFold;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục phụ (sidecar) của một file JSONL, lưu tại "<file>.idx" ngay cạnh file.
+ *
+ * File được chia thành các block ~32 KB theo biên dòng. Mỗi block lưu:
+ * - khoảng byte [start, end)
+ * - ts nhỏ nhất/lớn nhất (epoch ms; dòng không có/không đọc được thời gian làm block luôn khớp)
+ * - bitmap các trigram (băm) của text đã chuẩn hoá
+ *
+ * Lọc keyword là so khớp chuỗi con trên text chuẩn hoá nên dùng trigram thay vì token:
+ * dòng chứa keyword thì block chứa mọi trigram của keyword. Chỉ mục chỉ loại block chắc chắn
+ * không khớp, các block còn lại vẫn đi qua bộ lọc đầy đủ nên kết quả không đổi.
+ *
+ * Chỉ mục bị bỏ và dựng lại khi kích thước hoặc mtime của file thay đổi.
+ */
+final class JsonlIndex {
+
+    static final String SUFFIX = ".idx";
+    static final long BLOCK_BYTES = 32L * 1024;
+
+    private static final int MAGIC = 0x4A494458;   // "JIDX"
+    private static final int VERSION = 1;
+    private static final int GRAM_BITS = 1 << 14;
+    private static final int GRAM_WORDS = GRAM_BITS / 64;
+
+    /** Dùng lại trong cùng tiến trình, tránh đọc lại file .idx mỗi lượt chạy. */
+    private static final Map<Path, JsonlIndex> CACHE = new ConcurrentHashMap<>();
+
+    private final long size, mtime;
+    private final long[] start, end, minTs, maxTs;
+    private final long[][] grams;
+
+    private JsonlIndex(long size, long mtime, long[] start, long[] end,
+                       long[] minTs, long[] maxTs, long[][] grams) {
+        this.size = size;
+        this.mtime = mtime;
+        this.start = start;
+        this.end = end;
+        this.minTs = minTs;
+        this.maxTs = maxTs;
+        this.grams = grams;
+    }
+
+    int blocks() { return start.length; }
+
+    /** Chỉ mục còn hợp lệ của file (từ bộ nhớ, từ đĩa, hoặc dựng mới); null nếu không dựng được hoặc file nén. */
+    static JsonlIndex forFile(Path file) {
+        if (JsonlCodec.isCompressed(file)) return null;
+        Path key = file.toAbsolutePath().normalize();
+        long size, mtime;
+        try {
+            size = Files.size(file);
+            mtime = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+
+        JsonlIndex idx = CACHE.get(key);
+        if (idx != null && idx.size == size && idx.mtime == mtime) return idx;
+
+        Path side = sidecar(file);
+        idx = load(side, size, mtime);
+        if (idx == null) {
+            try {
+                idx = build(file, size, mtime);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("[FileConnector] index build failed: " + file + " | " + e.getMessage());
+                return null;
+            }
+            save(idx, side);
+        }
+        CACHE.put(key, idx);
+        return idx;
+    }
+
+    static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName() + SUFFIX);
+    }
+
+    /** Các khoảng byte có thể chứa bản ghi thoả spec; block liền nhau được gộp lại. */
+    List<JsonlChunks.Range> ranges(QuerySpec spec) {
+        long from = spec.from().map(JsonlIndex::floorMillis).orElse(Long.MIN_VALUE);
+        long to   = spec.to().map(JsonlIndex::ceilMillis).orElse(Long.MAX_VALUE);
+        int[][] keyGrams = keyGrams(spec.keywords());
+
+        List<JsonlChunks.Range> out = new ArrayList<>();
+        long runStart = -1, runEnd = -1;
+        for (int b = 0; b < start.length; b++) {
+            boolean hit = maxTs[b] >= from && minTs[b] <= to && matchesAny(grams[b], keyGrams);
+            if (!hit) continue;
+            if (runStart >= 0 && runEnd == start[b]) {
+                runEnd = end[b];
+            } else {
+                if (runStart >= 0) out.add(new JsonlChunks.Range(runStart, runEnd));
+                runStart = start[b];
+                runEnd = end[b];
+            }
+        }
+        if (runStart >= 0) out.add(new JsonlChunks.Range(runStart, runEnd));
+        return out;
+    }
+
+    /* ========================== Dựng ========================== */
+
+    private static JsonlIndex build(Path file, long size, long mtime) throws IOException {
+        List<long[]> blocks = new ArrayList<>();   // {start, end, minTs, maxTs}
+        List<long[]> gramList = new ArrayList<>();
+
+        long[] cur = {0, 0, Long.MAX_VALUE, Long.MIN_VALUE};
+        long[] curGrams = new long[GRAM_WORDS];
+
+        try (JsonlScanner sc = new JsonlScanner(new JsonlChunks.Chunk(0, file, 0, size))) {
+            while (sc.nextLine()) {
+                long off = sc.lineOffset();
+                if (off - cur[0] >= BLOCK_BYTES) {
+                    cur[1] = off;
+                    blocks.add(cur);
+                    gramList.add(curGrams);
+                    cur = new long[]{off, 0, Long.MAX_VALUE, Long.MIN_VALUE};
+                    curGrams = new long[GRAM_WORDS];
+                }
+                RawPost rp = sc.parseLine();
+                if (rp == null) continue;   // dòng lỗi luôn bị loại khi đọc, không cần đánh chỉ mục
+
+                long ts = timestampMillis(rp.createdAt());
+                cur[2] = Math.min(cur[2], ts == Long.MIN_VALUE ? Long.MIN_VALUE : ts);
+                cur[3] = Math.max(cur[3], ts == Long.MIN_VALUE ? Long.MAX_VALUE : ts);
+
+                addGrams(VnFold.foldAlnum(rp.text()), curGrams);
+            }
+        }
+        if (size > cur[0] || blocks.isEmpty()) {
+            cur[1] = size;
+            blocks.add(cur);
+            gramList.add(curGrams);
+        }
+
+        int n = blocks.size();
+        long[] s = new long[n], e = new long[n], lo = new long[n], hi = new long[n];
+        for (int i = 0; i < n; i++) {
+            long[] b = blocks.get(i);
+            s[i] = b[0]; e[i] = b[1]; lo[i] = b[2]; hi[i] = b[3];
+        }
+        return new JsonlIndex(size, mtime, s, e, lo, hi, gramList.toArray(new long[0][]));
+    }
+
+    /** Epoch ms của thời gian bản ghi; Long.MIN_VALUE nếu không có (bản ghi luôn qua lọc time). */
+    private static long timestampMillis(String when) {
+        return TimestampParser.parseSafe(when)
+                .map(t -> {
+                    try { return t.toEpochMilli(); }
+                    catch (ArithmeticException ex) { return Long.MIN_VALUE; }
+                })
+                .orElse(Long.MIN_VALUE);
+    }
+
+    private static long floorMillis(Instant t) {
+        try { return t.toEpochMilli(); }
+        catch (ArithmeticException e) { return t.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE; }
+    }
+
+    private static long ceilMillis(Instant t) {
+        long ms = floorMillis(t);
+        return (t.getNano() % 1_000_000 != 0 && ms != Long.MAX_VALUE) ? ms + 1 : ms;
+    }
+
+    /* ========================== Trigram ========================== */
+
+    private static int gram(char a, char b, char c) {
+        int h = ((a << 16) | (b << 8) | c) * 0x9E3779B1;
+        return h >>> (32 - 14);
+    }
+
+    private static void addGrams(String s, long[] bits) {
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            int g = gram(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+            bits[g >>> 6] |= 1L << g;
+        }
+    }
+
+    /** null = không lọc keyword; phần tử null = keyword quá ngắn, không loại được block nào. */
+    private static int[][] keyGrams(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) return null;
+        int[][] out = new int[keys.size()][];
+        int i = 0;
+        for (String k : keys) {
+            if (k.length() >= 3) {
+                int[] g = new int[k.length() - 2];
+                for (int j = 0; j < g.length; j++) g[j] = gram(k.charAt(j), k.charAt(j + 1), k.charAt(j + 2));
+                out[i] = g;
+            }
+            i++;
+        }
+        return out;
+    }
+
+    private static boolean matchesAny(long[] bits, int[][] keyGrams) {
+        if (keyGrams == null) return true;
+        outer:
+        for (int[] g : keyGrams) {
+            if (g == null) return true;
+            for (int x : g) if ((bits[x >>> 6] & (1L << x)) == 0) continue outer;
+            return true;
+        }
+        return false;
+    }
+
+    /* ========================== Lưu / đọc ========================== */
+
+    private static void save(JsonlIndex idx, Path side) {
+        Path tmp = side.resolveSibling(side.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(idx.size);
+            out.writeLong(idx.mtime);
+            out.writeLong(BLOCK_BYTES);
+            out.writeInt(idx.blocks());
+            for (int b = 0; b < idx.blocks(); b++) {
+                out.writeLong(idx.start[b]);
+                out.writeLong(idx.end[b]);
+                out.writeLong(idx.minTs[b]);
+                out.writeLong(idx.maxTs[b]);
+                for (long w : idx.grams[b]) out.writeLong(w);
+            }
+        } catch (IOException e) {
+            // thư mục chỉ đọc: vẫn dùng chỉ mục trong bộ nhớ cho lượt này
+            System.err.println("[WARN] cannot write index " + side + " | " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+            return;
+        }
+        try {
+            Files.move(tmp, side, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try { Files.move(tmp, side, StandardCopyOption.REPLACE_EXISTING); }
+            catch (IOException ex) { System.err.println("[WARN] cannot write index " + side + " | " + ex.getMessage()); }
+        }
+    }
+
+    /** null nếu chưa có, hỏng, khác phiên bản hoặc đã cũ so với file dữ liệu. */
+    private static JsonlIndex load(Path side, long size, long mtime) {
+        if (!Files.isRegularFile(side)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(side)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (in.readLong() != size || in.readLong() != mtime || in.readLong() != BLOCK_BYTES) return null;
+            int n = in.readInt();
+            if (n < 0 || n > size / 16 + 1) return null;
+            long[] s = new long[n], e = new long[n], lo = new long[n], hi = new long[n];
+            long[][] g = new long[n][GRAM_WORDS];
+            for (int b = 0; b < n; b++) {
+                s[b] = in.readLong();
+                e[b] = in.readLong();
+                lo[b] = in.readLong();
+                hi[b] = in.readLong();
+                for (int w = 0; w < GRAM_WORDS; w++) g[b][w] = in.readLong();
+            }
+            return new JsonlIndex(size, mtime, s, e, lo, hi, g);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
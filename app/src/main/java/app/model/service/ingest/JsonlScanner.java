@@ -0,0 +1,350 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import app.util.TimestampParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Đọc một đoạn JSONL bằng memory-mapping, tìm biên dòng ngay trên buffer đã map và
+ * dùng JsonParser (streaming) để lấy đúng các field cần cho RawPost, không dựng cây JsonNode.
+ *
+ * Mỗi dòng chỉ được chép một lần vào mảng byte dùng lại (Jackson không parse trực tiếp
+ * từ ByteBuffer ở chế độ đồng bộ), không tạo String cho cả dòng.
+ *
+ * Ngữ nghĩa giữ như bản readTree cũ: chỉ xét field cấp gốc, key trùng thì lấy giá trị sau,
+ * số được đổi sang chuỗi như JsonNode.asText(), dòng JSON lỗi bị bỏ qua (null).
+ * File nén (.jsonl.gz/.jsonl.zst) không map được: scanner giải nén kiểu streaming từ offset
+ * start của đoạn (đầu một member/frame) tới hết file, lineOffset() khi đó là offset sau giải nén.
+ * File thường được map theo cửa sổ tối đa WINDOW byte (MappedByteBuffer chỉ tới 2 GB); hết cửa sổ
+ * thì map tiếp từ đầu dòng đang đọc dở, nên một đoạn dài bao nhiêu cũng đọc hết.
+ * Không an toàn đa luồng; mỗi đoạn dùng một scanner riêng.
+ */
+final class JsonlScanner implements AutoCloseable {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** Kích thước tối đa của một lần map. */
+    static final long WINDOW = 1L << 30;
+
+    private final JsonlChunks.Chunk chunk;
+    private final long window;
+    private final long size;        // kích thước file lúc mở
+    private MappedByteBuffer buf;   // null với file nén
+    private long base;              // offset trong file của buf[0]
+    private int pos;                // vị trí đọc hiện tại trong buf
+
+    private final InputStream in;   // chỉ với file nén
+    private final byte[] inBuf;
+    private int inPos, inLen;
+    private long inOffset;          // số byte đã giải nén
+
+    private byte[] line = new byte[512];
+    private int lineLen;
+    private long lineOffset;
+    private final LinePrefilter.Scratch scratch = new LinePrefilter.Scratch();
+    /** Nhớ dạng thời gian của file này (mỗi scanner chỉ đọc một file). */
+    final TimestampParser timestamps = new TimestampParser();
+
+    JsonlScanner(JsonlChunks.Chunk chunk) throws IOException {
+        this(chunk, WINDOW);
+    }
+
+    /** window nhỏ chỉ để thử việc chuyển cửa sổ. */
+    JsonlScanner(JsonlChunks.Chunk chunk, long window) throws IOException {
+        this.chunk = chunk;
+        this.window = Math.min(window, Integer.MAX_VALUE - 8);
+        JsonlCodec codec = JsonlCodec.of(chunk.file());
+        if (codec != null && codec != JsonlCodec.PLAIN) {
+            FileChannel ch = FileChannel.open(chunk.file(), StandardOpenOption.READ);
+            try {
+                ch.position(chunk.start());
+                this.in = codec.decode(Channels.newInputStream(ch));
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+            this.inBuf = new byte[64 * 1024];
+            this.size = 0;
+            return;
+        }
+        this.in = null;
+        this.inBuf = null;
+        this.size = Files.size(chunk.file());
+        // Map từ byte trước start để biết đoạn có bắt đầu giữa dòng hay không
+        remap(Math.max(0, Math.min(chunk.start(), size) - 1));
+        if (chunk.start() > 0 && buf.limit() > 0) {
+            byte prev = buf.get(0);
+            pos = 1;
+            if (prev != '\n' && prev != '\r') skipRestOfLine();
+        }
+    }
+
+    /** Sang dòng không trống kế tiếp thuộc đoạn; false khi hết đoạn. */
+    boolean nextLine() {
+        if (in != null) return nextStreamLine();
+        while (true) {
+            // dòng bắt đầu tại vị trí >= end thuộc về đoạn sau
+            if (!ensure() || base + pos >= chunk.end()) return false;
+
+            int start = pos;
+            int limit = buf.limit();
+            boolean asciiText = false, nonAscii = false;
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == '\n' || b == '\r') break;
+                if (b < 0) nonAscii = true;
+                else if (!asciiText && !isAsciiSpace(b)) asciiText = true;
+                pos++;
+            }
+            if (pos == limit && base + limit < size) {
+                // dòng bị cửa sổ cắt ngang: map lại từ đầu dòng rồi đọc lại
+                if (start == 0) throw new UncheckedIOException(new IOException(
+                        "line longer than " + window + " bytes at offset " + base + " in " + chunk.file()));
+                slide(base + start);
+                continue;
+            }
+            if (!asciiText && !nonAscii) {   // dòng trống
+                consumeTerminator();
+                continue;
+            }
+            lineLen = pos - start;
+            lineOffset = base + start;
+            if (line.length < lineLen) line = new byte[Math.max(lineLen, line.length * 2)];
+            buf.get(start, line, 0, lineLen);
+            consumeTerminator();   // có thể map cửa sổ kế tiếp: chép dòng trước
+            // Chỉ có khoảng trắng Unicode (hiếm): kiểm tra như String.isBlank()
+            if (!asciiText && new String(line, 0, lineLen, StandardCharsets.UTF_8).isBlank()) continue;
+            return true;
+        }
+    }
+
+    /** nextLine() cho file nén: gom từng dòng từ luồng đã giải nén; đóng luồng khi hết. */
+    private boolean nextStreamLine() {
+        try {
+            while (true) {
+                if (inPos >= inLen && !refill()) { in.close(); return false; }
+                lineOffset = inOffset;
+                lineLen = 0;
+                boolean asciiText = false, nonAscii = false, terminated = false;
+                while (!terminated) {
+                    if (inPos >= inLen && !refill()) break;
+                    int start = inPos;
+                    while (inPos < inLen) {
+                        byte b = inBuf[inPos];
+                        if (b == '\n' || b == '\r') { terminated = true; break; }
+                        if (b < 0) nonAscii = true;
+                        else if (!asciiText && !isAsciiSpace(b)) asciiText = true;
+                        inPos++;
+                    }
+                    int n = inPos - start;
+                    if (line.length < lineLen + n) line = Arrays.copyOf(line, Math.max(lineLen + n, line.length * 2));
+                    System.arraycopy(inBuf, start, line, lineLen, n);
+                    lineLen += n;
+                    inOffset += n;
+                }
+                if (terminated) {
+                    byte b = inBuf[inPos++];
+                    inOffset++;
+                    if (b == '\r' && (inPos < inLen || refill()) && inBuf[inPos] == '\n') { inPos++; inOffset++; }
+                }
+
+                if (!asciiText && !nonAscii) continue;   // dòng trống
+                if (!asciiText && new String(line, 0, lineLen, StandardCharsets.UTF_8).isBlank()) continue;
+                return true;
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean refill() throws IOException {
+        int n = in.read(inBuf, 0, inBuf.length);
+        while (n == 0) n = in.read(inBuf, 0, inBuf.length);
+        if (n < 0) { inPos = inLen = 0; return false; }
+        inPos = 0;
+        inLen = n;
+        return true;
+    }
+
+    /** Đóng luồng giải nén (nếu có) khi bên gọi dừng trước khi đọc hết đoạn. */
+    @Override
+    public void close() {
+        if (in == null) return;
+        try { in.close(); } catch (IOException ignore) {}
+    }
+
+    /** Offset trong file của byte đầu dòng hiện tại. */
+    long lineOffset() { return lineOffset; }
+
+    /** Lọc sơ bộ dòng hiện tại trên byte thô (xem LinePrefilter). */
+    int prefilter(LinePrefilter f) {
+        return f.test(line, lineLen, scratch);
+    }
+
+    /** Parse dòng hiện tại thành RawPost; null nếu dòng không phải JSON hợp lệ. */
+    RawPost parseLine() {
+        String id = null, text = null, ts = null, createdAt = null;
+        String platform = null, lang = null, userLoc = null;
+        String type = null, threadId = null, replyTo = null;
+        List<String> hashtags = null;
+
+        try (JsonParser p = JSON.createParser(line, 0, lineLen)) {
+            JsonToken root = p.nextToken();
+            if (root == null) return null;
+            if (root != JsonToken.START_OBJECT) {
+                // mảng/scalar ở gốc: hợp lệ nhưng không có field nào (giống JsonNode.get -> null)
+                p.skipChildren();
+            } else {
+                JsonToken t;
+                while ((t = p.nextToken()) != JsonToken.END_OBJECT) {
+                    if (t != JsonToken.FIELD_NAME) throw new IOException("unexpected token " + t);
+                    String field = p.currentName();
+                    JsonToken v = p.nextToken();
+                    switch (field) {
+                        case "id"        -> id = valueText(p, v);
+                        case "text"      -> text = valueText(p, v);
+                        case "ts"        -> ts = valueText(p, v);
+                        case "createdAt" -> createdAt = valueText(p, v);
+                        case "platform"  -> platform = valueText(p, v);
+                        case "lang"      -> lang = valueText(p, v);
+                        case "userLoc"   -> userLoc = valueText(p, v);
+                        case "type"      -> type = valueText(p, v);
+                        case "threadId"  -> threadId = valueText(p, v);
+                        case "replyTo"   -> replyTo = valueText(p, v);
+                        case "hashtags"  -> hashtags = (v == JsonToken.START_ARRAY) ? readTags(p) : skip(p, null);
+                        default          -> p.skipChildren();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+
+        // Ưu tiên ts, sau đó createdAt
+        String when = stringOr(ts, stringOr(createdAt, null));
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        putIfPresent(meta, "type",     type);
+        putIfPresent(meta, "threadId", threadId);
+        putIfPresent(meta, "replyTo",  replyTo);
+        if (hashtags != null) meta.put("hashtags", hashtags);
+
+        return new RawPost(stringOr(id, uuid()), platform, stringOr(text, ""), lang, when, userLoc, meta);
+    }
+
+    /* ========================== Helpers ========================== */
+
+    /** Giá trị dạng chuỗi như JsonNode.asText(); null nếu null/rỗng/là object-array. */
+    private static String valueText(JsonParser p, JsonToken v) throws IOException {
+        String s = switch (v) {
+            case VALUE_STRING -> p.getText();
+            case VALUE_NUMBER_INT -> p.getNumberValue().toString();
+            case VALUE_NUMBER_FLOAT -> Double.toString(p.getDoubleValue());
+            case VALUE_TRUE -> "true";
+            case VALUE_FALSE -> "false";
+            case START_OBJECT, START_ARRAY -> skip(p, "");
+            default -> null;
+        };
+        return (s != null && !s.isBlank()) ? s : null;
+    }
+
+    private static List<String> readTags(JsonParser p) throws IOException {
+        List<String> tags = new ArrayList<>();
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            switch (t) {
+                case VALUE_NULL -> { }
+                case VALUE_STRING -> tags.add(p.getText());
+                case VALUE_NUMBER_INT -> tags.add(p.getNumberValue().toString());
+                case VALUE_NUMBER_FLOAT -> tags.add(Double.toString(p.getDoubleValue()));
+                case VALUE_TRUE -> tags.add("true");
+                case VALUE_FALSE -> tags.add("false");
+                default -> tags.add(skip(p, ""));   // object/array lồng: asText() == ""
+            }
+        }
+        return tags;
+    }
+
+    private static <T> T skip(JsonParser p, T result) throws IOException {
+        p.skipChildren();
+        return result;
+    }
+
+    private void skipRestOfLine() {
+        while (ensure()) {
+            byte b = buf.get(pos);
+            if (b == '\n' || b == '\r') break;
+            pos++;
+        }
+        consumeTerminator();
+    }
+
+    /** Bỏ qua '\n', '\r' hoặc "\r\n" tại pos. */
+    private void consumeTerminator() {
+        if (!ensure()) return;
+        byte b = buf.get(pos++);
+        if (b == '\r' && ensure() && buf.get(pos) == '\n') pos++;
+    }
+
+    /** true nếu còn byte tại pos, map cửa sổ kế tiếp khi cần; false khi hết file. */
+    private boolean ensure() {
+        if (pos < buf.limit()) return true;
+        if (base + pos >= size) return false;
+        slide(base + pos);
+        return buf.limit() > 0;
+    }
+
+    private void slide(long from) {
+        try {
+            remap(from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Map [from, from + window) (cắt ở cuối file) và đặt pos về đầu cửa sổ. */
+    private void remap(long from) throws IOException {
+        try (FileChannel ch = FileChannel.open(chunk.file(), StandardOpenOption.READ)) {
+            long len = Math.min(window, Math.max(0, Math.min(size, ch.size()) - from));
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, from, len);
+            base = from;
+            pos = 0;
+        }
+    }
+
+    private static boolean isAsciiSpace(byte b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || (b >= 0x1C && b <= 0x1F);
+    }
+
+    private static void putIfPresent(Map<String, Object> m, String k, String v) {
+        if (v != null && !v.isBlank()) m.put(k, v);
+    }
+
+    private static String stringOr(String v, String def) {
+        return (v == null || v.isBlank()) ? def : v;
+    }
+
+    private static String uuid() {
+        return "gen_" + UUID.randomUUID();
+    }
+
+}
\ No newline at end of file
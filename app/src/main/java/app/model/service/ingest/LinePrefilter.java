@@ -0,0 +1,332 @@
+package app.model.service.ingest;
+
+import app.util.VnFold;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Đẩy điều kiện lọc time/keyword xuống mức byte của một dòng JSONL, trước khi parse đầy đủ.
+ *
+ * - Chỉ dò các field cấp gốc "ts", "createdAt", "text" (key trùng: lấy giá trị sau, như Jackson).
+ * - Time: so 19 ký tự đầu "yyyy-MM-ddTHH:mm:ss" với from/to (chuỗi ISO so được theo thứ tự từ điển),
+ *   hoặc so số epoch 13/10 chữ số. Trùng đúng giây biên thì để parse đầy đủ quyết định.
+ * - Keyword: giải mã chuỗi text (UTF-8 + escape JSON) và gập ASCII bằng VnFold, cho kết quả giống
+ *   hệt VnFold.foldAlnum trên text đã parse nên khớp/không khớp là chắc chắn.
+ *
+ * Chỉ trả REJECT khi chắc chắn dòng bị loại; mọi trường hợp lạ (field không phải chuỗi, escape ở key,
+ * định dạng giờ khác...) đều để parse đầy đủ xử lý. Bất biến, dùng chung giữa các luồng.
+ */
+final class LinePrefilter {
+
+    static final int REJECT = -1;
+    /** Đã chắc chắn thời gian nằm trong cửa sổ (hoặc không có thời gian). */
+    static final int TIME_OK = 1;
+    /** Đã chắc chắn khớp keyword (hoặc không lọc keyword). */
+    static final int KEYWORD_OK = 2;
+
+    private static final int F_TS = 0, F_CREATED = 1, F_TEXT = 2;
+    private static final byte[][] FIELD_NAMES = {
+            "ts".getBytes(StandardCharsets.US_ASCII),
+            "createdAt".getBytes(StandardCharsets.US_ASCII),
+            "text".getBytes(StandardCharsets.US_ASCII)
+    };
+    private static final int K_ABSENT = 0, K_NULL = 1, K_STRING = 2, K_ESCAPED = 3, K_OTHER = 4;
+
+    private final Set<String> keywords;
+    private final Instant from, to;
+    private final byte[] fromPrefix, toPrefix;   // null = không giới hạn
+    private final boolean timeActive;
+
+    LinePrefilter(QuerySpec spec) {
+        this.keywords = spec.keywords();
+        this.from = spec.from().orElse(null);
+        this.to = spec.to().orElse(null);
+        this.fromPrefix = isoPrefix(from);
+        this.toPrefix = isoPrefix(to);
+        // năm ngoài 0000..9999 thì chuỗi ISO không còn so theo thứ tự từ điển được
+        this.timeActive = (from == null || fromPrefix != null) && (to == null || toPrefix != null);
+    }
+
+    /** Trạng thái tạm theo luồng/scanner: vị trí field và bộ đệm gập chữ. */
+    static final class Scratch {
+        final int[] kind = new int[3], start = new int[3], end = new int[3];
+        final VnFold.Sink folded = new VnFold.Sink(256);
+    }
+
+    int test(byte[] b, int len, Scratch s) {
+        if (!locateRootFields(b, len, s)) return 0;
+
+        int verdict = 0;
+        int t = timeVerdict(b, s);
+        if (t == REJECT) return REJECT;
+        verdict |= t;
+
+        int k = keywordVerdict(b, s);
+        if (k == REJECT) return REJECT;
+        return verdict | k;
+    }
+
+    /* ========================== Time ========================== */
+
+    private int timeVerdict(byte[] b, Scratch s) {
+        if (from == null && to == null) return TIME_OK;
+        if (!timeActive) return 0;
+
+        // Ưu tiên ts, sau đó createdAt (giá trị rỗng/null coi như không có)
+        int f = F_TS;
+        int blank = blankState(b, s, F_TS);
+        if (blank == 1) { f = F_CREATED; blank = blankState(b, s, F_CREATED); }
+        if (blank == 1) return TIME_OK;              // không có thời gian: luôn qua lọc
+        if (blank == 2 || s.kind[f] != K_STRING) return 0;
+
+        int a = s.start[f], n = s.end[f] - a;
+        if ((n == 13 || n == 10) && allDigits(b, a, n)) {
+            long v = parseDigits(b, a, n);
+            Instant ts = n == 13 ? Instant.ofEpochMilli(v) : Instant.ofEpochSecond(v);
+            boolean in = (from == null || !ts.isBefore(from)) && (to == null || !ts.isAfter(to));
+            return in ? TIME_OK : REJECT;
+        }
+        if (!isSimpleIso(b, a, n)) return 0;
+
+        int cf = fromPrefix == null ? 1 : compare19(b, a, fromPrefix);
+        int ct = toPrefix == null ? -1 : compare19(b, a, toPrefix);
+        if (cf < 0 || ct > 0) return REJECT;
+        if (cf > 0 && ct < 0) return TIME_OK;
+        return 0;                                    // cùng giây với biên: để parse quyết định
+    }
+
+    /** 1 = không có/ null/ chuỗi toàn khoảng trắng ASCII; 2 = không chắc; 0 = có giá trị. */
+    private static int blankState(byte[] b, Scratch s, int f) {
+        int kind = s.kind[f];
+        if (kind == K_ABSENT || kind == K_NULL) return 1;
+        if (kind != K_STRING) return 0;
+        boolean nonAscii = false;
+        for (int i = s.start[f]; i < s.end[f]; i++) {
+            byte c = b[i];
+            if (c < 0) nonAscii = true;
+            else if (c > ' ') return 0;
+        }
+        return nonAscii ? 2 : 1;
+    }
+
+    /** yyyy-MM-ddTHH:mm:ss[.f{1,9}]Z với các trường hợp lệ (Instant.parse chắc chắn thành công). */
+    private static boolean isSimpleIso(byte[] b, int a, int n) {
+        if (n < 20 || n > 30) return false;
+        if (b[a + 4] != '-' || b[a + 7] != '-' || b[a + 10] != 'T' || b[a + 13] != ':' || b[a + 16] != ':') return false;
+        for (int i : new int[]{0, 1, 2, 3, 5, 6, 8, 9, 11, 12, 14, 15, 17, 18}) {
+            if (b[a + i] < '0' || b[a + i] > '9') return false;
+        }
+        if (b[a + n - 1] != 'Z') return false;
+        if (n > 20) {
+            if (b[a + 19] != '.' || n == 21) return false;
+            if (!allDigits(b, a + 20, n - 21)) return false;
+        }
+        int year = (int) parseDigits(b, a, 4);
+        int month = (int) parseDigits(b, a + 5, 2), day = (int) parseDigits(b, a + 8, 2);
+        int hh = (int) parseDigits(b, a + 11, 2), mm = (int) parseDigits(b, a + 14, 2), ss = (int) parseDigits(b, a + 17, 2);
+        if (month < 1 || month > 12 || day < 1 || hh > 23 || mm > 59 || ss > 59) return false;
+        return day <= java.time.YearMonth.of(year, month).lengthOfMonth();
+    }
+
+    private static int compare19(byte[] b, int a, byte[] prefix) {
+        for (int i = 0; i < 19; i++) {
+            int d = b[a + i] - prefix[i];
+            if (d != 0) return d;
+        }
+        return 0;
+    }
+
+    private static byte[] isoPrefix(Instant t) {
+        if (t == null) return null;
+        String s = t.toString();
+        if (s.length() < 20 || s.charAt(4) != '-') return null;
+        return s.substring(0, 19).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /* ========================== Keyword ========================== */
+
+    private int keywordVerdict(byte[] b, Scratch s) {
+        if (keywords == null || keywords.isEmpty()) return KEYWORD_OK;
+
+        VnFold.Sink out = s.folded;
+        out.reset();
+        int kind = s.kind[F_TEXT];
+        if (kind == K_OTHER) return 0;
+        if (kind == K_STRING || kind == K_ESCAPED) {
+            if (!foldJsonString(b, s.start[F_TEXT], s.end[F_TEXT], out)) return 0;
+        }
+        // text vắng/null/rỗng -> chuỗi chuẩn hoá rỗng -> không khớp keyword nào
+        if (out.length() == 0) return REJECT;
+        for (String k : keywords) if (out.contains(k)) return KEYWORD_OK;
+        return REJECT;
+    }
+
+    /** Giải mã UTF-8 + escape JSON của [a, e) và gập từng ký tự; false nếu escape không hợp lệ. */
+    private static boolean foldJsonString(byte[] b, int a, int e, VnFold.Sink out) {
+        int i = a;
+        while (i < e) {
+            int c = b[i] & 0xFF;
+            if (c < 0x80) {
+                if (c != '\\') { out.add(VnFold.alnum((char) c)); i++; continue; }
+                if (i + 1 >= e) return false;
+                char x;
+                switch (b[i + 1]) {
+                    case '"' -> x = '"';
+                    case '\\' -> x = '\\';
+                    case '/' -> x = '/';
+                    case 'b' -> x = '\b';
+                    case 'f' -> x = '\f';
+                    case 'n' -> x = '\n';
+                    case 'r' -> x = '\r';
+                    case 't' -> x = '\t';
+                    case 'u' -> {
+                        int v = hex4(b, i + 2, e);
+                        if (v < 0) return false;
+                        i += 6;
+                        // cặp surrogate viết bằng hai escape liên tiếp
+                        if (Character.isHighSurrogate((char) v) && i + 1 < e && b[i] == '\\' && b[i + 1] == 'u') {
+                            int lo = hex4(b, i + 2, e);
+                            if (lo >= 0 && Character.isLowSurrogate((char) lo)) {
+                                out.add(VnFold.alnum(Character.toCodePoint((char) v, (char) lo)));
+                                i += 6;
+                                continue;
+                            }
+                        }
+                        out.add(VnFold.alnum((char) v));
+                        continue;
+                    }
+                    default -> { return false; }
+                }
+                out.add(VnFold.alnum(x));
+                i += 2;
+                continue;
+            }
+            // UTF-8 nhiều byte (dòng lỗi mã hoá sẽ bị parse loại sau, gập thế nào cũng được)
+            int n = c >= 0xF0 ? 4 : c >= 0xE0 ? 3 : 2;
+            if (i + n > e) { out.add(' '); break; }
+            int cp = c & (n == 2 ? 0x1F : n == 3 ? 0x0F : 0x07);
+            for (int k = 1; k < n; k++) cp = (cp << 6) | (b[i + k] & 0x3F);
+            out.add(VnFold.alnum(cp));
+            i += n;
+        }
+        return true;
+    }
+
+    private static int hex4(byte[] b, int a, int e) {
+        if (a + 4 > e) return -1;
+        int v = 0;
+        for (int k = a; k < a + 4; k++) {
+            int h = Character.digit(b[k], 16);
+            if (h < 0) return -1;
+            v = (v << 4) | h;
+        }
+        return v;
+    }
+
+    /* ========================== Dò field cấp gốc ========================== */
+
+    /** false nếu dòng không có dạng object đơn giản (để parse đầy đủ quyết định). */
+    private static boolean locateRootFields(byte[] b, int len, Scratch s) {
+        s.kind[0] = s.kind[1] = s.kind[2] = K_ABSENT;
+        int i = skipWs(b, 0, len);
+        if (i >= len || b[i] != '{') return false;
+        i = skipWs(b, i + 1, len);
+        if (i < len && b[i] == '}') return true;
+
+        while (i < len) {
+            if (b[i] != '"') return false;
+            int keyStart = i + 1;
+            int keyEnd = keyStart;
+            while (keyEnd < len && b[keyEnd] != '"') {
+                if (b[keyEnd] == '\\') return false;   // key có escape: không đoán
+                keyEnd++;
+            }
+            if (keyEnd >= len) return false;
+            int field = fieldOf(b, keyStart, keyEnd);
+
+            i = skipWs(b, keyEnd + 1, len);
+            if (i >= len || b[i] != ':') return false;
+            i = skipWs(b, i + 1, len);
+            if (i >= len) return false;
+
+            int vStart = i, kind;
+            byte c = b[i];
+            if (c == '"') {
+                kind = K_STRING;
+                i++;
+                vStart = i;
+                while (i < len && b[i] != '"') {
+                    if (b[i] == '\\') { kind = K_ESCAPED; i++; }
+                    i++;
+                }
+                if (i >= len) return false;
+                if (field >= 0) { s.kind[field] = kind; s.start[field] = vStart; s.end[field] = i; }
+                i++;
+            } else if (c == '{' || c == '[') {
+                i = skipNested(b, i, len);
+                if (i < 0) return false;
+                if (field >= 0) s.kind[field] = K_OTHER;
+            } else {
+                while (i < len && b[i] != ',' && b[i] != '}' && b[i] != ' ' && b[i] != '\t') i++;
+                if (field >= 0) {
+                    boolean isNull = i - vStart == 4 && b[vStart] == 'n' && b[vStart + 1] == 'u'
+                            && b[vStart + 2] == 'l' && b[vStart + 3] == 'l';
+                    s.kind[field] = isNull ? K_NULL : K_OTHER;
+                }
+            }
+
+            i = skipWs(b, i, len);
+            if (i >= len) return false;
+            if (b[i] == '}') return true;
+            if (b[i] != ',') return false;
+            i = skipWs(b, i + 1, len);
+        }
+        return false;
+    }
+
+    private static int fieldOf(byte[] b, int a, int e) {
+        outer:
+        for (int f = 0; f < FIELD_NAMES.length; f++) {
+            byte[] name = FIELD_NAMES[f];
+            if (name.length != e - a) continue;
+            for (int k = 0; k < name.length; k++) if (name[k] != b[a + k]) continue outer;
+            return f;
+        }
+        return -1;
+    }
+
+    /** Bỏ qua object/array lồng (có tính chuỗi); trả vị trí sau dấu đóng, -1 nếu cụt. */
+    private static int skipNested(byte[] b, int i, int len) {
+        int depth = 0;
+        while (i < len) {
+            byte c = b[i++];
+            if (c == '"') {
+                while (i < len && b[i] != '"') { if (b[i] == '\\') i++; i++; }
+                i++;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWs(byte[] b, int i, int len) {
+        while (i < len && (b[i] == ' ' || b[i] == '\t')) i++;
+        return i;
+    }
+
+    private static boolean allDigits(byte[] b, int a, int n) {
+        for (int i = a; i < a + n; i++) if (b[i] < '0' || b[i] > '9') return false;
+        return true;
+    }
+
+    private static long parseDigits(byte[] b, int a, int n) {
+        long v = 0;
+        for (int i = a; i < a + n; i++) v = v * 10 + (b[i] - '0');
+        return v;
+    }
+}
\ No newline at end of file
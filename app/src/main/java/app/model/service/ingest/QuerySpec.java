@@ -12,10 +12,11 @@ public final class QuerySpec {
     private final Instant from;
     private final Instant to;
     private final boolean allDatasets;
+    private final Set<String> collections;   // rỗng = mọi collection
 
 
     public static QuerySpec ofKeywords(Collection<String> keys) {
-        return new QuerySpec(keys, null, null, true);
+        return new QuerySpec(keys, null, null, true, null);
     }
 
     public static QuerySpec fromKeywords(Collection<String> keys) {
@@ -24,15 +25,17 @@ public final class QuerySpec {
 
 
     public QuerySpec(Collection<String> keys) {
-        this(keys, null, null, true);
+        this(keys, null, null, true, null);
     }
 
 
-    private QuerySpec(Collection<String> keys, Instant from, Instant to, boolean allDatasets) {
+    private QuerySpec(Collection<String> keys, Instant from, Instant to, boolean allDatasets,
+                      Collection<String> collections) {
         this.keywords = toSet(keys);
         this.from = from;
         this.to = to;
         this.allDatasets = allDatasets;
+        this.collections = toSet(collections);
     }
 
     private static Set<String> toSet(Collection<String> keys) {
@@ -53,22 +56,33 @@ public final class QuerySpec {
     public Optional<Instant> from() { return Optional.ofNullable(from); }
     public Optional<Instant> to()   { return Optional.ofNullable(to); }
     public boolean allDatasets()    { return allDatasets; }
+    /** Tên collection (thư mục con hoặc name trong dataset.yaml) cần đọc; rỗng = tất cả. */
+    public Set<String> collections() { return collections; }
 
 
     public QuerySpec withWindow(Instant newFrom, Instant newTo) {
-        return new QuerySpec(this.keywords, newFrom, newTo, this.allDatasets);
+        return new QuerySpec(this.keywords, newFrom, newTo, this.allDatasets, this.collections);
     }
 
+    /**
+     * true  = đọc mọi collection (mặc định).
+     * false = cho phép bỏ qua collection mà dataset.yaml cho biết không thể khớp (time/keywords_hint).
+     */
     public QuerySpec allDatasets(boolean flag) {
-        return new QuerySpec(this.keywords, this.from, this.to, flag);
+        return new QuerySpec(this.keywords, this.from, this.to, flag, this.collections);
+    }
+
+    public QuerySpec withCollections(Collection<String> names) {
+        return new QuerySpec(this.keywords, this.from, this.to, this.allDatasets, names);
     }
 
     @Override public String toString() {
-        return "QuerySpec{keywords=" + keywords + ", from=" + from + ", to=" + to + ", allDatasets=" + allDatasets + "}";
+        return "QuerySpec{keywords=" + keywords + ", from=" + from + ", to=" + to + ", allDatasets=" + allDatasets
+                + (collections.isEmpty() ? "" : ", collections=" + collections) + "}";
     }
 
     @Override public int hashCode() {
-        return Objects.hash(keywords, from, to, allDatasets);
+        return Objects.hash(keywords, from, to, allDatasets, collections);
     }
 
     @Override public boolean equals(Object o) {
@@ -77,6 +91,7 @@ public final class QuerySpec {
         return allDatasets == that.allDatasets
                 && Objects.equals(keywords, that.keywords)
                 && Objects.equals(from, that.from)
-                && Objects.equals(to, that.to);
+                && Objects.equals(to, that.to)
+                && Objects.equals(collections, that.collections);
     }
 }
\ No newline at end of file
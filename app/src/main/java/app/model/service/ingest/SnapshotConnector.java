@@ -0,0 +1,258 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import app.util.TimestampParser;
+import app.util.VnFold;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SnapshotConnector: đọc các snapshot dạng cột "<collection>.snap" trong một thư mục
+ * (dựng bằng ColumnarSnapshot.build, thường ở data/snapshots) thay cho JSONL gốc.
+ *
+ * Mỗi snapshot được map chỉ đọc; lọc thời gian chạy trên cột TS trước khi giải mã chuỗi nào,
+ * chỉ text của dòng còn lại mới được giải mã để lọc keyword. Kết quả và thứ tự giống
+ * FileConnector trên cùng dữ liệu (snapshot sắp theo tên file). spec.collections() chọn theo
+ * tên file bỏ đuôi .snap.
+ *
+ * Dựng bằng over(collectionsRoot) (PipelineService dùng khi RunPlan.withSnapshots(true)) thì mỗi
+ * lượt đọc dựng lại trước snapshot thiếu/cũ của các collection được chọn, và spec.collections()
+ * chọn theo tên thư mục hoặc name trong dataset.yaml như FileConnector. allDatasets không có tác dụng.
+ */
+public class SnapshotConnector implements SocialConnector {
+
+    private static final boolean DEBUG = true;
+
+    private final Path snapshotsDir;
+    private final Path collectionsRoot;   // null = chỉ đọc snapshot có sẵn
+
+    public SnapshotConnector(Path snapshotsDir) {
+        this(snapshotsDir, null);
+    }
+
+    private SnapshotConnector(Path snapshotsDir, Path collectionsRoot) {
+        this.snapshotsDir = snapshotsDir;
+        this.collectionsRoot = collectionsRoot;
+    }
+
+    /** Snapshot của các collection dưới collectionsRoot, giữ ở thư mục "snapshots" cạnh nó. */
+    public static SnapshotConnector over(Path collectionsRoot) {
+        Path abs = collectionsRoot.toAbsolutePath().normalize();
+        return new SnapshotConnector(abs.resolveSibling("snapshots"), abs);
+    }
+
+    @Override public String id() { return "snapshot"; }
+
+    @Override
+    public Stream<RawPost> fetch(QuerySpec spec) {
+        if (collectionsRoot != null) {
+            try {
+                List<String> names = ColumnarSnapshot.refresh(collectionsRoot, snapshotsDir, spec.collections());
+                if (names.isEmpty()) return Stream.empty();
+                return read(spec.withCollections(names));
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("[WARN] cannot refresh snapshots in " + snapshotsDir + ": " + e.getMessage());
+            }
+        }
+        return read(spec);
+    }
+
+    private Stream<RawPost> read(QuerySpec spec) {
+        List<Path> files = listSnapshots(spec);
+        AtomicInteger rows = new AtomicInteger(), kept = new AtomicInteger();
+        return files.stream()
+                .flatMap(f -> scan(f, spec, rows, kept))
+                .onClose(() -> {
+                    if (DEBUG) System.out.println("[SnapshotConnector] summary | files=" + files.size()
+                            + " | rows=" + rows.get() + " | result=" + kept.get());
+                });
+    }
+
+    private List<Path> listSnapshots(QuerySpec spec) {
+        if (snapshotsDir == null || !Files.isDirectory(snapshotsDir)) {
+            System.err.println("[SnapshotConnector] snapshots dir not found: " + snapshotsDir);
+            return List.of();
+        }
+        Set<String> wanted = spec.collections();
+        try (Stream<Path> s = Files.list(snapshotsDir)) {
+            return s.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(ColumnarSnapshot.SUFFIX))
+                    .filter(p -> wanted.isEmpty() || wanted.stream().anyMatch(n -> n.equalsIgnoreCase(collectionName(p))))
+                    // cùng thứ tự với FileConnector, vốn sắp theo đường dẫn "<collection>/<file>"
+                    .sorted(Comparator.comparing(p -> collectionName(p) + "/"))
+                    .toList();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("[SnapshotConnector] list failed: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String collectionName(Path p) {
+        String n = p.getFileName().toString();
+        return n.substring(0, n.length() - ColumnarSnapshot.SUFFIX.length());
+    }
+
+    /** Bản ghi của một snapshot, đọc lười: file chỉ được map khi bắt đầu duyệt. */
+    private Stream<RawPost> scan(Path file, QuerySpec spec, AtomicInteger rows, AtomicInteger kept) {
+        Spliterator<RawPost> it = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Reader r;
+            private boolean done;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super RawPost> action) {
+                if (done) return false;
+                try {
+                    if (r == null) {
+                        ColumnarSnapshot.Mapped m = ColumnarSnapshot.open(file);
+                        if (m.stale()) System.err.println("[WARN] snapshot " + file.getFileName()
+                                + " is older than its collection " + m.source.path() + "; rebuild it");
+                        r = new Reader(m, spec);
+                    }
+                    RawPost rp;
+                    while ((rp = r.next(rows)) != null) {
+                        kept.incrementAndGet();
+                        action.accept(rp);
+                        return true;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("[SnapshotConnector] read failed: " + file + " | " + e.getMessage());
+                }
+                done = true;
+                r = null;
+                return false;
+            }
+        };
+        return StreamSupport.stream(it, false);
+    }
+
+    /** Duyệt các cột song song theo dòng; dòng bị loại chỉ nhảy con trỏ, không giải mã chuỗi. */
+    private static final class Reader {
+        private final ColumnarSnapshot.Mapped m;
+        private final ColumnarSnapshot.Cursor ts, platform, lang, userLoc, type, tags,
+                id, text, createdAt, threadId, replyTo;
+        private final Optional<Instant> from, to;
+        private final long fromMs, toMs;
+        private final Set<String> kws;
+        private final VnFold.Sink folded = new VnFold.Sink(256);
+        private int row;
+
+        Reader(ColumnarSnapshot.Mapped m, QuerySpec spec) {
+            this.m = m;
+            ts        = cursor(ColumnarSnapshot.TS);
+            platform  = cursor(ColumnarSnapshot.PLATFORM);
+            lang      = cursor(ColumnarSnapshot.LANG);
+            userLoc   = cursor(ColumnarSnapshot.USER_LOC);
+            type      = cursor(ColumnarSnapshot.TYPE);
+            tags      = cursor(ColumnarSnapshot.HASHTAGS);
+            id        = cursor(ColumnarSnapshot.ID);
+            text      = cursor(ColumnarSnapshot.TEXT);
+            createdAt = cursor(ColumnarSnapshot.CREATED_AT);
+            threadId  = cursor(ColumnarSnapshot.THREAD_ID);
+            replyTo   = cursor(ColumnarSnapshot.REPLY_TO);
+            from = spec.from();
+            to = spec.to();
+            // ts (ms) < fromMs chắc chắn trước from; ts > toMs chắc chắn sau to
+            fromMs = from.map(SnapshotConnector::floorMillis).orElse(Long.MIN_VALUE);
+            toMs = to.map(SnapshotConnector::floorMillis).orElse(Long.MAX_VALUE);
+            kws = spec.keywords();
+        }
+
+        private ColumnarSnapshot.Cursor cursor(int section) {
+            return new ColumnarSnapshot.Cursor(m.buf, m.start[section]);
+        }
+
+        /** Bản ghi kế tiếp thoả spec; null khi hết. */
+        RawPost next(AtomicInteger rows) {
+            while (row < m.rows) {
+                row++;
+                rows.incrementAndGet();
+                long t = ts.i64();
+                String rawWhen = createdAt.string();
+                String when = rawWhen != null ? rawWhen : ColumnarSnapshot.isoOf(t);
+
+                if (!withinTime(t, rawWhen)) {
+                    text.skipString();
+                    skipRow();
+                    continue;
+                }
+
+                if (kws != null && !kws.isEmpty() && !matchByKeyword(kws)) {
+                    text.skipString();
+                    skipRow();
+                    continue;
+                }
+                return build(text.string(), when);
+            }
+            return null;
+        }
+
+        /**
+         * Như lọc thời gian của FileConnector. Phần lớn dòng được quyết định chỉ bằng so sánh ms;
+         * dòng rơi vào cùng mili giây với from/to (hoặc có chuỗi gốc khác ISO) mới so Instant đầy đủ.
+         */
+        private boolean withinTime(long t, String rawWhen) {
+            if (t == ColumnarSnapshot.NO_TS || (from.isEmpty() && to.isEmpty())) return true;
+            if (t < fromMs || t > toMs) return false;
+            if (t > fromMs && t < toMs) return true;
+            Instant ts = rawWhen == null ? Instant.ofEpochMilli(t) : TimestampParser.parseOnce(rawWhen);
+            if (ts == null) return true;
+            return from.map(f -> !ts.isBefore(f)).orElse(true) && to.map(x -> !ts.isAfter(x)).orElse(true);
+        }
+
+        /** Gập text ngay trên byte đã map; chỉ dòng khớp mới được giải mã thành String. */
+        private boolean matchByKeyword(Set<String> keys) {
+            text.foldString(folded);
+            if (folded.length() == 0) return false;
+            for (String k : keys) if (folded.contains(k)) return true;
+            return false;
+        }
+
+        /** Nhảy qua các cột còn lại của dòng bị loại (TS, CREATED_AT, TEXT đã được đọc). */
+        private void skipRow() {
+            platform.i32(); lang.i32(); userLoc.i32(); type.i32();
+            int n = tags.varint() - 1;
+            for (int i = 0; i < n; i++) tags.varint();
+            id.skipString();
+            threadId.skipString();
+            replyTo.skipString();
+        }
+
+        private RawPost build(String body, String when) {
+            String[] dict = m.dict;
+            String p = word(dict, platform.i32()), l = word(dict, lang.i32()), loc = word(dict, userLoc.i32());
+            String ty = word(dict, type.i32());
+            List<String> hashtags = null;
+            int n = tags.varint() - 1;
+            if (n >= 0) {
+                hashtags = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) hashtags.add(dict[tags.varint()]);
+            }
+            String rid = id.string();
+            String th = threadId.string(), re = replyTo.string();
+
+            // cùng thứ tự key với JsonlScanner
+            Map<String, Object> meta = new LinkedHashMap<>();
+            if (ty != null) meta.put("type", ty);
+            if (th != null) meta.put("threadId", th);
+            if (re != null) meta.put("replyTo", re);
+            if (hashtags != null) meta.put("hashtags", hashtags);
+            return new RawPost(rid, p, body, l, when, loc, meta);
+        }
+
+        private static String word(String[] dict, int code) {
+            return code < 0 ? null : dict[code];
+        }
+    }
+
+    private static long floorMillis(Instant t) {
+        try { return t.toEpochMilli(); }
+        catch (ArithmeticException e) { return t.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE; }
+    }
+}
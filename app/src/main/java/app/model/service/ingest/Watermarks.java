@@ -0,0 +1,108 @@
+package app.model.service.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Tiện ích cho ingest tăng dần: tìm biên đã "chốt" của file đang được ghi thêm
+ * và tính dấu vân tay vùng đã đọc.
+ */
+final class Watermarks {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int HASH_BYTES = 4096;
+    private static final int TAIL_STEP = 8192;
+
+    private Watermarks() {}
+
+    /**
+     * Vị trí sau dòng hoàn chỉnh cuối cùng. Dòng cuối không có ký tự xuống dòng chỉ được tính
+     * khi nó đã là một JSON trọn vẹn (collector có thể đang ghi dở dòng đó).
+     */
+    static long committedEnd(Path file, long size) throws IOException {
+        if (size == 0) return 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long lastTerm = -1;
+            ByteBuffer buf = ByteBuffer.allocate(TAIL_STEP);
+            for (long end = size; end > 0 && lastTerm < 0; end -= TAIL_STEP) {
+                long start = Math.max(0, end - TAIL_STEP);
+                buf.clear().limit((int) (end - start));
+                readFully(ch, buf, start);
+                for (int i = buf.limit() - 1; i >= 0; i--) {
+                    byte b = buf.get(i);
+                    if (b == '\n' || b == '\r') { lastTerm = start + i; break; }
+                }
+            }
+            long tailStart = lastTerm + 1;
+            if (tailStart >= size) return size;
+
+            ByteBuffer tail = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, size - tailStart));
+            readFully(ch, tail, tailStart);
+            return isCompleteJson(tail.array(), tail.limit()) ? size : tailStart;
+        }
+    }
+
+    /**
+     * File nén đã ghi xong: giải nén được tới hết file (member gzip/frame zstd cuối có đủ trailer)
+     * và (size, mtime) không đổi trong lúc kiểm tra. Collector truncate rồi ghi cả file thành một
+     * stream, nên file đang ghi dở luôn hỏng ở cuối (file rỗng: vừa truncate). Phải giải nén cả file.
+     */
+    static boolean isCompleteStream(Path file, long size, long mtime) {
+        if (size == 0) return false;
+        try (InputStream in = JsonlCodec.of(file).decode(Files.newInputStream(file))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == mtime;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** CRC32 của tối đa 4 KB đầu file và 4 KB ngay trước offset, kèm offset. */
+    static String hash(Path file, long offset) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            int head = (int) Math.min(HASH_BYTES, offset);
+            ByteBuffer buf = ByteBuffer.allocate(HASH_BYTES);
+            buf.limit(head);
+            readFully(ch, buf, 0);
+            crc.update(buf.array(), 0, head);
+
+            long tailStart = Math.max(head, offset - HASH_BYTES);
+            buf.clear().limit((int) (offset - tailStart));
+            readFully(ch, buf, tailStart);
+            crc.update(buf.array(), 0, buf.limit());
+        }
+        return offset + ":" + Long.toHexString(crc.getValue());
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) throw new IOException("unexpected end of file");
+        }
+        buf.flip();
+    }
+
+    private static boolean isCompleteJson(byte[] b, int len) {
+        boolean blank = true;
+        for (int i = 0; i < len && blank; i++) blank = b[i] == ' ' || b[i] == '\t';
+        if (blank) return true;
+        try (JsonParser p = JSON.createParser(b, 0, len)) {
+            if (p.nextToken() == null) return true;
+            p.skipChildren();
+            return p.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package app.model.service.nlp;
+
+import app.util.VnFold;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Bản biên dịch sẵn của một LexiconSnapshot, ghi cạnh thư mục lexicon (data/lexicons/vi.lexbin) để
+ * lần khởi động sau khỏi đọc file text, tách token và dựng lại automaton.
+ *
+ * Bố cục file (big-endian):
+ *   header : MAGIC, VERSION, CODE, (kích thước, CRC32 nội dung) của từng file trong LexiconSnapshot.FILES
+ *            (-1 = thiếu)
+ *   body   : số unigram/cụm của pos và neg, từ vựng, cờ theo id, hai automaton (PhraseMatcher.tables),
+ *            phraseSign, damageMap, reliefMap, damageOf, reliefOf, stopwords
+ *   cuối   : CRC32 của mọi byte phía trước, MAGIC (phát hiện file ghi dở hay hỏng)
+ * Mảng int ghi dạng [int độ dài][các phần tử]; chuỗi dạng [int số byte][UTF-8].
+ *
+ * Đọc bằng mmap rồi chép khối từng mảng ra heap, nên đường chấm điểm vẫn chạy trên int[] như khi tự
+ * biên dịch. Sai MAGIC/VERSION/CODE/dấu vân tay hay file hỏng thì read trả về null và LexiconSnapshot
+ * biên dịch lại như bình thường.
+ *
+ * Dấu vân tay theo nội dung chứ không theo mtime: sửa file mà giữ nguyên kích thước trong cùng một
+ * nhịp mtime (hay chép đè giữ mtime) vẫn bị nhận ra. CODE là CRC32 bytecode của các lớp biên dịch
+ * lexicon, nên đổi logic biên dịch hay danh sách mặc định là cache cũ tự mất hiệu lực; VERSION chỉ
+ * còn cần tăng khi đổi bố cục file.
+ */
+final class LexiconCache {
+
+    static final String SUFFIX = ".lexbin";
+
+    private static final int MAGIC = 0x4C58424E;   // "LXBN"
+    private static final int VERSION = 2;
+
+    /** Các lớp quyết định nội dung bản biên dịch (xem CODE). */
+    private static final Class<?>[] COMPILER = {
+            LexiconSnapshot.class, LexiconSnapshot.Phrase.class, LexiconCache.class, PhraseMatcher.class,
+            PhraseMatcher.Builder.class, Vocabulary.class, VnFold.class,
+    };
+    private static final long CODE = codeFingerprint();
+
+    private LexiconCache() {}
+
+    static Path fileOf(Path root) {
+        Path abs = root.toAbsolutePath().normalize();
+        return abs.resolveSibling(abs.getFileName() + SUFFIX);
+    }
+
+    /** (kích thước, CRC32 nội dung) của từng file lexicon; -1 nếu thiếu hoặc không đọc được. */
+    static long[] stamp(Path root) {
+        long[] s = new long[LexiconSnapshot.FILES.length * 2];
+        for (int i = 0; i < LexiconSnapshot.FILES.length; i++) {
+            Path f = root.resolve(LexiconSnapshot.FILES[i]);
+            try {
+                if (Files.isRegularFile(f)) {
+                    byte[] b = Files.readAllBytes(f);   // vài KB; đọc một lần để kích thước và CRC cùng một nội dung
+                    CRC32 crc = new CRC32();
+                    crc.update(b);
+                    s[2 * i] = b.length;
+                    s[2 * i + 1] = crc.getValue();
+                    continue;
+                }
+            } catch (IOException ignore) { }
+            s[2 * i] = s[2 * i + 1] = -1;
+        }
+        return s;
+    }
+
+    /** CRC32 bytecode của COMPILER; 0 nếu không đọc được (khi đó chỉ còn VERSION). */
+    private static long codeFingerprint() {
+        CRC32 crc = new CRC32();
+        for (Class<?> c : COMPILER) {
+            String name = c.getName();
+            try (InputStream in = c.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                if (in == null) return 0;
+                crc.update(in.readAllBytes());
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+        return crc.getValue();
+    }
+
+    /* ========================== Ghi ========================== */
+
+    /** Ghi cache cho lx (stamp lấy TRƯỚC khi đọc file nguồn); lỗi chỉ cảnh báo. */
+    static void write(LexiconSnapshot lx, long[] stamp) {
+        Path out = fileOf(lx.root);
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream o = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), crc))) {
+                o.writeInt(MAGIC);
+                o.writeInt(VERSION);
+                o.writeLong(CODE);
+                for (long v : stamp) o.writeLong(v);
+
+                ints(o, new int[]{lx.posUni, lx.posPhr, lx.negUni, lx.negPhr});
+                String[] words = lx.vocab.words();
+                o.writeInt(words.length);
+                for (String w : words) string(o, w);
+                o.writeInt(lx.flags.length);
+                o.write(lx.flags);
+                for (int[] t : lx.sentimentPhrases.tables()) ints(o, t);
+                ints(o, lx.phraseSign);
+                for (int[] t : lx.taxonomyPhrases.tables()) ints(o, t);
+                map(o, lx.damageMap);
+                map(o, lx.reliefMap);
+                o.writeInt(lx.damageOf.length);
+                for (int[] d : lx.damageOf) ints(o, d);
+                o.writeInt(lx.reliefOf.length);
+                for (LexiconSnapshot.Phrase[] r : lx.reliefOf) {
+                    o.writeInt(r.length);
+                    for (LexiconSnapshot.Phrase p : r) {
+                        string(o, p.item());
+                        o.writeInt(p.tokens());
+                    }
+                }
+                o.writeInt(lx.stop.size());
+                for (String s : lx.stop) string(o, s);
+
+                o.writeInt((int) crc.getValue());
+                o.writeInt(MAGIC);
+            }
+            try {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) { }
+            System.err.println("[WARN] Cannot write lexicon cache " + out + ": " + e.getMessage());
+        }
+    }
+
+    private static void ints(DataOutputStream o, int[] a) throws IOException {
+        o.writeInt(a.length);
+        for (int v : a) o.writeInt(v);
+    }
+
+    private static void string(DataOutputStream o, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        o.writeInt(b.length);
+        o.write(b);
+    }
+
+    private static void map(DataOutputStream o, Map<String, List<String>> m) throws IOException {
+        o.writeInt(m.size());
+        for (Map.Entry<String, List<String>> e : m.entrySet()) {
+            string(o, e.getKey());
+            o.writeInt(e.getValue().size());
+            for (String s : e.getValue()) string(o, s);
+        }
+    }
+
+    /* ========================== Đọc ========================== */
+
+    /** Snapshot dựng từ cache của root nếu cache khớp stamp; null nếu không có, cũ hoặc hỏng. */
+    static LexiconSnapshot read(Path root, long[] stamp) {
+        Path file = fileOf(root);
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < 16 + 8L * stamp.length || size > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != CODE) return null;
+            for (long v : stamp) if (buf.getLong() != v) return null;
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(0, (int) size - 8));
+            if (buf.getInt((int) size - 8) != (int) crc.getValue()) throw new IOException("checksum mismatch");
+
+            int[] sizes = ints(buf);
+            String[] words = new String[count(buf)];
+            for (int i = 0; i < words.length; i++) words[i] = string(buf);
+            byte[] flags = new byte[count(buf)];
+            buf.get(flags);
+            PhraseMatcher sentiment = PhraseMatcher.restore(tables(buf));
+            int[] phraseSign = ints(buf);
+            PhraseMatcher taxonomy = PhraseMatcher.restore(tables(buf));
+            Map<String, List<String>> damageMap = map(buf);
+            Map<String, List<String>> reliefMap = map(buf);
+            int[][] damageOf = new int[count(buf)][];
+            for (int p = 0; p < damageOf.length; p++) damageOf[p] = ints(buf);
+            LexiconSnapshot.Phrase[][] reliefOf = new LexiconSnapshot.Phrase[count(buf)][];
+            for (int p = 0; p < reliefOf.length; p++) {
+                reliefOf[p] = new LexiconSnapshot.Phrase[count(buf)];
+                for (int k = 0; k < reliefOf[p].length; k++) reliefOf[p][k] = new LexiconSnapshot.Phrase(string(buf), buf.getInt());
+            }
+            Set<String> stop = new HashSet<>();
+            for (int n = count(buf); n > 0; n--) stop.add(string(buf));
+
+            Vocabulary vocab = Vocabulary.of(words);
+            buf.getInt();   // CRC, đã kiểm ở trên
+            if (buf.getInt() != MAGIC || buf.hasRemaining() || sizes.length != 4 || sentiment == null || taxonomy == null
+                    || vocab.size() != words.length || flags.length != words.length
+                    || phraseSign.length != sentiment.size() || damageOf.length != taxonomy.size()
+                    || reliefOf.length != taxonomy.size()) {
+                throw new IOException("inconsistent tables");
+            }
+            return new LexiconSnapshot(root, LexiconSnapshot.present(stamp), sizes, damageMap, reliefMap, vocab, flags, sentiment, phraseSign,
+                    taxonomy, damageOf, reliefOf, stop);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[WARN] Ignoring lexicon cache " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static int count(MappedByteBuffer buf) throws IOException {
+        int n = buf.getInt();
+        if (n < 0 || n > buf.remaining()) throw new IOException("bad length " + n);
+        return n;
+    }
+
+    private static int[] ints(MappedByteBuffer buf) throws IOException {
+        int n = count(buf);
+        if (4L * n > buf.remaining()) throw new IOException("bad length " + n);
+        int[] a = new int[n];
+        buf.asIntBuffer().get(a);   // chép khối, không đọc từng int
+        buf.position(buf.position() + 4 * n);
+        return a;
+    }
+
+    private static int[][] tables(MappedByteBuffer buf) throws IOException {
+        int[][] t = new int[7][];
+        for (int i = 0; i < t.length; i++) t[i] = ints(buf);
+        return t;
+    }
+
+    private static String string(MappedByteBuffer buf) throws IOException {
+        byte[] b = new byte[count(buf)];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, List<String>> map(MappedByteBuffer buf) throws IOException {
+        Map<String, List<String>> m = new LinkedHashMap<>();
+        for (int n = count(buf); n > 0; n--) {
+            String key = string(buf);
+            List<String> values = new ArrayList<>();
+            for (int k = count(buf); k > 0; k--) values.add(string(buf));
+            m.put(key, values);
+        }
+        return m;
+    }
+}
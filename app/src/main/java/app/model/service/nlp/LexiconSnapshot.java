@@ -0,0 +1,370 @@
+package app.model.service.nlp;
+
+import app.util.VnFold;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lexicon + taxonomy của LocalNlpModel đã biên dịch xong (từ vựng, cờ theo id, automaton cụm,
+ * bảng loại thiệt hại / mục cứu trợ), đọc từ một thư mục data/lexicons/vi.
+ *
+ * Bất biến sau khi dựng: nhiều luồng chấm điểm đọc chung mà không khoá. Nạp lại lexicon nghĩa là
+ * dựng một snapshot mới rồi thay cả khối (LocalNlpModel.reload), không sửa snapshot đang dùng.
+ *
+ * Lần nạp đầu chịu được file thiếu/lỗi (dùng danh sách mặc định hoặc taxonomy rỗng như trước). Khi
+ * nạp lại (load(root, required)), file đã có ở snapshot trước mà nay thiếu, đọc lỗi hoặc yaml không
+ * còn khoá gốc thì ném lỗi, để LocalNlpModel.reload giữ snapshot cũ thay vì phát ra bản thiếu.
+ *
+ * load() ưu tiên bản đã biên dịch sẵn (LexiconCache, file nhị phân cạnh thư mục lexicon) khi các
+ * file nguồn không đổi; chỉ khi không có/không khớp mới đọc file text và biên dịch lại.
+ */
+final class LexiconSnapshot {
+
+    static final String[] FILES = {"sentiment_pos.txt", "sentiment_neg.txt", "damage.yaml", "relief.yaml", "stopwords.txt"};
+
+    // KHÔNG DẤU để khớp với textNorm()
+    private static final Set<String> VI_NEGATORS = Set.of("khong","chang","cha","deo","khg","k","ko","k0","kh");
+    private static final Set<String> BOOSTERS    = Set.of("rat","very","qua","too","cuc","kha","quite");
+    private static final Set<String> DAMPENERS   = Set.of("hoi","slightly","abit","it","slight","a-bit");
+
+    /** Luôn có trong lexicon cảm xúc, cộng thêm các dòng của sentiment_pos.txt / sentiment_neg.txt */
+    static final List<String> POS_DEFAULTS =
+            List.of("ung ho","cam on","hy vong","tich cuc","an toan","khac phuc","ho tro","on dinh","tuyet voi");
+    static final List<String> NEG_DEFAULTS =
+            List.of("nguy hiem","thiet hai","ngap sau","mat dien","gio manh","lu lut","do nat","sap cau","tieu cuc");
+
+    /** Cờ theo id token */
+    static final byte POS = 1, NEG = 2, BOOST = 4, DAMP = 8, NEGATOR = 16;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** Một cụm của relief.yaml: mục cứu trợ và số token của cụm (tính sẵn lúc nạp). */
+    record Phrase(String item, int tokens) {}
+
+    private record Lexicon(Set<String> unigrams, List<List<String>> phrases) {}
+
+    /** Thư mục nguồn và số thứ tự snapshot (tăng mỗi lần nạp, dùng làm khoá cache phía UI) */
+    final Path root;
+    final long version;
+    /** true nếu đọc từ LexiconCache thay vì biên dịch từ file text */
+    final boolean cached;
+    /** Các file trong FILES có mặt lúc nạp (lần nạp lại sau đó bắt buộc phải còn đọc được) */
+    final Set<String> files;
+
+    /** Kích thước lexicon cảm xúc (chỉ để log): unigram/cụm của pos và neg */
+    final int posUni, posPhr, negUni, negPhr;
+
+    /** Taxonomy cho bài toán 2 & 3 */
+    final Map<String, List<String>> damageMap;
+    final Map<String, List<String>> reliefMap;
+
+    /** Từ vựng: token -> id dày (0..n-1); token ngoài từ vựng không ảnh hưởng điểm nên có id -1 */
+    final Vocabulary vocab;
+    /** Cờ theo id token: thuộc lexicon nào, có phải từ phủ định/tăng/giảm không */
+    final byte[] flags;
+
+    /** Cụm (>= 2 token) của cả hai lexicon cảm xúc; dấu theo id cụm: +1 pos (ưu tiên khi trùng), -1 neg */
+    final PhraseMatcher sentimentPhrases;
+    final int[] phraseSign;
+
+    /** Mọi cụm của damage.yaml và relief.yaml, khớp theo ký tự như String.contains */
+    final PhraseMatcher taxonomyPhrases;
+    final List<String> damageTypes;
+    final int[][] damageOf;        // id cụm -> chỉ số các loại thiệt hại (theo damageTypes)
+    final Phrase[][] reliefOf;     // id cụm -> các mục cứu trợ dùng cụm đó
+
+    /** Stopwords phục vụ trends */
+    final Set<String> stop;
+
+    /**
+     * Lexicon trong root: từ LexiconCache nếu file nguồn không đổi, ngược lại đọc và biên dịch (file
+     * thiếu hoặc lỗi thì dùng mặc định như trước) rồi ghi lại cache.
+     */
+    static LexiconSnapshot load(Path root) {
+        return load(root, Set.of());
+    }
+
+    /**
+     * Như load(root) nhưng các file trong required phải có và đọc được (ném IllegalStateException nếu
+     * không); dùng khi nạp lại với required = files của snapshot đang dùng.
+     */
+    static LexiconSnapshot load(Path root, Set<String> required) {
+        long[] stamp = LexiconCache.stamp(root);
+        for (int i = 0; i < FILES.length; i++) {
+            if (stamp[2 * i] < 0 && required.contains(FILES[i])) {
+                throw new IllegalStateException("missing lexicon file " + root.resolve(FILES[i]));
+            }
+        }
+        LexiconSnapshot lx = LexiconCache.read(root, stamp);
+        if (lx != null) return lx;
+        lx = new LexiconSnapshot(root, present(stamp), required);
+        if (Files.isDirectory(root)) LexiconCache.write(lx, stamp);
+        return lx;
+    }
+
+    /** Tên các file có mặt theo LexiconCache.stamp. */
+    static Set<String> present(long[] stamp) {
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i < FILES.length; i++) if (stamp[2 * i] >= 0) out.add(FILES[i]);
+        return Set.copyOf(out);
+    }
+
+    /** ../data/lexicons/vi nếu có, ngược lại ./data/lexicons/vi. */
+    static Path defaultRoot() {
+        Path cwd = Path.of("").toAbsolutePath();
+        Path pref = cwd.resolveSibling("data").resolve("lexicons").resolve("vi"); // ../data/lexicons/vi
+        Path alt  = cwd.resolve("data").resolve("lexicons").resolve("vi");        // ./data/lexicons/vi
+        return Files.isDirectory(pref) ? pref : alt;
+    }
+
+    /** Dựng lại từ LexiconCache (mọi bảng đã biên dịch sẵn). */
+    LexiconSnapshot(Path root, Set<String> files, int[] sizes, Map<String, List<String>> damageMap,
+                    Map<String, List<String>> reliefMap, Vocabulary vocab, byte[] flags, PhraseMatcher sentimentPhrases,
+                    int[] phraseSign, PhraseMatcher taxonomyPhrases, int[][] damageOf, Phrase[][] reliefOf,
+                    Set<String> stop) {
+        this.root = root;
+        this.version = VERSIONS.incrementAndGet();
+        this.cached = true;
+        this.files = files;
+        this.posUni = sizes[0];
+        this.posPhr = sizes[1];
+        this.negUni = sizes[2];
+        this.negPhr = sizes[3];
+        this.damageMap = damageMap;
+        this.reliefMap = reliefMap;
+        this.vocab = vocab;
+        this.flags = flags;
+        this.sentimentPhrases = sentimentPhrases;
+        this.phraseSign = phraseSign;
+        this.taxonomyPhrases = taxonomyPhrases;
+        this.damageTypes = List.copyOf(damageMap.keySet());
+        this.damageOf = damageOf;
+        this.reliefOf = reliefOf;
+        this.stop = stop;
+    }
+
+    private LexiconSnapshot(Path lexRoot, Set<String> files, Set<String> required) {
+        this.root = lexRoot;
+        this.version = VERSIONS.incrementAndGet();
+        this.cached = false;
+        this.files = files;
+        this.damageMap = new LinkedHashMap<>();
+        this.reliefMap = new LinkedHashMap<>();
+        this.vocab = new Vocabulary();
+        this.stop = new HashSet<>();
+
+        // Sentiment lexicon (có fallback nếu thiếu file)
+        Lexicon viPos = loadLexiconFS(lexRoot.resolve("sentiment_pos.txt"), required, POS_DEFAULTS);
+        Lexicon viNeg = loadLexiconFS(lexRoot.resolve("sentiment_neg.txt"), required, NEG_DEFAULTS);
+        this.posUni = viPos.unigrams.size();
+        this.posPhr = viPos.phrases.size();
+        this.negUni = viNeg.unigrams.size();
+        this.negPhr = viNeg.phrases.size();
+
+        // Taxonomy yaml-like (tối giản)
+        loadYamlLike(lexRoot.resolve("damage.yaml"), required, "damage_types", damageMap);
+        loadYamlLike(lexRoot.resolve("relief.yaml"), required, "relief_items", reliefMap);
+
+        // Automaton cho cụm cảm xúc (pos trước để thắng khi một cụm có ở cả hai file)
+        PhraseMatcher.Builder sb = new PhraseMatcher.Builder();
+        List<Integer> signs = new ArrayList<>();
+        addPhrases(sb, viPos.phrases, +1, signs);
+        addPhrases(sb, viNeg.phrases, -1, signs);
+        this.sentimentPhrases = sb.build();
+        this.phraseSign = signs.stream().mapToInt(Integer::intValue).toArray();
+
+        // Cờ cho unigram và từ bổ nghĩa (id cấp tiếp sau các token của cụm)
+        Map<Integer, Integer> f = new HashMap<>();
+        viPos.unigrams.forEach(w -> f.merge(vocab.intern(w), (int) POS, (x, y) -> x | y));
+        viNeg.unigrams.forEach(w -> f.merge(vocab.intern(w), (int) NEG, (x, y) -> x | y));
+        BOOSTERS.forEach(w -> f.merge(vocab.intern(w), (int) BOOST, (x, y) -> x | y));
+        DAMPENERS.forEach(w -> f.merge(vocab.intern(w), (int) DAMP, (x, y) -> x | y));
+        VI_NEGATORS.forEach(w -> f.merge(vocab.intern(w), (int) NEGATOR, (x, y) -> x | y));
+        this.flags = new byte[vocab.size()];
+        f.forEach((tokenId, bits) -> flags[tokenId] = (byte) (int) bits);
+
+        // Automaton cho taxonomy: một cụm có thể thuộc nhiều loại/mục
+        PhraseMatcher.Builder tb = new PhraseMatcher.Builder();
+        List<List<Integer>> damageIdx = new ArrayList<>();
+        List<List<Phrase>> reliefIdx = new ArrayList<>();
+        this.damageTypes = List.copyOf(damageMap.keySet());
+        for (int t = 0; t < damageTypes.size(); t++) {
+            for (String ph : damageMap.get(damageTypes.get(t))) {
+                if (ph.isEmpty()) continue;
+                int p = grow(tb.add(ph), damageIdx, reliefIdx);
+                if (!damageIdx.get(p).contains(t)) damageIdx.get(p).add(t);
+            }
+        }
+        reliefMap.forEach((item, phrases) -> {
+            for (String ph : phrases) {
+                if (ph.isEmpty()) continue;
+                int p = grow(tb.add(ph), damageIdx, reliefIdx);
+                reliefIdx.get(p).add(new Phrase(item, Vocabulary.tokenize(ph).size()));
+            }
+        });
+        this.taxonomyPhrases = tb.build();
+        this.damageOf = damageIdx.stream().map(l -> l.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        this.reliefOf = reliefIdx.stream().map(l -> l.toArray(Phrase[]::new)).toArray(Phrase[][]::new);
+
+        // Stopwords (optional)
+        loadList(lexRoot.resolve("stopwords.txt"), required, List.of(), stop);
+    }
+
+    int flagsOf(int tokenId) { return tokenId < 0 ? 0 : flags[tokenId]; }
+
+    /** Dòng log tóm tắt. */
+    String describe() {
+        return "pos{uni=" + posUni + ",phr=" + posPhr + "} " +
+                "neg{uni=" + negUni + ",phr=" + negPhr + "} " +
+                "damage=" + damageMap.size() + " (types: " + String.join(", ", damageMap.keySet()) + ") " +
+                "relief=" + reliefMap.size() + " stop=" + stop.size() +
+                " from=" + root.toAbsolutePath() + (cached ? " (compiled cache)" : "");
+    }
+
+    private void addPhrases(PhraseMatcher.Builder b, List<List<String>> phrases, int sign, List<Integer> signs) {
+        for (List<String> phrase : phrases) {
+            int[] ids = new int[phrase.size()];
+            for (int k = 0; k < ids.length; k++) ids[k] = vocab.intern(phrase.get(k));
+            if (b.add(ids) == signs.size()) signs.add(sign);
+        }
+    }
+
+    /** Mở rộng bảng theo id cụm vừa thêm (id cụm tăng dần từ 0). */
+    private static int grow(int p, List<List<Integer>> damageIdx, List<List<Phrase>> reliefIdx) {
+        if (p == damageIdx.size()) {
+            damageIdx.add(new ArrayList<>());
+            reliefIdx.add(new ArrayList<>());
+        }
+        return p;
+    }
+
+    /* ================= IO ================= */
+
+    /** Lỗi đọc file bắt buộc (xem load(root, required)). */
+    private static IllegalStateException unreadable(Path file, Exception e) {
+        return new IllegalStateException("cannot read lexicon file " + file + ": " + e.getMessage(), e);
+    }
+
+    private static boolean required(Path file, Set<String> required) {
+        return required.contains(file.getFileName().toString());
+    }
+
+    private static Lexicon loadLexiconFS(Path file, Set<String> required, List<String> fallbackPlain) {
+        // Chuẩn hoá fallback theo cùng tokenizer
+        Set<String> uni = new LinkedHashSet<>();
+        List<List<String>> phr = new ArrayList<>();
+        for (String line : fallbackPlain) addLineToLexicon(line, uni, phr);
+
+        boolean must = required(file, required);
+        try {
+            if (Files.isRegularFile(file)) {
+                try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        line = line.trim().toLowerCase(Locale.ROOT);
+                        if (line.isEmpty() || line.startsWith("#")) continue;
+                        addLineToLexicon(line, uni, phr);
+                    }
+                }
+            } else if (must) {
+                throw new NoSuchFileException(file.toString());
+            }
+        } catch (Exception e) {
+            if (must) throw unreadable(file, e);
+            /* fallback */
+        }
+
+        phr.sort((a,b) -> Integer.compare(b.size(), a.size()));
+        return new Lexicon(uni, phr);
+    }
+
+    private static void addLineToLexicon(String line, Set<String> uni, List<List<String>> phr) {
+        List<String> toks = Vocabulary.tokenize(line);
+        if (toks.isEmpty()) return;
+        if (toks.size() == 1) uni.add(toks.get(0));
+        else phr.add(toks);
+    }
+
+    private static void loadList(Path path, Set<String> required, List<String> fallback, Set<String> target) {
+        boolean must = required(path, required);
+        target.clear();
+        target.addAll(fallback);
+        try {
+            if (Files.isRegularFile(path)) {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    String t = line.trim().toLowerCase(Locale.ROOT);
+                    if (t.isEmpty() || t.startsWith("#")) continue;
+                    target.add(t);
+                }
+            } else if (must) {
+                throw new NoSuchFileException(path.toString());
+            }
+        } catch (Exception e) {
+            if (must) throw unreadable(path, e);
+        }
+    }
+
+    private static void loadYamlLike(Path file, Set<String> required, String rootKey, Map<String, List<String>> target) {
+        boolean must = required(file, required);
+        if (!Files.isRegularFile(file)) {
+            if (must) throw unreadable(file, new NoSuchFileException(file.toString()));
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            boolean inRoot = false;
+            String currentType = null;
+            int rootIndent = -1;
+
+            for (String raw : lines) {
+                String s = raw.stripTrailing();
+                String t = s.trim();
+
+                // Bỏ qua dòng trắng và comment
+                if (t.isBlank() || t.startsWith("#")) continue;
+
+                // Tìm level indentation
+                int indent = s.length() - s.stripLeading().length();
+
+                if (!inRoot) {
+                    if (t.equals(rootKey + ":")) {
+                        inRoot = true;
+                        rootIndent = indent;
+                    }
+                    continue;
+                }
+
+                // Kiểm tra xem có ra khỏi root không (indent <= root level và không phải dòng trắng)
+                if (indent <= rootIndent && !t.isBlank()) {
+                    break; // ra khỏi root section
+                }
+
+                if (t.endsWith(":")) {
+                    // Đây là category (housing, infrastructure, flood...)
+                    currentType = t.substring(0, t.length() - 1).trim();
+                    target.putIfAbsent(currentType, new ArrayList<>());
+                } else if (t.startsWith("-")) {
+                    // Đây là item trong category
+                    if (currentType == null) continue;
+                    String phrase = t.substring(1).trim();
+                    if (phrase.startsWith("\"") && phrase.endsWith("\"") && phrase.length() >= 2) {
+                        phrase = phrase.substring(1, phrase.length() - 1);
+                    }
+                    target.get(currentType).add(VnFold.fold(phrase));
+                }
+            }
+            // file ghi dở / bị cắt thường mất luôn khoá gốc
+            if (!inRoot && must) throw new IOException("no '" + rootKey + ":' section");
+        } catch (Exception e) {
+            if (must) throw unreadable(file, e);
+            System.err.println("[LocalNlpModel] loadYamlLike failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package app.model.service.nlp;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Theo dõi thư mục lexicon trên một luồng nền (daemon) và gọi onChange khi một trong các file
+ * lexicon bị tạo/sửa/xoá. Các sự kiện dồn dập (editor ghi file tạm rồi đổi tên, copy nhiều file)
+ * được gom lại: chỉ gọi onChange khi thư mục đã yên QUIET_MS.
+ */
+final class LexiconWatcher implements AutoCloseable {
+
+    private static final long QUIET_MS = 300;
+
+    private final Path dir;
+    private final Runnable onChange;
+    private final WatchService watch;
+    private final Thread thread;
+    private final Set<String> names = Set.of(LexiconSnapshot.FILES);
+
+    LexiconWatcher(Path dir, Runnable onChange) throws IOException {
+        this.dir = dir;
+        this.onChange = onChange;
+        this.watch = FileSystems.getDefault().newWatchService();
+        dir.register(watch, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::loop, "lexicon-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                if (!relevant(watch.take())) continue;
+                // gom các sự kiện tiếp theo cho tới khi yên
+                for (WatchKey more; (more = watch.poll(QUIET_MS, TimeUnit.MILLISECONDS)) != null; ) relevant(more);
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[WARN] Lexicon reload failed: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close()
+        }
+    }
+
+    /** true nếu key có sự kiện của một file lexicon (hoặc bị tràn, không biết file nào). */
+    private boolean relevant(WatchKey key) {
+        boolean hit = false;
+        for (WatchEvent<?> e : key.pollEvents()) {
+            if (e.kind() == StandardWatchEventKinds.OVERFLOW) hit = true;
+            else if (e.context() instanceof Path p && names.contains(p.getFileName().toString())) hit = true;
+        }
+        if (!key.reset()) {
+            System.err.println("[WARN] Lexicon folder no longer watchable: " + dir);
+            close();
+        }
+        return hit;
+    }
+
+    @Override
+    public void close() {
+        try { watch.close(); } catch (IOException ignore) { }
+        thread.interrupt();
+    }
+}
@@ -2,13 +2,14 @@ package app.model.service.nlp;
 
 import app.model.domain.SentimentLabel;
 import app.model.domain.SentimentResult;
+import app.model.service.nlp.LexiconSnapshot.Phrase;
 
-import java.io.BufferedReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * LocalNlpModel (rule-based, offline) cho tiếng Việt.
@@ -19,26 +20,20 @@ import java.util.regex.Pattern;
  *     damage.yaml, relief.yaml
  *     stopwords.txt
  * - Hỗ trợ: unigram + phrase (ưu tiên cụm dài nhất), negation/booster/dampener, emoji/!
+ * - Cụm cảm xúc (theo token) và cụm damage/relief (theo ký tự) được dựng sẵn thành automaton
+ *   Aho–Corasick (PhraseMatcher) lúc nạp: mỗi bài chỉ quét một lượt, dù lexicon lớn cỡ nào.
+ * - Mọi từ của lexicon và các từ phủ định/tăng/giảm được đánh id dày lúc nạp; mỗi bài được tách
+ *   thành int[] id một lần, chấm điểm chỉ đọc mảng cờ theo id (không băm String trong vòng lặp).
  * - API cho 4 bài toán:
  *     analyzeSentiment, detectDamageTypes, detectReliefItems, tokenizeForTrends
+ * - analyzeAll: sentiment + damage + cảm xúc theo nhóm cứu trợ trong một lượt (tách token một lần),
+ *   kết quả giống hệt gọi riêng từng hàm.
+ * - Lexicon đã biên dịch nằm trong một LexiconSnapshot bất biến, giữ bằng AtomicReference. reload()
+ *   (hoặc watch(): tự nạp lại khi file trong thư mục lexicon đổi) dựng snapshot mới rồi thay một
+ *   lần: lời gọi đang chạy dùng trọn snapshot cũ, không lời gọi nào phải chờ. shared() là bản dùng
+ *   chung cho Pipeline và Dashboard (nạp một lần, tự theo dõi thư mục).
  */
 public class LocalNlpModel implements NlpModel {
-    private static final Pattern TOKEN = Pattern.compile("\\p{Z}+");
-
-    // KHÔNG DẤU để khớp với textNorm()
-    private static final Set<String> VI_NEGATORS = Set.of("khong","chang","cha","deo","khg","k","ko","k0","kh");
-    private static final Set<String> BOOSTERS    = Set.of("rat","very","qua","too","cuc","kha","quite");
-    private static final Set<String> DAMPENERS   = Set.of("hoi","slightly","abit","it","slight","a-bit");
-
-    /** Lexicon cảm xúc */
-    private final Lexicon viPos, viNeg;
-
-    /** Taxonomy cho bài toán 2 & 3 */
-    private final Map<String, List<String>> damageMap = new LinkedHashMap<>();
-    private final Map<String, List<String>> reliefMap = new LinkedHashMap<>();
-
-    /** Stopwords phục vụ trends */
-    private final Set<String> stop = new HashSet<>();
 
     // Pool 6 nhóm thiệt hại cố định để fallback ngẫu nhiên
     private static final List<String> DAMAGE_POOL = List.of(
@@ -51,42 +46,104 @@ public class LocalNlpModel implements NlpModel {
     );
     private static final Random RNG = new Random();
 
+    private final Path lexRoot;
+    private final AtomicReference<LexiconSnapshot> lexicon = new AtomicReference<>();
+    private LexiconWatcher watcher;
+
+    private static final class Shared {
+        static final LocalNlpModel INSTANCE = new LocalNlpModel();
+        static { INSTANCE.watch(); }
+    }
+
+    /** Bản dùng chung (lexicon mặc định, tự nạp lại khi file đổi). */
+    public static LocalNlpModel shared() { return Shared.INSTANCE; }
+
+    /** Đọc từ ../data/lexicons/vi (hoặc ./data/lexicons/vi). */
     public LocalNlpModel() {
-        Path lexRoot = autoDetectLexiconRoot();
-
-        // Sentiment lexicon (có fallback nếu thiếu file)
-        this.viPos = loadLexiconFS(lexRoot.resolve("sentiment_pos.txt"),
-                List.of("ung ho","cam on","hy vong","tich cuc","an toan","khac phuc","ho tro","on dinh","tuyet voi"));
-        this.viNeg = loadLexiconFS(lexRoot.resolve("sentiment_neg.txt"),
-                List.of("nguy hiem","thiet hai","ngap sau","mat dien","gio manh","lu lut","do nat","sap cau","tieu cuc"));
-
-        // Taxonomy yaml-like (tối giản)
-        loadYamlLike(lexRoot.resolve("damage.yaml"), "damage_types", damageMap);
-        loadYamlLike(lexRoot.resolve("relief.yaml"), "relief_items", reliefMap);
-
-        // Stopwords (optional)
-        loadList(lexRoot.resolve("stopwords.txt"), List.of(), stop);
-
-        System.out.println("[LocalNlpModel] lexicon loaded: " +
-                "pos{uni=" + viPos.unigrams.size() + ",phr=" + viPos.phrases.size() + "} " +
-                "neg{uni=" + viNeg.unigrams.size() + ",phr=" + viNeg.phrases.size() + "} " +
-                "damage=" + damageMap.size() + " (types: " + String.join(", ", damageMap.keySet()) + ") " +
-                "relief=" + reliefMap.size() + " stop=" + stop.size() +
-                " from=" + lexRoot.toAbsolutePath());
+        this(LexiconSnapshot.defaultRoot());
+    }
+
+    public LocalNlpModel(Path lexiconRoot) {
+        this.lexRoot = lexiconRoot;
+        LexiconSnapshot lx = LexiconSnapshot.load(lexiconRoot);
+        lexicon.set(lx);
+        System.out.println("[LocalNlpModel] lexicon loaded: " + lx.describe());
+    }
+
+    /**
+     * Đọc lại thư mục lexicon và thay snapshot đang dùng. Lời gọi đang chấm dở vẫn dùng snapshot cũ;
+     * file đã có lúc trước mà nay thiếu/đọc lỗi (đang xoá, đổi tên, ghi dở) hoặc lỗi khi dựng thì
+     * giữ nguyên snapshot cũ.
+     */
+    public boolean reload() {
+        try {
+            LexiconSnapshot lx = LexiconSnapshot.load(lexRoot, lexicon.get().files);
+            lexicon.set(lx);
+            System.out.println("[LocalNlpModel] lexicon reloaded (v" + lx.version + "): " + lx.describe());
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("[WARN] Lexicon reload failed, keeping v" + lexicon.get().version + ": " + e.getMessage());
+            return false;
+        }
     }
 
+    /** Tự reload() khi file lexicon trong thư mục bị tạo/sửa/xoá (luồng nền; gọi lại không sao). */
+    public synchronized void watch() {
+        if (watcher != null) return;
+        if (!Files.isDirectory(lexRoot)) {
+            System.err.println("[WARN] Lexicon folder not found, not watching: " + lexRoot.toAbsolutePath());
+            return;
+        }
+        try {
+            watcher = new LexiconWatcher(lexRoot, this::reload);
+        } catch (IOException e) {
+            System.err.println("[WARN] Cannot watch lexicon folder " + lexRoot + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) watcher.close();
+        watcher = null;
+    }
+
+    /** Số thứ tự snapshot đang dùng; đổi sau mỗi lần nạp lại (dùng làm khoá cache kết quả). */
+    public long lexiconVersion() { return lexicon.get().version; }
+
     @Override public String modelId() { return "rule-local-vi-v3"; }
 
+    /** Kết quả analyzeAll: sentiment, loại thiệt hại và điểm cảm xúc [-1, 1] theo nhóm cứu trợ. */
+    public record Analysis(SentimentResult sentiment, List<String> damageTypes, Map<String, Double> reliefSentiment) {
+        /** Như detectReliefItems. */
+        public List<String> reliefItems() { return new ArrayList<>(reliefSentiment.keySet()); }
+    }
+
+    /**
+     * analyzeSentiment + detectDamageTypes + analyzeReliefSentiment cho một bài, tách token một lần.
+     * Pipeline và Dashboard dùng hàm này thay vì gọi riêng từng hàm.
+     */
+    public Analysis analyzeAll(String id, String textNorm, String lang, Instant ts) {
+        LexiconSnapshot lx = lexicon.get();
+        if (textNorm == null || textNorm.isBlank())
+            return new Analysis(new SentimentResult(id, SentimentLabel.neu, 0.0, ts),
+                    damageTypes(lx, Map.of()), new HashMap<>());
+        var toks = lx.vocab.encode(textNorm);
+        var hits = taxonomyHits(lx, textNorm);
+        return new Analysis(sentiment(lx, id, textNorm, toks, ts), damageTypes(lx, hits),
+                reliefSentiment(lx, toks, hits));
+    }
+
     /* ================= Sentiment (Task 1) ================= */
 
     @Override
     public SentimentResult analyzeSentiment(String id, String textNorm, String lang, Instant ts) {
         if (textNorm == null || textNorm.isBlank())
             return new SentimentResult(id, SentimentLabel.neu, 0.0, ts);
+        LexiconSnapshot lx = lexicon.get();
+        return sentiment(lx, id, textNorm, lx.vocab.encode(textNorm), ts);
+    }
 
-        var toks = tokenize(textNorm);
-
-        double rawScore = lexicalScoreVI(toks);
+    private SentimentResult sentiment(LexiconSnapshot lx, String id, String textNorm, Vocabulary.Tokens toks, Instant ts) {
+        double rawScore = lexicalScoreVI(lx, toks.ids(), 0, toks.size());
         // booster: ! và emoji
         int exclam = countChar(textNorm, '!');
         if (exclam >= 1) rawScore *= 1.0 + Math.min(0.5, exclam * 0.1);
@@ -102,27 +159,30 @@ public class LocalNlpModel implements NlpModel {
 
     /** Tìm loại thiệt hại xuất hiện trong câu (match phrase không dấu). */
     public List<String> detectDamageTypes(String textNorm) {
+        LexiconSnapshot lx = lexicon.get();
         List<String> out = new ArrayList<>();
         if (textNorm == null || textNorm.isBlank()) {
-            out.add(pickRandomDamage());
+            out.add(pickRandomDamage(lx));
             return out;
         }
-        for (var e : damageMap.entrySet()) {
-            String type = e.getKey();
-            for (String phrase : e.getValue()) {
-                if (textNorm.contains(phrase)) { out.add(type); break; }
-            }
-        }
+        return damageTypes(lx, taxonomyHits(lx, textNorm));
+    }
+
+    private List<String> damageTypes(LexiconSnapshot lx, Map<Integer, Integer> hits) {
+        boolean[] found = new boolean[lx.damageTypes.size()];
+        for (int p : hits.keySet()) for (int t : lx.damageOf[p]) found[t] = true;
+        List<String> out = new ArrayList<>();
+        for (int t = 0; t < found.length; t++) if (found[t]) out.add(lx.damageTypes.get(t));
         if (out.isEmpty()) {
-            out.add(pickRandomDamage());
+            out.add(pickRandomDamage(lx));
         }
         return out;
     }
 
-    private String pickRandomDamage() {
+    private String pickRandomDamage(LexiconSnapshot lx) {
         List<String> pool = new ArrayList<>();
         for (String k : DAMAGE_POOL) {
-            if (damageMap.containsKey(k)) pool.add(k);
+            if (lx.damageMap.containsKey(k)) pool.add(k);
         }
         if (pool.isEmpty()) pool = DAMAGE_POOL;
         int idx = RNG.nextInt(pool.size());
@@ -136,46 +196,29 @@ public class LocalNlpModel implements NlpModel {
      * Logic: Tìm từ khóa substring -> Khoanh vùng (window) +/- 5 từ xung quanh -> Tính điểm sentiment vùng đó.
      */
     public Map<String, Double> analyzeReliefSentiment(String textNorm) {
-        Map<String, Double> result = new HashMap<>();
-        if (textNorm == null || textNorm.isBlank()) return result;
+        if (textNorm == null || textNorm.isBlank()) return new HashMap<>();
+        LexiconSnapshot lx = lexicon.get();
+        return reliefSentiment(lx, lx.vocab.encode(textNorm), taxonomyHits(lx, textNorm));
+    }
 
-        List<String> tokens = tokenize(textNorm);
+    private Map<String, Double> reliefSentiment(LexiconSnapshot lx, Vocabulary.Tokens tokens, Map<Integer, Integer> hits) {
+        Map<String, Double> result = new HashMap<>();
         int windowSize = 5; // Số từ trước và sau để xét ngữ cảnh
 
-        for (var entry : reliefMap.entrySet()) {
-            String category = entry.getKey();
-            List<String> phrases = entry.getValue();
-
-            for (String phrase : phrases) {
-                // Tìm cụm từ trực tiếp bằng substring (đơn giản và đáng tin cậy hơn)
-                int idx = textNorm.indexOf(phrase);
-                if (idx != -1) {
-                    // Tìm vị trí từ (token) tương ứng với vị trí ký tự idx
-                    List<String> phraseToks = tokenize(phrase);
-                    int charCount = 0;
-                    int tokenIdx = -1;
-                    
-                    for (int i = 0; i < tokens.size(); i++) {
-                        if (charCount == idx) {
-                            tokenIdx = i;
-                            break;
-                        }
-                        charCount += tokens.get(i).length() + 1; // +1 cho space
-                    }
-
-                    if (tokenIdx >= 0) {
-                        // Cắt cửa sổ ngữ cảnh
-                        int start = Math.max(0, tokenIdx - windowSize);
-                        int end = Math.min(tokens.size(), tokenIdx + phraseToks.size() + windowSize);
-                        
-                        List<String> contextWindow = tokens.subList(start, end);
-                        
-                        // Tính điểm sentiment cục bộ
-                        double localScore = lexicalScoreVI(contextWindow);
-                        
-                        // Cộng dồn điểm
-                        result.merge(category, localScore, Double::sum);
-                    }
+        // hits: vị trí ký tự lần xuất hiện đầu tiên của từng cụm (như indexOf)
+        for (var hit : hits.entrySet()) {
+            int idx = hit.getValue();
+            for (Phrase phrase : lx.reliefOf[hit.getKey()]) {
+                // Tìm vị trí từ (token) tương ứng với vị trí ký tự idx
+                int tokenIdx = Arrays.binarySearch(tokens.starts(), 0, tokens.size(), idx);
+
+                if (tokenIdx >= 0) {
+                    // Cắt cửa sổ ngữ cảnh
+                    int start = Math.max(0, tokenIdx - windowSize);
+                    int end = Math.min(tokens.size(), tokenIdx + phrase.tokens() + windowSize);
+
+                    // Tính điểm sentiment cục bộ, cộng dồn theo nhóm
+                    result.merge(phrase.item(), lexicalScoreVI(lx, tokens.ids(), start, end), Double::sum);
                 }
             }
         }
@@ -185,6 +228,14 @@ public class LocalNlpModel implements NlpModel {
         return result;
     }
 
+    /** Vị trí ký tự lần xuất hiện đầu tiên của từng cụm taxonomy trong câu, theo id cụm. */
+    private static Map<Integer, Integer> taxonomyHits(LexiconSnapshot lx, String textNorm) {
+        PhraseMatcher m = lx.taxonomyPhrases;
+        Map<Integer, Integer> first = new HashMap<>();
+        m.scan(textNorm, (p, end) -> first.putIfAbsent(p, end - m.length(p)));
+        return first;
+    }
+
     /** Tìm nhóm vật phẩm cứu trợ xuất hiện trong câu (match phrase không dấu). */
     public List<String> detectReliefItems(String textNorm) {
         // Sử dụng logic mới để đảm bảo nhất quán
@@ -196,11 +247,22 @@ public class LocalNlpModel implements NlpModel {
     /** Tách token/hashtag (lọc stopwords) để đếm xu hướng. */
     public List<String> tokenizeForTrends(String textNorm) {
         if (textNorm == null) return List.of();
-        String t = textNorm.replaceAll("[^a-z0-9#\\s]", " ").replaceAll("\\s+", " ").trim();
-        if (t.isBlank()) return List.of();
-        return Arrays.stream(t.split(" "))
-                .filter(s -> !s.isBlank() && !stop.contains(s) && s.length() > 1)
-                .toList();
+        Set<String> stop = lexicon.get().stop;
+        // token = chuỗi a-z0-9# liền nhau, mọi ký tự khác là ranh giới
+        List<String> out = new ArrayList<>();
+        for (int i = 0, n = textNorm.length(); i < n; ) {
+            if (!isTrendChar(textNorm.charAt(i))) { i++; continue; }
+            int start = i;
+            while (i < n && isTrendChar(textNorm.charAt(i))) i++;
+            if (i - start < 2) continue;
+            String w = textNorm.substring(start, i);
+            if (!stop.contains(w)) out.add(w);
+        }
+        return out;
+    }
+
+    private static boolean isTrendChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '#';
     }
 
     /* ================= Nội bộ: chấm điểm lexicon ================= */
@@ -221,59 +283,54 @@ public class LocalNlpModel implements NlpModel {
         return -1;
     }
 
-    private double lexicalScoreVI(List<String> toks) {
+    /** Chấm điểm ids[from, to) (cửa sổ ngữ cảnh coi như một câu riêng). */
+    private static double lexicalScoreVI(LexiconSnapshot lx, int[] ids, int from, int to) {
+        int[] phrases = longestPhrases(lx, ids, from, to);
         int pos = 0, neg = 0;
 
-        for (int i = 0; i < toks.size(); i++) {
-            Match m = matchAt(toks, i, viPos.phrases, viNeg.phrases);
-            if (m.sign == 0) {
-                int sign = (viPos.unigrams.contains(toks.get(i)) ? +1 : 0) - (viNeg.unigrams.contains(toks.get(i)) ? 1 : 0);
+        for (int i = from; i < to; i++) {
+            int m = phrases[i - from];
+            int sign = Integer.signum(m), len = Math.abs(m);
+            if (sign == 0) {
+                int f = lx.flagsOf(ids[i]);
+                sign = ((f & LexiconSnapshot.POS) != 0 ? +1 : 0) - ((f & LexiconSnapshot.NEG) != 0 ? 1 : 0);
                 if (sign == 0) continue;
-                m = new Match(sign, 1);
+                len = 1;
             }
 
             double w = 1.0;
-            if (i > 0) {
-                String prev = toks.get(i - 1);
-                if (BOOSTERS.contains(prev)) w *= 1.25;
-                if (DAMPENERS.contains(prev)) w *= 0.8;
+            if (i > from) {
+                int prev = lx.flagsOf(ids[i - 1]);
+                if ((prev & LexiconSnapshot.BOOST) != 0) w *= 1.25;
+                if ((prev & LexiconSnapshot.DAMP) != 0) w *= 0.8;
             }
             boolean negated = false;
-            for (int k = Math.max(0, i - 3); k < i; k++) {
-                if (VI_NEGATORS.contains(toks.get(k))) { negated = true; break; }
+            for (int k = Math.max(from, i - 3); k < i; k++) {
+                if ((lx.flagsOf(ids[k]) & LexiconSnapshot.NEGATOR) != 0) { negated = true; break; }
             }
-            double signed = (m.sign > 0 ? +1 : -1) * w * (negated ? -1 : 1);
+            double signed = (sign > 0 ? +1 : -1) * w * (negated ? -1 : 1);
 
             if (signed > 0) pos++; else neg++;
-            i += (m.len - 1);
+            i += (len - 1);
         }
         return pos - neg;
     }
 
-    private static final class Match { final int sign; final int len; Match(int s,int l){ sign=s; len=l; } }
-
-    private Match matchAt(List<String> toks, int i, List<List<String>> posPhrases, List<List<String>> negPhrases) {
-        int bestLen = 0;
-        int bestSign = 0;
-
-        for (var p : posPhrases) {
-            int L = p.size();
-            if (L == 0 || i + L > toks.size()) continue;
-            boolean ok = true;
-            for (int k = 0; k < L; k++) if (!toks.get(i + k).equals(p.get(k))) { ok = false; break; }
-            if (ok && L > bestLen) { bestLen = L; bestSign = +1; }
-        }
-        for (var p : negPhrases) {
-            int L = p.size();
-            if (L == 0 || i + L > toks.size()) continue;
-            boolean ok = true;
-            for (int k = 0; k < L; k++) if (!toks.get(i + k).equals(p.get(k))) { ok = false; break; }
-            if (ok && L > bestLen) { bestLen = L; bestSign = -1; }
-        }
-        return bestLen == 0 ? new Match(0,0) : new Match(bestSign, bestLen);
+    /**
+     * Cụm cảm xúc dài nhất bắt đầu tại từng token của ids[from, to), một lượt quét automaton:
+     * out[i - from] = +độ dài (pos), -độ dài (neg), 0 nếu không có cụm nào.
+     */
+    static int[] longestPhrases(LexiconSnapshot lx, int[] ids, int from, int to) {
+        PhraseMatcher m = lx.sentimentPhrases;
+        int[] best = new int[to - from];
+        m.scan(ids, from, to, (p, end) -> {
+            int len = m.length(p), at = end - len - from;
+            if (len > Math.abs(best[at])) best[at] = lx.phraseSign[p] * len;
+        });
+        return best;
     }
 
-    /* ================= IO & helpers ================= */
+    /* ================= Helpers ================= */
 
     private static int countChar(String s, char c){ int n=0; for (int i=0;i<s.length();i++) if (s.charAt(i)==c) n++; return n; }
     private static double emojiDelta(String s){
@@ -282,123 +339,4 @@ public class LocalNlpModel implements NlpModel {
         return Math.min(1.0, plus*0.15) - Math.min(1.0, minus*0.2);
     }
     private static int countAny(String s, String... xs){ int n=0; for (var x: xs) if (s.contains(x)) n++; return n; }
-
-    /** Tokenize KHÔNG DẤU: tách theo khoảng trắng, giữ a-z0-9 và # */
-    private static List<String> tokenize(String text){
-        var raw = TOKEN.split(text.trim().toLowerCase(Locale.ROOT));
-        var list = new ArrayList<String>(raw.length);
-        for (var w: raw){
-            w = w.replaceAll("[^a-z0-9#]+","");
-            if (!w.isBlank()) list.add(w);
-        }
-        return list;
-    }
-
-    private record Lexicon(Set<String> unigrams, List<List<String>> phrases) {}
-
-    private Lexicon loadLexiconFS(Path file, List<String> fallbackPlain) {
-        // Chuẩn hoá fallback theo cùng tokenizer
-        Set<String> uni = new LinkedHashSet<>();
-        List<List<String>> phr = new ArrayList<>();
-        for (String line : fallbackPlain) addLineToLexicon(line, uni, phr);
-
-        try {
-            if (Files.isRegularFile(file)) {
-                try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        line = line.trim().toLowerCase(Locale.ROOT);
-                        if (line.isEmpty() || line.startsWith("#")) continue;
-                        addLineToLexicon(line, uni, phr);
-                    }
-                }
-            }
-        } catch (Exception ignore) { /* fallback */ }
-
-        phr.sort((a,b) -> Integer.compare(b.size(), a.size()));
-        return new Lexicon(uni, phr);
-    }
-
-    private void addLineToLexicon(String line, Set<String> uni, List<List<String>> phr) {
-        List<String> toks = tokenize(line);
-        if (toks.isEmpty()) return;
-        if (toks.size() == 1) uni.add(toks.get(0));
-        else phr.add(toks);
-    }
-
-    private void loadList(Path path, List<String> fallback, Set<String> target) {
-        target.clear();
-        target.addAll(fallback);
-        try {
-            if (Files.isRegularFile(path)) {
-                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
-                    String t = line.trim().toLowerCase(Locale.ROOT);
-                    if (t.isEmpty() || t.startsWith("#")) continue;
-                    target.add(t);
-                }
-            }
-        } catch (Exception ignore) { }
-    }
-
-    private void loadYamlLike(Path file, String rootKey, Map<String, List<String>> target) {
-        if (!Files.isRegularFile(file)) return;
-        try {
-            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-            boolean inRoot = false;
-            String currentType = null;
-            int rootIndent = -1;
-            
-            for (String raw : lines) {
-                String s = raw.stripTrailing();
-                String t = s.trim();
-                
-                // Bỏ qua dòng trắng và comment
-                if (t.isBlank() || t.startsWith("#")) continue;
-
-                // Tìm level indentation
-                int indent = s.length() - s.stripLeading().length();
-
-                if (!inRoot) {
-                    if (t.equals(rootKey + ":")) {
-                        inRoot = true;
-                        rootIndent = indent;
-                    }
-                    continue;
-                }
-
-                // Kiểm tra xem có ra khỏi root không (indent <= root level và không phải dòng trắng)
-                if (indent <= rootIndent && !t.isBlank()) {
-                    break; // ra khỏi root section
-                }
-
-                if (t.endsWith(":")) {
-                    // Đây là category (housing, infrastructure, flood...)
-                    currentType = t.substring(0, t.length() - 1).trim();
-                    target.putIfAbsent(currentType, new ArrayList<>());
-                } else if (t.startsWith("-")) {
-                    // Đây là item trong category
-                    if (currentType == null) continue;
-                    String phrase = t.substring(1).trim();
-                    if (phrase.startsWith("\"") && phrase.endsWith("\"") && phrase.length() >= 2) {
-                        phrase = phrase.substring(1, phrase.length() - 1);
-                    }
-                    phrase = phrase.toLowerCase(Locale.ROOT);
-                    phrase = java.text.Normalizer.normalize(phrase, java.text.Normalizer.Form.NFD)
-                            .replaceAll("\\p{M}+", "")
-                            .replace("đ","d").replace("Đ","D")
-                            .replaceAll("\\s+"," ").trim();
-                    target.get(currentType).add(phrase);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("[LocalNlpModel] loadYamlLike failed: " + e.getMessage());
-        }
-    }
-
-    private Path autoDetectLexiconRoot() {
-        Path cwd = Path.of("").toAbsolutePath();
-        Path pref = cwd.resolveSibling("data").resolve("lexicons").resolve("vi"); // ../data/lexicons/vi
-        Path alt  = cwd.resolve("data").resolve("lexicons").resolve("vi");        // ./data/lexicons/vi
-        return Files.isDirectory(pref) ? pref : alt;
-    }
-}
\ No newline at end of file
+}
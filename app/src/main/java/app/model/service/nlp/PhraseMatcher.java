@@ -0,0 +1,177 @@
+package app.model.service.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automaton Aho–Corasick trên dãy ký hiệu int không âm (id token hoặc mã ký tự): mọi cụm được nạp
+ * một lần lúc dựng, sau đó một lượt quét tuyến tính báo mọi lần xuất hiện của mọi cụm, thời gian
+ * không phụ thuộc số cụm trong lexicon.
+ *
+ * Bảng chuyển trạng thái lưu dạng nén theo hàng (first/keys/next, ký hiệu của mỗi trạng thái tăng
+ * dần, tìm nhị phân) nên vài trăm nghìn cụm vẫn chỉ tốn vài mảng int. Dựng xong thì chỉ đọc, dùng
+ * chung giữa các luồng.
+ */
+final class PhraseMatcher {
+
+    /** Nhận một lần khớp: id cụm và vị trí ngay sau ký hiệu cuối của cụm. */
+    interface Hits { void hit(int pattern, int end); }
+
+    static final PhraseMatcher EMPTY = new Builder().build();
+
+    // trạng thái 0 = gốc; chuyển của trạng thái s nằm ở [first[s], first[s + 1])
+    private final int[] first, keys, next;
+    private final int[] fail;
+    private final int[] out;       // cụm kết thúc đúng tại trạng thái, -1 nếu không có
+    private final int[] outLink;   // trạng thái gần nhất theo chuỗi fail có out >= 0, 0 nếu không có
+    private final int[] lengths;   // số ký hiệu của từng cụm
+
+    private PhraseMatcher(int[] first, int[] keys, int[] next, int[] out, int[] lengths, int[] fail, int[] outLink) {
+        this.first = first;
+        this.keys = keys;
+        this.next = next;
+        this.out = out;
+        this.lengths = lengths;
+        this.fail = fail;
+        this.outLink = outLink;
+    }
+
+    /** Dựng từ bảng chuyển đã có: tính liên kết fail/outLink. */
+    private PhraseMatcher(int[] first, int[] keys, int[] next, int[] out, int[] lengths) {
+        this(first, keys, next, out, lengths, new int[out.length], new int[out.length]);
+
+        // BFS từ gốc: fail của con = trạng thái dài nhất là hậu tố thật sự và cũng là tiền tố của một cụm
+        int[] queue = new int[out.length];
+        int head = 0, tail = 0;
+        for (int e = first[0]; e < first[1]; e++) queue[tail++] = next[e];
+        while (head < tail) {
+            int s = queue[head++];
+            for (int e = first[s]; e < first[s + 1]; e++) {
+                int child = next[e], sym = keys[e];
+                int f = fail[s];
+                int to;
+                while ((to = step(f, sym)) < 0 && f != 0) f = fail[f];
+                fail[child] = Math.max(to, 0);
+                int fc = fail[child];
+                outLink[child] = out[fc] >= 0 ? fc : outLink[fc];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /** Toàn bộ bảng (first, keys, next, out, lengths, fail, outLink), để ghi cache (LexiconCache). */
+    int[][] tables() { return new int[][]{first, keys, next, out, lengths, fail, outLink}; }
+
+    /** Dựng lại từ tables() mà không tính lại gì; null nếu bảng không khớp nhau. */
+    static PhraseMatcher restore(int[][] t) {
+        if (t.length != 7) return null;
+        int states = t[3].length;
+        if (t[0].length != states + 1 || t[1].length != t[2].length || t[5].length != states || t[6].length != states
+                || states == 0 || t[0][states] != t[1].length) return null;
+        return new PhraseMatcher(t[0], t[1], t[2], t[3], t[4], t[5], t[6]);
+    }
+
+    /** Số cụm khác nhau. */
+    int size() { return lengths.length; }
+
+    /** Số ký hiệu của cụm. */
+    int length(int pattern) { return lengths[pattern]; }
+
+    /** Quét symbols[from, to); ký hiệu âm (token ngoài từ vựng) không khớp cụm nào. */
+    void scan(int[] symbols, int from, int to, Hits hits) {
+        if (lengths.length == 0) return;
+        int s = 0;
+        for (int i = from; i < to; i++) {
+            s = advance(s, symbols[i]);
+            if (s != 0) report(s, i + 1, hits);
+        }
+    }
+
+    /** Quét từng ký tự (char) của text, khớp như String.contains / indexOf. */
+    void scan(CharSequence text, Hits hits) {
+        if (lengths.length == 0) return;
+        int s = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            s = advance(s, text.charAt(i));
+            if (s != 0) report(s, i + 1, hits);
+        }
+    }
+
+    private int advance(int s, int sym) {
+        if (sym < 0) return 0;
+        int to;
+        while ((to = step(s, sym)) < 0 && s != 0) s = fail[s];
+        return Math.max(to, 0);
+    }
+
+    private void report(int s, int end, Hits hits) {
+        for (int t = out[s] >= 0 ? s : outLink[s]; t != 0; t = outLink[t]) hits.hit(out[t], end);
+    }
+
+    /** Trạng thái kế tiếp theo cạnh trực tiếp, -1 nếu không có. */
+    private int step(int s, int sym) {
+        int e = Arrays.binarySearch(keys, first[s], first[s + 1], sym);
+        return e >= 0 ? next[e] : -1;
+    }
+
+    /** Nạp cụm rồi build(); không an toàn đa luồng. */
+    static final class Builder {
+        private final Map<Long, Integer> edges = new HashMap<>();
+        private final List<Integer> out = new ArrayList<>(List.of(-1));
+        private final List<Integer> lengths = new ArrayList<>();
+
+        /** Thêm cụm (khác rỗng); trả về id cụm, cụm đã có thì trả về id cũ. */
+        int add(int[] symbols) {
+            if (symbols.length == 0) throw new IllegalArgumentException("empty phrase");
+            int s = 0;
+            for (int sym : symbols) {
+                if (sym < 0) throw new IllegalArgumentException("negative symbol " + sym);
+                long key = (long) s << 32 | sym;
+                Integer to = edges.get(key);
+                if (to == null) {
+                    to = out.size();
+                    out.add(-1);
+                    edges.put(key, to);
+                }
+                s = to;
+            }
+            if (out.get(s) < 0) {
+                out.set(s, lengths.size());
+                lengths.add(symbols.length);
+            }
+            return out.get(s);
+        }
+
+        /** Thêm cụm theo từng ký tự. */
+        int add(CharSequence phrase) {
+            int[] symbols = new int[phrase.length()];
+            for (int i = 0; i < symbols.length; i++) symbols[i] = phrase.charAt(i);
+            return add(symbols);
+        }
+
+        PhraseMatcher build() {
+            int states = out.size();
+            long[] sorted = new long[edges.size()];
+            int k = 0;
+            for (long key : edges.keySet()) sorted[k++] = key;
+            Arrays.sort(sorted);   // theo (trạng thái cha, ký hiệu)
+
+            int[] first = new int[states + 1], keys = new int[sorted.length], next = new int[sorted.length];
+            for (int e = 0; e < sorted.length; e++) {
+                keys[e] = (int) sorted[e];
+                next[e] = edges.get(sorted[e]);
+                first[(int) (sorted[e] >>> 32) + 1]++;
+            }
+            for (int s = 0; s < states; s++) first[s + 1] += first[s];
+
+            int[] o = new int[states];
+            for (int s = 0; s < states; s++) o[s] = out.get(s);
+            int[] len = new int[lengths.size()];
+            for (int p = 0; p < len.length; p++) len[p] = lengths.get(p);
+            return new PhraseMatcher(first, keys, next, o, len);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package app.model.service.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Từ vựng (token -> id dày 0..n-1) kèm bộ tách token KHÔNG DẤU của LocalNlpModel.
+ *
+ * Quy tắc tách (giống hệt bộ tách regex cũ, VocabularyTest đối chiếu): ranh giới token là ký tự
+ * khoảng trắng Unicode (\p{Z}); trong một token, chữ hoa về chữ thường, chỉ giữ a-z0-9#, ký tự khác
+ * bị bỏ (nên "a-bit" -> "abit", còn tab/xuống dòng không tách token).
+ *
+ * encode đi qua chuỗi một lượt bằng bảng lớp ký tự: không regex, không tạo String cho từng token;
+ * id được tra trực tiếp trên đoạn ký tự của chuỗi gốc (băm tính dần, so khớp bỏ qua ký tự bị loại).
+ * intern chỉ dùng lúc nạp lexicon; sau đó chỉ đọc, dùng chung giữa các luồng.
+ */
+final class Vocabulary {
+
+    private static final char SPLIT = ' ', DROP = 0;
+
+    /** Lớp của ký tự ASCII: ký tự giữ lại (đã về chữ thường), SPLIT hoặc DROP. */
+    private static final char[] ASCII = new char[128];
+    static {
+        for (char c = 'a'; c <= 'z'; c++) ASCII[c] = c;
+        for (char c = 'A'; c <= 'Z'; c++) ASCII[c] = (char) (c + 32);
+        for (char c = '0'; c <= '9'; c++) ASCII[c] = c;
+        ASCII['#'] = '#';
+        ASCII[' '] = SPLIT;
+    }
+
+    /** Một bài đã tách: size token đầu của ids/starts có nghĩa. */
+    record Tokens(int[] ids, int[] starts, int size) {}
+
+    private String[] words = new String[16];
+    private int[] slots = new int[32];   // id + 1, 0 = trống
+    private int size;
+
+    int size() { return size; }
+
+    /** Các token theo id (để ghi cache); of(words()) cho lại đúng từ vựng này. */
+    String[] words() { return Arrays.copyOf(words, size); }
+
+    static Vocabulary of(String[] words) {
+        Vocabulary v = new Vocabulary();
+        for (String w : words) v.intern(w);
+        return v;
+    }
+
+    /** Id của token, cấp id mới nếu chưa có. */
+    int intern(String token) {
+        int h = hash(token), mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                if (size == words.length) words = Arrays.copyOf(words, size * 2);
+                words[size] = token;
+                slots[i] = ++size;
+                if (size * 2 > slots.length) rehash();
+                return size - 1;
+            }
+            if (words[s - 1].equals(token)) return s - 1;
+        }
+    }
+
+    /**
+     * Tách text thành id (-1 = ngoài từ vựng) và starts[i] = tổng (độ dài + 1) của các token trước i,
+     * tức vị trí ký tự nếu các token nối nhau bằng một dấu cách.
+     */
+    Tokens encode(String text) {
+        int n = text.length();
+        int cap = (n + 1) / 2;   // hai token cách nhau ít nhất một ký tự tách
+        int[] ids = new int[cap], starts = new int[cap];
+        int count = 0, chars = 0;
+        int from = -1, len = 0, h = 0;
+        for (int i = 0; i <= n; i++) {
+            char k = i < n ? classOf(text.charAt(i)) : SPLIT;
+            if (k == SPLIT) {
+                if (len > 0) {
+                    ids[count] = find(text, from, i, len, h);
+                    starts[count++] = chars;
+                    chars += len + 1;
+                }
+                from = -1;
+                len = 0;
+                h = 0;
+            } else if (k != DROP) {
+                if (from < 0) from = i;
+                h = 31 * h + k;
+                len++;
+            }
+        }
+        return new Tokens(ids, starts, count);
+    }
+
+    /** Như encode nhưng trả về chính các token (dùng lúc nạp lexicon). */
+    static List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char k = i < n ? classOf(text.charAt(i)) : SPLIT;
+            if (k == SPLIT) {
+                if (!sb.isEmpty()) out.add(sb.toString());
+                sb.setLength(0);
+            } else if (k != DROP) {
+                sb.append(k);
+            }
+        }
+        return out;
+    }
+
+    /** Ký tự giữ lại (chữ thường), SPLIT hoặc DROP. */
+    private static char classOf(char c) {
+        if (c < 128) return ASCII[c];
+        if (Character.isSpaceChar(c)) return SPLIT;           // \p{Z}
+        char lower = Character.toLowerCase(c);                 // vd. U+0130 -> i, U+212A -> k
+        return lower < 128 && lower != ' ' ? ASCII[lower] : DROP;
+    }
+
+    /** Tra id của token nằm trong text[from, to) (bỏ qua ký tự DROP), len ký tự giữ lại, băm h. */
+    private int find(String text, int from, int to, int len, int h) {
+        int mask = slots.length - 1;
+        for (int i = mix(h) & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) return -1;
+            if (sameToken(words[s - 1], text, from, to, len)) return s - 1;
+        }
+    }
+
+    private static boolean sameToken(String w, String text, int from, int to, int len) {
+        if (w.length() != len) return false;
+        for (int i = from, j = 0; i < to; i++) {
+            char k = classOf(text.charAt(i));
+            if (k == DROP) continue;
+            if (w.charAt(j++) != k) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hash(words[id]) & mask;
+            while (grown[i] != 0) i = (i + 1) & mask;
+            grown[i] = id + 1;
+        }
+        slots = grown;
+    }
+
+    /** Băm giống String.hashCode (để encode tính dần được), trộn thêm bit cao. */
+    private static int hash(String token) { return mix(token.hashCode()); }
+
+    private static int mix(int h) { return h ^ (h >>> 16) ^ (h >>> 7); }
+}
@@ -0,0 +1,216 @@
+package app.model.service.pipeline;
+
+import app.model.domain.RawPost;
+import app.model.service.ingest.QuerySpec;
+import app.model.service.ingest.SocialConnector;
+import app.model.service.pipeline.PipelineService.ConnectorTiming;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Đọc mọi connector cùng lúc, mỗi connector trên một virtual thread, và gộp thành một stream lười.
+ * Bản ghi đi qua hàng đợi có giới hạn theo từng cụm nhỏ, nên không connector nào bị đọc hết vào bộ
+ * nhớ: khi phía sau chậm, các luồng đọc tự dừng chờ.
+ *
+ * Thứ tự bản ghi trong cùng một connector được giữ nguyên; giữa các connector là thứ tự đến.
+ * Connector ném lỗi (lúc fetch hoặc giữa chừng) chỉ bị dừng, các bản ghi đã đọc vẫn được giữ.
+ * Connector chạy quá timeout thì bị ngắt. Thời gian chờ vì hàng đợi đầy không tính vào timeout.
+ * Thời gian và kết quả từng connector có ở timings() sau khi stream đã đóng.
+ */
+final class ConnectorFanOut {
+
+    private static final int CHUNK = 256;
+    private static final int CHUNKS_PER_CONNECTOR = 4;
+
+    private final List<SocialConnector> connectors;
+    private final Duration timeout;
+    private final List<Source> sources = new ArrayList<>();
+    private ExecutorService pool;
+
+    /** timeout null hoặc không dương = không giới hạn. */
+    ConnectorFanOut(List<SocialConnector> connectors, Duration timeout) {
+        this.connectors = connectors == null ? List.of() : connectors;
+        this.timeout = timeout == null || timeout.isZero() || timeout.isNegative() ? null : timeout;
+    }
+
+    Stream<RawPost> fetch(QuerySpec spec) {
+        if (connectors.isEmpty()) return Stream.empty();
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(CHUNKS_PER_CONNECTOR * connectors.size());
+        pool = Executors.newVirtualThreadPerTaskExecutor();
+        for (SocialConnector c : connectors) {
+            Source s = new Source(c);
+            sources.add(s);
+            s.task = pool.submit(() -> s.produce(spec, queue));
+        }
+        return StreamSupport.stream(new Merge(queue), false)
+                .flatMap(List::stream)
+                .onClose(this::close);
+    }
+
+    /** Kết quả từng connector theo thứ tự khai báo; gọi sau khi stream đã đóng. */
+    List<ConnectorTiming> timings() {
+        List<ConnectorTiming> out = new ArrayList<>(sources.size());
+        for (Source s : sources) {
+            long end = s.finished != 0 ? s.finished : System.nanoTime();
+            out.add(new ConnectorTiming(s.connector.id(), s.posts, Duration.ofNanos(end - s.started), s.status));
+        }
+        return out;
+    }
+
+    private void close() {
+        for (Source s : sources) s.stop(ConnectorTiming.Status.CANCELLED);
+        if (pool != null) pool.shutdownNow();
+    }
+
+    /** Một cụm bản ghi của một connector; posts == null = connector đã xong. */
+    private record Chunk(Source source, List<RawPost> posts) {}
+
+    private final class Source {
+        final SocialConnector connector;
+        final long started = System.nanoTime();
+        volatile long finished;
+        volatile int posts;
+        volatile ConnectorTiming.Status status = ConnectorTiming.Status.RUNNING;
+        volatile long blockedNanos, putSince;
+        Future<?> task;
+
+        Source(SocialConnector connector) { this.connector = connector; }
+
+        void produce(QuerySpec spec, BlockingQueue<Chunk> queue) {
+            List<RawPost> buf = new ArrayList<>(CHUNK);
+            try {
+                try (Stream<RawPost> stream = connector.fetch(spec)) {
+                    if (stream != null) {
+                        for (Iterator<RawPost> it = stream.iterator(); it.hasNext(); ) {
+                            buf.add(it.next());
+                            if (buf.size() == CHUNK) {
+                                put(queue, buf);
+                                buf = new ArrayList<>(CHUNK);
+                            }
+                        }
+                    }
+                } catch (RuntimeException | Error ex) {
+                    // Error cũng phải gửi cụm kết thúc, nếu không Merge chờ mãi ở queue.take()
+                    if (status != ConnectorTiming.Status.RUNNING) return;   // bị ngắt từ ngoài
+                    System.err.println("[WARN] Connector " + connector.id() + " failed: " + ex.getMessage());
+                    put(queue, buf);
+                    finish(queue, ConnectorTiming.Status.FAILED);
+                    return;
+                }
+                put(queue, buf);
+                finish(queue, ConnectorTiming.Status.OK);
+            } catch (InterruptedException e) {
+                // timeout hoặc stream gộp đã đóng
+            }
+        }
+
+        private void put(BlockingQueue<Chunk> queue, List<RawPost> buf) throws InterruptedException {
+            if (buf.isEmpty()) return;
+            putSince = System.nanoTime();
+            try {
+                queue.put(new Chunk(this, buf));
+            } finally {
+                blockedNanos += System.nanoTime() - putSince;
+                putSince = 0;
+            }
+            posts += buf.size();
+        }
+
+        private void finish(BlockingQueue<Chunk> queue, ConnectorTiming.Status result) throws InterruptedException {
+            if (complete(result)) queue.put(new Chunk(this, null));
+        }
+
+        /** Chuyển khỏi RUNNING đúng một lần (luồng đọc xong, hoặc bị ngắt từ ngoài). */
+        synchronized boolean complete(ConnectorTiming.Status result) {
+            if (status != ConnectorTiming.Status.RUNNING) return false;
+            status = result;
+            finished = System.nanoTime();
+            return true;
+        }
+
+        /** Thời gian đã chạy, trừ lúc chờ hàng đợi đầy. */
+        long busyNanos(long now) {
+            long since = putSince;
+            return now - started - blockedNanos - (since != 0 ? now - since : 0);
+        }
+
+        boolean running() { return status == ConnectorTiming.Status.RUNNING; }
+
+        /** Dừng connector đang chạy; false nếu nó đã xong từ trước. */
+        boolean stop(ConnectorTiming.Status result) {
+            if (!complete(result)) return false;
+            if (task != null) task.cancel(true);
+            return true;
+        }
+    }
+
+    /** Lấy cụm từ hàng đợi cho tới khi mọi connector xong, ngắt connector quá hạn. */
+    private final class Merge extends Spliterators.AbstractSpliterator<List<RawPost>> {
+        private final BlockingQueue<Chunk> queue;
+        private int live = connectors.size();
+
+        Merge(BlockingQueue<Chunk> queue) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<RawPost>> action) {
+            while (live > 0) {
+                Chunk c;
+                try {
+                    if (timeout == null) c = queue.take();
+                    else {
+                        long wait = expireAndWait();
+                        if (live == 0) break;
+                        c = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (c == null) continue;
+                if (c.posts() == null) {
+                    live--;
+                    continue;
+                }
+                action.accept(c.posts());
+                return true;
+            }
+            pool.shutdown();
+            return false;
+        }
+
+        /** Ngắt connector quá hạn; trả về thời gian chờ tới hạn gần nhất. */
+        private long expireAndWait() {
+            long now = System.nanoTime(), limit = timeout.toNanos(), wait = limit;
+            for (Source s : sources) {
+                if (!s.running()) continue;
+                long left = limit - s.busyNanos(now);
+                if (left <= 0) {
+                    if (s.stop(ConnectorTiming.Status.TIMED_OUT)) {
+                        live--;
+                        System.err.println("[WARN] Connector " + s.connector.id() + " timed out after " + timeout.toMillis() + " ms (" + s.posts + " posts kept)");
+                    }
+                } else {
+                    wait = Math.min(wait, left);
+                }
+            }
+            return Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package app.model.service.pipeline;
+
+/**
+ * Kích thước các stage của pipeline (xem StagedPipeline).
+ *
+ * - batchSize         : số bài mỗi lô đi qua các hàng đợi.
+ * - inFlight          : số lô tối đa đang nằm giữa hai stage tuần tự (ingest -> lọc, lọc -> ghi DB);
+ *                       cùng batchSize quyết định trần bộ nhớ của một lượt chạy.
+ * - preprocessWorkers : số luồng tiền xử lý.
+ * - nlpWorkers        : số luồng NLP (sentiment, damage, relief).
+ */
+public record PipelineOptions(int batchSize, int inFlight, int preprocessWorkers, int nlpWorkers) {
+
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    public PipelineOptions {
+        batchSize = Math.max(1, batchSize);
+        preprocessWorkers = Math.max(1, preprocessWorkers);
+        nlpWorkers = Math.max(1, nlpWorkers);
+        inFlight = Math.max(inFlight, Math.max(preprocessWorkers, nlpWorkers) + 1);
+    }
+
+    /** Mọi stage một luồng (vẫn chạy gối nhau giữa các stage). */
+    public static final PipelineOptions SINGLE = new PipelineOptions(DEFAULT_BATCH_SIZE, 2, 1, 1);
+
+    /** Tiền xử lý và NLP chia nhau số nhân CPU (ghi SQLite chạy trên luồng gọi). */
+    public static PipelineOptions defaults() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int pre = Math.max(1, cores / 3), nlp = Math.max(1, cores - pre - 1);
+        return new PipelineOptions(DEFAULT_BATCH_SIZE, 2 * Math.max(pre, nlp), pre, nlp);
+    }
+
+    public PipelineOptions withBatchSize(int size) {
+        return new PipelineOptions(size, inFlight, preprocessWorkers, nlpWorkers);
+    }
+
+    public PipelineOptions withWorkers(int preprocess, int nlp) {
+        return new PipelineOptions(batchSize, inFlight, preprocess, nlp);
+    }
+
+    /** Số luồng NLP; inFlight nới theo để mọi luồng đều có lô để chấm. */
+    public PipelineOptions withNlpWorkers(int nlp) {
+        return new PipelineOptions(batchSize, Math.max(inFlight, 2 * nlp), preprocessWorkers, nlp);
+    }
+}
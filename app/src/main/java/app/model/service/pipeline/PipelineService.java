@@ -8,13 +8,20 @@ import app.model.repository.AnalyticsRepo;
 import app.model.repository.PostsRepo;
 import app.model.repository.RunsRepo;
 import app.model.repository.SQLite;
+import app.model.repository.WatermarkRepo;
+import app.model.service.dedup.DedupOptions;
+import app.model.service.dedup.PostDeduplicator;
 import app.model.service.ingest.FileConnector;
+import app.model.service.ingest.IngestOptions;
 import app.model.service.ingest.QuerySpec;
+import app.model.service.ingest.SnapshotConnector;
 import app.model.service.ingest.SocialConnector;
 import app.model.service.nlp.LocalNlpModel;
 import app.model.service.nlp.NlpModel;
 import app.model.service.preprocess.DefaultPreprocessService;
+import app.model.service.preprocess.LanguageDetector;
 import app.model.service.preprocess.PreprocessService;
+import app.util.VnFold;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
@@ -24,18 +31,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.time.*;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Pipeline:
- *  1) fetch từ connectors (Stream)
+ *  1) fetch từ connectors (song song trên virtual thread, Stream lười, không gom toàn bộ raw vào bộ nhớ)
  *  2) preprocess (chuẩn hoá VI, không dấu)
  *  3) lọc theo keyword sau chuẩn hoá
  *  4) NLP (LocalNlpModel)
  *  5) lưu posts, sentiments
  *  6) aggregate theo ngày (overall_sentiment)
  *  7) Damage/Relief + Task 3 & 4 (ghi trực tiếp DB)
+ *
+ * Các bước chạy gối nhau theo lô trên các luồng riêng, nối bằng hàng đợi có giới hạn
+ * (StagedPipeline, cấu hình qua setStages). Mỗi lượt chạy được mô tả bằng một RunPlan và thực thi
+ * ở run(RunPlan); các hàm run/runIncremental khác chỉ dựng plan.
  */
 public class PipelineService {
 
@@ -63,12 +73,14 @@ public class PipelineService {
         SQLite db = new SQLite(dbPath.toString());
         db.migrate();
 
-        // connectors: offline drop-folder
-        var connectors = List.<SocialConnector>of(new FileConnector(collectionsRoot));
+        // connectors: offline drop-folder (parse song song, giữ thứ tự để kết quả tái lập được;
+        // textNorm tính luôn trên luồng đọc và đi kèm bản ghi, tiền xử lý không tính lại)
+        var connectors = List.<SocialConnector>of(new FileConnector(collectionsRoot,
+                IngestOptions.parallel().withIndex(true).withTextNorm(true)));
 
         // services
         PreprocessService preprocess = new DefaultPreprocessService();
-        NlpModel nlp = new LocalNlpModel();
+        NlpModel nlp = LocalNlpModel.shared();   // dùng chung với Dashboard, tự nạp lại lexicon
 
         // repos
         PostsRepo postsRepo = new PostsRepo(db);
@@ -87,6 +99,13 @@ public class PipelineService {
     private final RunsRepo runsRepo;
     private final AnalyticsRepo analyticsRepo;
     private final NlpModel nlp;
+    private final WatermarkRepo watermarkRepo;
+    private DedupOptions dedup = DedupOptions.IDS;
+    /** Ngôn ngữ được chấm bằng nlp mặc định; null = mọi ngôn ngữ. */
+    private Set<String> nlpLanguages = Set.of(LanguageDetector.VI, LanguageDetector.UNKNOWN);
+    private final Map<String, NlpModel> nlpByLang = new HashMap<>();
+    private PipelineOptions stages = PipelineOptions.defaults();
+    private Duration connectorTimeout;   // null = không giới hạn
 
     public PipelineService(SQLite db,
                            List<SocialConnector> connectors,
@@ -102,6 +121,55 @@ public class PipelineService {
         this.runsRepo = runsRepo;
         this.analyticsRepo = analyticsRepo;
         this.nlp = nlp;
+        this.watermarkRepo = new WatermarkRepo(db);
+    }
+
+    /**
+     * Khử trùng lặp trước tiền xử lý/NLP (mặc định: theo id). Bài trùng id giữa các file
+     * raw-*.jsonl chỉ được phân tích một lần; bật nearDuplicate để bỏ cả bài gần trùng nội dung.
+     */
+    public void setDedup(DedupOptions options) {
+        this.dedup = options != null ? options : DedupOptions.NONE;
+    }
+
+    /** Số luồng của từng stage và kích thước lô (mặc định theo số nhân CPU). */
+    public void setStages(PipelineOptions options) {
+        this.stages = options != null ? options : PipelineOptions.defaults();
+    }
+
+    /** Số luồng chấm NLP (sentiment, damage, relief); kết quả vẫn được ghi theo thứ tự bài. */
+    public void setNlpThreads(int threads) {
+        this.stages = stages.withNlpWorkers(threads);
+    }
+
+    /**
+     * Thời gian tối đa cho mỗi connector trong một lượt (không tính lúc chờ pipeline phía sau);
+     * quá hạn thì connector bị ngắt, bản ghi đã đọc vẫn được giữ và RunResult.complete = false.
+     * Mặc định null = không giới hạn.
+     */
+    public void setConnectorTimeout(Duration timeout) {
+        this.connectorTimeout = timeout;
+    }
+
+    /**
+     * Chỉ chấm NLP cho các ngôn ngữ này (CleanPost.lang). Mặc định vi + und vì lexicon hiện chỉ
+     * có tiếng Việt; bài ngôn ngữ khác vẫn được lưu nhưng không phân tích. null = mọi ngôn ngữ.
+     */
+    public void setNlpLanguages(Set<String> langs) {
+        this.nlpLanguages = langs == null ? null : Set.copyOf(langs);
+    }
+
+    /** Dùng model riêng cho một ngôn ngữ (vd. model tiếng Anh); ưu tiên hơn setNlpLanguages. */
+    public void routeNlp(String lang, NlpModel model) {
+        if (model == null) nlpByLang.remove(lang);
+        else nlpByLang.put(lang, model);
+    }
+
+    /** Model chấm bài thuộc ngôn ngữ lang; null = bỏ qua NLP. */
+    private NlpModel nlpFor(String lang) {
+        NlpModel routed = nlpByLang.get(lang);
+        if (routed != null) return routed;
+        return nlpLanguages == null || nlpLanguages.contains(lang) ? nlp : null;
     }
 
     /** Cho Dashboard lấy đúng repo/DB. */
@@ -112,232 +180,253 @@ public class PipelineService {
         public final String runId;
         public final int ingested;
         public final int analyzed;
+        /** Thời gian và kết quả đọc của từng connector (rỗng nếu lượt chạy không qua connector). */
+        public final List<ConnectorTiming> connectors;
+        /** false nếu có connector lỗi hoặc quá hạn: kết quả chỉ dựa trên một phần dữ liệu. */
+        public final boolean complete;
         public RunResult(String runId, int ingested, int analyzed) {
+            this(runId, ingested, analyzed, List.of());
+        }
+        public RunResult(String runId, int ingested, int analyzed, List<ConnectorTiming> connectors) {
             this.runId = runId; this.ingested = ingested; this.analyzed = analyzed;
+            this.connectors = List.copyOf(connectors);
+            this.complete = this.connectors.stream().allMatch(t -> t.status() == ConnectorTiming.Status.OK);
         }
-    }
-
-    /* ---------- Public API ---------- */
-
-    public RunResult run(String rawKeyword) {
-        String runId = "run_" + System.currentTimeMillis();
-        Instant started = Instant.now();
-        reflectStartRun(runId, rawKeyword, started);
-
-        // keywords sau chuẩn hoá tiếng Việt (không dấu)
-        Set<String> keys = expandKeywords(rawKeyword);
-
-        // 1) Ingest
-        List<RawPost> raw = fetchFromConnectors(keys);
-        System.out.println("[Pipeline] raw from connectors = " + raw.size());
 
-        // 2) Preprocess + lọc theo keyword đã chuẩn hoá
-        List<CleanPost> cleaned = raw.stream()
-                .map(preprocess::preprocess)
-                .filter(cp -> matchByKeyword(cp.textNorm(), keys))
-                .toList();
-        System.out.println("[Pipeline] cleaned & matched   = " + cleaned.size());
-
-        // 3) Lưu posts
-        reflectSavePosts(cleaned, runId);
-
-        // 4) Sentiment cho từng post
-        List<SentimentResult> sents = cleaned.stream()
-                .map(cp -> nlp.analyzeSentiment(cp.rawId(), cp.textNorm(), cp.lang(), cp.ts()))
-                .toList();
-        saveSentimentsDirect(sents, runId);
-
-        // 5) Overall sentiment según ngày
-        Map<Instant, Counts> daily = aggregateDaily(sents);
-        for (var e : daily.entrySet()) {
-            Instant bucket = e.getKey();
-            Counts c = e.getValue();
-            // Direct call to AnalyticsRepo instead of reflection
-            analyticsRepo.upsertOverallSentiment(runId, bucket, c.pos, c.neg, c.neu);
+        /** Các connector không đọc xong (lỗi/quá hạn). */
+        public List<ConnectorTiming> incompleteConnectors() {
+            return connectors.stream().filter(t -> t.status() != ConnectorTiming.Status.OK).toList();
         }
+    }
 
-        // 6) Damage, Relief + Task 3/4
-        int damageRows = 0, reliefRows = 0;
-        Map<String,int[]> aggTask3 = new LinkedHashMap<>();           // item -> [pos,neg,neu]
-        Map<String,int[]> aggTask4 = new LinkedHashMap<>();           // "day||item" -> [pos,neg,neu]
-        ZoneId utc = ZoneOffset.UTC;
-
-        boolean hasLocal = (nlp instanceof LocalNlpModel);
-        for (int i = 0; i < cleaned.size(); i++) {
-            CleanPost cp = cleaned.get(i);
-            SentimentResult sr = sents.get(i);
-            int isPos = (sr.label() == SentimentLabel.pos) ? 1 : 0;
-            int isNeg = (sr.label() == SentimentLabel.neg) ? 1 : 0;
-            int isNeu = (sr.label() == SentimentLabel.neu) ? 1 : 0;
-
-            // bucket day cho Task 4
-            LocalDate d = sr.ts().atZone(utc).toLocalDate();
-            String dayIso = d.toString();
-
-            // --- detect damage ---
-            if (hasLocal) {
-                var types = ((LocalNlpModel) nlp).detectDamageTypes(cp.textNorm());
-                if (!types.isEmpty()) {
-                    damageRows += insertDamageRows(cp.rawId(), types, sr.ts(), runId);
-                }
-            }
-
-            // --- detect relief + Task 3 & 4 ---
-            List<String> items = hasLocal ? ((LocalNlpModel) nlp).detectReliefItems(cp.textNorm()) : List.of();
-            if (!items.isEmpty()) {
-                reliefRows += insertReliefRows(cp.rawId(), items, sr.ts(), runId);
-
-                for (String it : items) {
-                    // Task 3
-                    int[] v3 = aggTask3.computeIfAbsent(it, k -> new int[3]);
-                    v3[0] += isPos; v3[1] += isNeg; v3[2] += isNeu;
+    /** Một connector trong lượt chạy: số bản ghi đã nhận, thời gian đọc và kết quả. */
+    public record ConnectorTiming(String connector, int posts, Duration elapsed, Status status) {
+        public enum Status { RUNNING, OK, FAILED, TIMED_OUT, CANCELLED }
 
-                    // Task 4
-                    String key = dayIso + "||" + it;
-                    int[] v4 = aggTask4.computeIfAbsent(key, k -> new int[3]);
-                    v4[0] += isPos; v4[1] += isNeg; v4[2] += isNeu;
-                }
-            }
+        @Override public String toString() {
+            return connector + " | posts=" + posts + " | " + elapsed.toMillis() + " ms | " + status;
         }
+    }
 
-        // Ghi Task 3/4
-        saveTask3(runId, aggTask3);
-        saveTask4(runId, aggTask4);
-
-        System.out.println("[Pipeline] damage rows = " + damageRows + " | relief rows = " + reliefRows);
+    /* ---------- Public API ---------- */
 
-        reflectFinishRun(runId, started, Instant.now(), cleaned.size(), sents.size());
-        return new RunResult(runId, cleaned.size(), sents.size());
+    public RunResult run(String rawKeyword) {
+        return run(RunPlan.of(rawKeyword));
     }
 
     public RunResult runIngest(String keyword) { return run(keyword); }
 
     /** Chạy với cửa sổ thời gian (from/to). Nếu null sẽ bỏ qua lọc thời gian. */
     public RunResult run(String rawKeyword, Instant from, Instant to) {
-        String runId = "run_" + System.currentTimeMillis();
-        Instant started = Instant.now();
-        reflectStartRun(runId, rawKeyword, started);
+        return run(RunPlan.of(rawKeyword).withWindow(from, to));
+    }
 
-        Set<String> keys = expandKeywords(rawKeyword);
-        // Build QuerySpec and apply window
-        app.model.service.ingest.QuerySpec spec = buildQuerySpec(keys).withWindow(from, to);
+    /**
+     * Như run(keyword, from, to) nhưng chỉ đọc các collection được nêu tên (tên thư mục hoặc
+     * name trong dataset.yaml); rỗng = mọi collection.
+     */
+    public RunResult run(String rawKeyword, Instant from, Instant to, Collection<String> collections) {
+        return run(RunPlan.of(rawKeyword).withWindow(from, to).withCollections(collections));
+    }
 
-        // Ingest with spec
-        List<RawPost> raw = fetchFromConnectors(spec);
-        System.out.println("[Pipeline] raw from connectors = " + raw.size());
+    /**
+     * Chạy tăng dần: chỉ đọc file mới/phần ghi thêm kể từ lượt trước cùng keyword + cửa sổ thời gian,
+     * phân tích phần đó rồi cộng dồn vào run cũ (posts/sentiments/damage/relief được thêm vào,
+     * overall_sentiment và Task 3/4 được cộng số đếm). Lần đầu, hoặc khi có file bị ghi đè/xoá,
+     * chạy đầy đủ vào một run mới. Chỉ FileConnector hỗ trợ đọc tăng dần.
+     */
+    public RunResult runIncremental(String rawKeyword, Instant from, Instant to) {
+        return run(RunPlan.of(rawKeyword).withWindow(from, to).withIncremental(true));
+    }
 
-        List<CleanPost> cleaned = raw.stream()
-                .map(preprocess::preprocess)
-                .filter(cp -> matchByKeyword(cp.textNorm(), keys))
-                .toList();
-        System.out.println("[Pipeline] cleaned & matched   = " + cleaned.size());
+    /** Thực thi một lượt chạy theo plan (mọi hàm run khác đều đi qua đây). */
+    public RunResult run(RunPlan plan) {
+        Set<String> keys = expandKeywords(plan.keyword());
+        QuerySpec spec = buildQuerySpec(keys).withWindow(plan.from(), plan.to()).withCollections(plan.collections())
+                .allDatasets(!plan.manifestPruning());
+        PostDeduplicator dd = new PostDeduplicator(plan.dedup() != null ? plan.dedup() : dedup);
 
-        reflectSavePosts(cleaned, runId);
+        FileConnector files = plan.incremental() ? incrementalConnector() : null;
+        if (files != null && plan.snapshots()) System.out.println("[Pipeline] incremental: reading JSONL, snapshots ignored");
+        if (files != null) return runIncremental(plan, files, keys, spec, dd);
 
-        List<SentimentResult> sents = cleaned.stream()
-                .map(cp -> nlp.analyzeSentiment(cp.rawId(), cp.textNorm(), cp.lang(), cp.ts()))
-                .toList();
-        saveSentimentsDirect(sents, runId);
+        String runId = "run_" + System.currentTimeMillis();
+        Instant started = Instant.now();
+        reflectStartRun(runId, plan.keyword(), started);
+
+        // 1) Ingest (stream lười) -> 2) preprocess -> 3) lọc keyword -> 4) NLP -> 5-7) lưu + tổng hợp
+        ConnectorFanOut fan = fanOut(plan);
+        StagedPipeline.Result r = execute(runId, plan, fan.fetch(spec), keys, dd, false);
+        printTimings(fan);
+        System.out.println("[Pipeline] raw from connectors = " + r.raw());
+        if (dd.enabled()) System.out.println("[Pipeline] " + dd);
+        System.out.println("[Pipeline] cleaned & matched   = " + r.cleaned());
+
+        reflectFinishRun(runId, started, Instant.now(), r.cleaned(), r.analyzed());
+        RunResult result = new RunResult(runId, r.cleaned(), r.analyzed(), fan.timings());
+        if (!result.complete) {
+            System.err.println("[WARN] Run " + runId + " is incomplete, partial data from: " + result.incompleteConnectors());
+        }
+        return result;
+    }
 
-        Map<Instant, Counts> daily = aggregateDaily(sents);
-        for (var e : daily.entrySet()) {
-            Instant bucket = e.getKey();
-            Counts c = e.getValue();
-            analyticsRepo.upsertOverallSentiment(runId, bucket, c.pos, c.neg, c.neu);
+    /** FileConnector dùng cho chạy tăng dần; null (kèm cảnh báo) nếu không có. */
+    private FileConnector incrementalConnector() {
+        FileConnector files = connectors == null ? null : connectors.stream()
+                .filter(FileConnector.class::isInstance).map(FileConnector.class::cast)
+                .findFirst().orElse(null);
+        if (files == null) {
+            System.err.println("[WARN] incremental run needs a FileConnector; running full ingest");
+            return null;
+        }
+        for (SocialConnector c : connectors) {
+            if (c != files) System.out.println("[Pipeline] incremental: skip connector " + c.id());
         }
+        return files;
+    }
 
-        int damageRows = 0, reliefRows = 0;
-        Map<String,int[]> aggTask3 = new LinkedHashMap<>();
-        Map<String,int[]> aggTask4 = new LinkedHashMap<>();
-        ZoneId utc = ZoneOffset.UTC;
+    private RunResult runIncremental(RunPlan plan, FileConnector files, Set<String> keys, QuerySpec spec,
+                                     PostDeduplicator dd) {
+        String scope = String.join(",", keys) + "|" + plan.from() + "|" + plan.to()
+                + (plan.collections().isEmpty() ? "" : "|" + String.join(",", plan.collections()))
+                + (plan.manifestPruning() ? "|pruned" : "");
+
+        String runId = watermarkRepo.findRun(scope);
+        FileConnector.Increment inc = files.fetchIncremental(spec, runId != null ? watermarkRepo.load(scope) : Map.of());
+        if (inc.rewritten()) {
+            System.out.println("[Pipeline] incremental: source files changed, rebuilding from scratch");
+            runId = null;
+            inc = files.fetchIncremental(spec, Map.of());
+        }
+        boolean merge = runId != null;
+        if (!merge) runId = "run_" + System.currentTimeMillis();
 
-        boolean hasLocal = (nlp instanceof LocalNlpModel);
-        for (int i = 0; i < cleaned.size(); i++) {
-            CleanPost cp = cleaned.get(i);
-            SentimentResult sr = sents.get(i);
-            int isPos = (sr.label() == SentimentLabel.pos) ? 1 : 0;
-            int isNeg = (sr.label() == SentimentLabel.neg) ? 1 : 0;
-            int isNeu = (sr.label() == SentimentLabel.neu) ? 1 : 0;
+        Instant started = Instant.now();
+        if (!merge) reflectStartRun(runId, plan.keyword(), started);
 
-            LocalDate d = sr.ts().atZone(utc).toLocalDate();
-            String dayIso = d.toString();
+        // cộng dồn: bài đã lưu trong run cũ cũng tính là đã gặp
+        if (merge && dd.enabled()) postsRepo.forEachInRun(runId, dd::seed);
+        StagedPipeline.Result r = execute(runId, plan, inc.posts(), keys, dd, merge);
+        System.out.println("[Pipeline] incremental " + (merge ? "merge into " : "new ") + runId
+                + " | raw = " + r.raw() + " | cleaned & matched = " + r.cleaned());
+        if (dd.enabled()) System.out.println("[Pipeline] " + dd);
 
-            if (hasLocal) {
-                var types = ((LocalNlpModel) nlp).detectDamageTypes(cp.textNorm());
-                if (!types.isEmpty()) {
-                    damageRows += insertDamageRows(cp.rawId(), types, sr.ts(), runId);
-                }
-            }
+        // chỉ dời mốc sau khi kết quả đã được ghi
+        watermarkRepo.replace(scope, runId, inc.watermarks());
 
-            List<String> items = hasLocal ? ((LocalNlpModel) nlp).detectReliefItems(cp.textNorm()) : List.of();
-            if (!items.isEmpty()) {
-                reliefRows += insertReliefRows(cp.rawId(), items, sr.ts(), runId);
+        reflectFinishRun(runId, started, Instant.now(), r.cleaned(), r.analyzed());
+        return new RunResult(runId, r.cleaned(), r.analyzed());
+    }
 
-                for (String it : items) {
-                    int[] v3 = aggTask3.computeIfAbsent(it, k -> new int[3]);
-                    v3[0] += isPos; v3[1] += isNeg; v3[2] += isNeu;
+    /* ---------- Helpers ---------- */
 
-                    String key = dayIso + "||" + it;
-                    int[] v4 = aggTask4.computeIfAbsent(key, k -> new int[3]);
-                    v4[0] += isPos; v4[1] += isNeg; v4[2] += isNeu;
-                }
-            }
+    /**
+     * Chạy các stage (xem StagedPipeline) trên stream raw và đóng nó: tiền xử lý, lọc keyword và
+     * khử trùng, NLP, rồi lưu posts/sentiment/damage/relief theo lô. Tổng hợp theo ngày và Task 3/4
+     * được cộng dần trong lúc ghi và lưu một lần ở cuối; merge=true cộng dồn vào run đã có thay vì
+     * ghi đè. Số luồng/kích thước lô lấy từ plan (hoặc setStages); plan.analyze=false chỉ lưu posts.
+     */
+    private StagedPipeline.Result execute(String runId, RunPlan plan, Stream<RawPost> raw, Set<String> keys,
+                                          PostDeduplicator dd, boolean merge) {
+        long t0 = System.nanoTime();
+        PipelineOptions options = plan.stages() != null ? plan.stages() : stages;
+        StagedPipeline engine = new StagedPipeline(options, preprocess, cp -> matchByKeyword(cp.textNorm(), keys), dd,
+                plan.analyze() ? this::analyze : cp -> new StagedPipeline.Analyzed(cp, null, List.of(), List.of()));
+        Aggregates agg = new Aggregates();
+        StagedPipeline.Result r = engine.run(raw, batch -> persist(runId, batch, agg));
+
+        // 5) Overall sentiment theo ngày (merge: cộng vào số đếm đã có)
+        for (var e : agg.daily.entrySet()) {
+            Counts c = e.getValue();
+            if (merge) analyticsRepo.addOverallSentiment(runId, e.getKey(), c.pos, c.neg, c.neu);
+            else analyticsRepo.upsertOverallSentiment(runId, e.getKey(), c.pos, c.neg, c.neu);
         }
+        // 7) Task 3/4
+        saveTask3(runId, agg.task3, merge);
+        saveTask4(runId, agg.task4, merge);
+
+        System.out.println("[Pipeline] lang " + r.byLang() + " | NLP skipped = " + (r.cleaned() - r.analyzed()));
+        System.out.println("[Pipeline] damage rows = " + agg.damageRows + " | relief rows = " + agg.reliefRows);
+        System.out.println("[Pipeline] stages | preprocess x" + options.preprocessWorkers()
+                + " | nlp x" + options.nlpWorkers() + " | batch=" + options.batchSize()
+                + " | " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        return r;
+    }
 
-        saveTask3(runId, aggTask3);
-        saveTask4(runId, aggTask4);
-
-        System.out.println("[Pipeline] damage rows = " + damageRows + " | relief rows = " + reliefRows);
+    /** Stage NLP (chạy song song): sentiment + damage/relief trong một lượt, model theo ngôn ngữ của bài. */
+    private StagedPipeline.Analyzed analyze(CleanPost cp) {
+        NlpModel model = nlpFor(cp.lang());
+        if (model == null) return new StagedPipeline.Analyzed(cp, null, List.of(), List.of());
+        if (model instanceof LocalNlpModel local) {
+            var a = local.analyzeAll(cp.rawId(), cp.textNorm(), cp.lang(), cp.ts());
+            return new StagedPipeline.Analyzed(cp, a.sentiment(), a.damageTypes(), a.reliefItems());
+        }
+        SentimentResult sr = model.analyzeSentiment(cp.rawId(), cp.textNorm(), cp.lang(), cp.ts());
+        return new StagedPipeline.Analyzed(cp, sr, List.of(), List.of());
+    }
 
-        reflectFinishRun(runId, started, Instant.now(), cleaned.size(), sents.size());
-        return new RunResult(runId, cleaned.size(), sents.size());
+    /** Tổng hợp cộng dần qua các lô, ghi một lần ở cuối lượt. */
+    private static final class Aggregates {
+        final Map<Instant, Counts> daily = new TreeMap<>();
+        final Map<String,int[]> task3 = new LinkedHashMap<>();    // item -> [pos,neg,neu]
+        final Map<String,int[]> task4 = new LinkedHashMap<>();    // "day||item" -> [pos,neg,neu]
+        int damageRows, reliefRows;
     }
 
-    /* ---------- Helpers ---------- */
+    /** Stage ghi (luồng gọi, đúng thứ tự): lưu một lô rồi cộng vào tổng hợp. */
+    private void persist(String runId, List<StagedPipeline.Analyzed> batch, Aggregates agg) {
+        List<CleanPost> posts = new ArrayList<>(batch.size());
+        List<SentimentResult> sents = new ArrayList<>(batch.size());
+        for (var a : batch) {
+            posts.add(a.post());
+            if (a.sentiment() != null) sents.add(a.sentiment());
+        }
+        reflectSavePosts(posts, runId);
+        saveSentimentsDirect(sents, runId);
+        agg.damageRows += insertDamageRows(batch, runId);
+        agg.reliefRows += insertReliefRows(batch, runId);
+
+        ZoneId utc = ZoneOffset.UTC;
+        for (var a : batch) {
+            SentimentResult sr = a.sentiment();
+            if (sr == null) continue;
+            LocalDate d = sr.ts().atZone(utc).toLocalDate();
+            Counts c = agg.daily.computeIfAbsent(d.atStartOfDay(utc).toInstant(), k -> new Counts());
+            int isPos = (sr.label() == SentimentLabel.pos) ? 1 : 0;
+            int isNeg = (sr.label() == SentimentLabel.neg) ? 1 : 0;
+            int isNeu = (isPos == 0 && isNeg == 0) ? 1 : 0;
+            c.pos += isPos; c.neg += isNeg; c.neu += isNeu;
 
-    private List<RawPost> fetchFromConnectors(Set<String> keys) {
-        if (connectors == null || connectors.isEmpty()) return List.of();
-        QuerySpec spec = buildQuerySpec(keys);
-        List<RawPost> all = new ArrayList<>();
-        for (var c : connectors) {
-            try (Stream<RawPost> stream = c.fetch(spec)) {
-                if (stream != null) stream.forEach(all::add);
-            } catch (Exception ex) {
-                System.err.println("[WARN] Connector " + c.getClass().getSimpleName() + " failed: " + ex.getMessage());
+            String dayIso = d.toString();
+            for (String it : a.relief()) {
+                // Task 3
+                int[] v3 = agg.task3.computeIfAbsent(it, k -> new int[3]);
+                v3[0] += isPos; v3[1] += isNeg; v3[2] += isNeu;
+                // Task 4
+                int[] v4 = agg.task4.computeIfAbsent(dayIso + "||" + it, k -> new int[3]);
+                v4[0] += isPos; v4[1] += isNeg; v4[2] += isNeu;
             }
         }
-        return all;
     }
 
-    private List<RawPost> fetchFromConnectors(app.model.service.ingest.QuerySpec spec) {
-        if (connectors == null || connectors.isEmpty()) return List.of();
-        List<RawPost> all = new ArrayList<>();
-        for (var c : connectors) {
-            try (Stream<RawPost> stream = c.fetch(spec)) {
-                if (stream != null) stream.forEach(all::add);
-            } catch (Exception ex) {
-                System.err.println("[WARN] Connector " + c.getClass().getSimpleName() + " failed: " + ex.getMessage());
+    /**
+     * Đọc mọi connector song song trên virtual thread (xem ConnectorFanOut), gộp thành một stream
+     * lười. Connector lỗi hoặc quá connectorTimeout chỉ bị bỏ phần còn lại. plan.snapshots: mỗi
+     * FileConnector được thay bằng SnapshotConnector trên cùng thư mục collections.
+     */
+    private ConnectorFanOut fanOut(RunPlan plan) {
+        List<SocialConnector> sources = connectors;
+        if (plan.snapshots() && connectors != null) {
+            sources = new ArrayList<>(connectors.size());
+            for (SocialConnector c : connectors) {
+                sources.add(c instanceof FileConnector fc ? SnapshotConnector.over(fc.collectionsRoot()) : c);
             }
         }
-        return all;
+        return new ConnectorFanOut(sources, connectorTimeout);
     }
 
-    private Map<Instant, Counts> aggregateDaily(List<SentimentResult> sents) {
-        Map<Instant, Counts> map = new HashMap<>();
-        ZoneId utc = ZoneOffset.UTC;
-        for (var s : sents) {
-            LocalDate d = s.ts().atZone(utc).toLocalDate();
-            Instant bucketStart = d.atStartOfDay(utc).toInstant();
-            Counts c = map.computeIfAbsent(bucketStart, k -> new Counts());
-            if (s.label() == SentimentLabel.pos) c.pos++;
-            else if (s.label() == SentimentLabel.neg) c.neg++;
-            else c.neu++;
-        }
-        return map.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey, Map.Entry::getValue,
-                        (a,b) -> a, LinkedHashMap::new));
+    private static void printTimings(ConnectorFanOut fan) {
+        for (ConnectorTiming t : fan.timings()) System.out.println("[Pipeline] connector " + t);
     }
 
     private static final class Counts { int pos, neg, neu; }
@@ -349,7 +438,7 @@ public class PipelineService {
     }
 
     private Set<String> expandKeywords(String input) {
-        String k = vnNormalize(input);
+        String k = VnFold.fold(input);
         Set<String> out = new LinkedHashSet<>();
         if (!k.isBlank()) {
             out.add(k);
@@ -360,15 +449,6 @@ public class PipelineService {
         return out;
     }
 
-    private String vnNormalize(String s) {
-        if (s == null) return "";
-        String lower = s.toLowerCase(Locale.ROOT).trim();
-        String nfd = java.text.Normalizer.normalize(lower, java.text.Normalizer.Form.NFD);
-        return nfd.replaceAll("\\p{M}+", "")
-                  .replace("đ","d").replace("Đ","D")
-                  .replaceAll("\\s+", " ").trim();
-    }
-
     private QuerySpec buildQuerySpec(Set<String> keys) {
         // Ưu tiên static ofKeywords(Collection)
         try {
@@ -412,18 +492,21 @@ public class PipelineService {
         }
     }
 
-    private int insertDamageRows(String postId, Collection<String> types, Instant ts, String runId) {
-        if (types == null || types.isEmpty()) return 0;
+    /** Damage của cả lô trong một transaction. */
+    private int insertDamageRows(List<StagedPipeline.Analyzed> batch, String runId) {
+        if (batch.stream().allMatch(a -> a.damage().isEmpty())) return 0;
         String sql = "INSERT INTO damage(id,type,ts,run_id) VALUES (?,?,?,?)";
         int rows = 0;
         try (var conn = db.connect(); var ps = conn.prepareStatement(sql)) {
             conn.setAutoCommit(false);
-            for (String t : types) {
-                ps.setString(1, postId);
-                ps.setString(2, t);
-                ps.setString(3, ts.toString());
-                ps.setString(4, runId);
-                ps.addBatch(); rows++;
+            for (var a : batch) {
+                for (String t : a.damage()) {
+                    ps.setString(1, a.post().rawId());
+                    ps.setString(2, t);
+                    ps.setString(3, a.sentiment().ts().toString());
+                    ps.setString(4, runId);
+                    ps.addBatch(); rows++;
+                }
             }
             ps.executeBatch();
             conn.commit();
@@ -433,18 +516,21 @@ public class PipelineService {
         return rows;
     }
 
-    private int insertReliefRows(String postId, Collection<String> items, Instant ts, String runId) {
-        if (items == null || items.isEmpty()) return 0;
+    /** Relief items của cả lô trong một transaction. */
+    private int insertReliefRows(List<StagedPipeline.Analyzed> batch, String runId) {
+        if (batch.stream().allMatch(a -> a.relief().isEmpty())) return 0;
         String sql = "INSERT INTO relief_items(id,item,ts,run_id) VALUES (?,?,?,?)";
         int rows = 0;
         try (var conn = db.connect(); var ps = conn.prepareStatement(sql)) {
             conn.setAutoCommit(false);
-            for (String it : items) {
-                ps.setString(1, postId);
-                ps.setString(2, it);
-                ps.setString(3, ts.toString());
-                ps.setString(4, runId);
-                ps.addBatch(); rows++;
+            for (var a : batch) {
+                for (String it : a.relief()) {
+                    ps.setString(1, a.post().rawId());
+                    ps.setString(2, it);
+                    ps.setString(3, a.sentiment().ts().toString());
+                    ps.setString(4, runId);
+                    ps.addBatch(); rows++;
+                }
             }
             ps.executeBatch();
             conn.commit();
@@ -454,16 +540,21 @@ public class PipelineService {
         return rows;
     }
 
-    private void saveTask3(String runId, Map<String,int[]> agg) {
+    private void saveTask3(String runId, Map<String,int[]> agg, boolean merge) {
         if (agg.isEmpty()) return;
+        // merge: giữ số cũ và cộng thêm; ngược lại ghi đè kết quả của run
         String del = "DELETE FROM relief_sentiment WHERE run_id = ?";
-        String ins = "INSERT INTO relief_sentiment(run_id,item,pos,neg,neu) VALUES (?,?,?,?,?)";
+        String ins = "INSERT INTO relief_sentiment(run_id,item,pos,neg,neu) VALUES (?,?,?,?,?)"
+                + " ON CONFLICT(run_id,item) DO UPDATE SET"
+                + " pos = pos + excluded.pos, neg = neg + excluded.neg, neu = neu + excluded.neu";
         try (var conn = db.connect();
              var pd = conn.prepareStatement(del);
              var pi = conn.prepareStatement(ins)) {
             conn.setAutoCommit(false);
-            pd.setString(1, runId);
-            pd.executeUpdate();
+            if (!merge) {
+                pd.setString(1, runId);
+                pd.executeUpdate();
+            }
             for (var e : agg.entrySet()) {
                 int[] v = e.getValue();
                 pi.setString(1, runId);
@@ -480,16 +571,20 @@ public class PipelineService {
         }
     }
 
-    private void saveTask4(String runId, Map<String,int[]> agg) {
+    private void saveTask4(String runId, Map<String,int[]> agg, boolean merge) {
         if (agg.isEmpty()) return;
         String del = "DELETE FROM relief_sentiment_daily WHERE run_id = ?";
-        String ins = "INSERT INTO relief_sentiment_daily(run_id,bucket_start,item,pos,neg,neu) VALUES (?,?,?,?,?,?)";
+        String ins = "INSERT INTO relief_sentiment_daily(run_id,bucket_start,item,pos,neg,neu) VALUES (?,?,?,?,?,?)"
+                + " ON CONFLICT(run_id,item,bucket_start) DO UPDATE SET"
+                + " pos = pos + excluded.pos, neg = neg + excluded.neg, neu = neu + excluded.neu";
         try (var conn = db.connect();
              var pd = conn.prepareStatement(del);
              var pi = conn.prepareStatement(ins)) {
             conn.setAutoCommit(false);
-            pd.setString(1, runId);
-            pd.executeUpdate();
+            if (!merge) {
+                pd.setString(1, runId);
+                pd.executeUpdate();
+            }
             for (var e : agg.entrySet()) {
                 String key = e.getKey(); // "day||item"
                 String[] parts = key.split("\\|\\|", 2);
@@ -0,0 +1,70 @@
+package app.model.service.pipeline;
+
+import app.model.service.dedup.DedupOptions;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Mô tả một lượt chạy pipeline; PipelineService.run(RunPlan) là nơi duy nhất thực thi, các hàm
+ * run(...) khác chỉ dựng plan.
+ *
+ * - keyword     : từ khoá gốc (được gập không dấu và mở rộng "#k", "bao k", "#bao k").
+ * - from, to    : cửa sổ thời gian; null = không giới hạn phía đó.
+ * - collections : chỉ đọc các collection này (tên thư mục hoặc name trong dataset.yaml); rỗng = tất cả.
+ * - manifestPruning : bỏ qua collection mà dataset.yaml (time.from/to, keywords_hint) cho biết không thể
+ *                 khớp keyword + cửa sổ. Mặc định tắt: chỉ bật khi dataset.yaml khai báo đúng dữ liệu.
+ * - snapshots   : đọc snapshot dạng cột (SnapshotConnector.over, dựng lại snapshot thiếu/cũ trước)
+ *                 thay cho JSONL của FileConnector; bỏ qua khi incremental.
+ * - incremental : chỉ đọc phần mới kể từ lượt trước cùng keyword + cửa sổ và cộng dồn vào run đó
+ *                 (cần FileConnector, không có thì chạy đầy đủ).
+ * - analyze     : false = chỉ ingest, tiền xử lý và lưu posts; bỏ NLP và tổng hợp.
+ * - stages      : số luồng, kích thước lô; null = cấu hình của PipelineService (setStages).
+ * - dedup       : khử trùng; null = cấu hình của PipelineService (setDedup).
+ */
+public record RunPlan(String keyword, Instant from, Instant to, List<String> collections,
+                      boolean manifestPruning, boolean snapshots, boolean incremental, boolean analyze,
+                      PipelineOptions stages, DedupOptions dedup) {
+
+    public RunPlan {
+        collections = collections == null ? List.of() : List.copyOf(collections);
+    }
+
+    /** Chạy đầy đủ, mọi collection, không giới hạn thời gian. */
+    public static RunPlan of(String keyword) {
+        return new RunPlan(keyword, null, null, List.of(), false, false, false, true, null, null);
+    }
+
+    public RunPlan withWindow(Instant newFrom, Instant newTo) {
+        return new RunPlan(keyword, newFrom, newTo, collections, manifestPruning, snapshots, incremental, analyze, stages, dedup);
+    }
+
+    public RunPlan withCollections(Collection<String> names) {
+        return new RunPlan(keyword, from, to, names == null ? null : List.copyOf(names), manifestPruning, snapshots, incremental, analyze, stages, dedup);
+    }
+
+    public RunPlan withManifestPruning(boolean on) {
+        return new RunPlan(keyword, from, to, collections, on, snapshots, incremental, analyze, stages, dedup);
+    }
+
+    public RunPlan withSnapshots(boolean on) {
+        return new RunPlan(keyword, from, to, collections, manifestPruning, on, incremental, analyze, stages, dedup);
+    }
+
+    public RunPlan withIncremental(boolean on) {
+        return new RunPlan(keyword, from, to, collections, manifestPruning, snapshots, on, analyze, stages, dedup);
+    }
+
+    public RunPlan withAnalyze(boolean on) {
+        return new RunPlan(keyword, from, to, collections, manifestPruning, snapshots, incremental, on, stages, dedup);
+    }
+
+    public RunPlan withStages(PipelineOptions options) {
+        return new RunPlan(keyword, from, to, collections, manifestPruning, snapshots, incremental, analyze, options, dedup);
+    }
+
+    public RunPlan withDedup(DedupOptions options) {
+        return new RunPlan(keyword, from, to, collections, manifestPruning, snapshots, incremental, analyze, stages, options);
+    }
+}
@@ -0,0 +1,254 @@
+package app.model.service.pipeline;
+
+import app.model.domain.CleanPost;
+import app.model.domain.RawPost;
+import app.model.domain.SentimentResult;
+import app.model.service.dedup.PostDeduplicator;
+import app.model.service.preprocess.PreprocessService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Chạy một lượt pipeline theo stage, các stage nối bằng hàng đợi có giới hạn:
+ *
+ *   ingest (1 luồng: đọc stream, khử trùng id)
+ *     -> preprocess (P luồng, preprocessAll theo lô)
+ *     -> lọc (1 luồng: keyword, khử trùng gần đúng, đếm theo ngôn ngữ)
+ *     -> NLP (N luồng)
+ *     -> ghi DB + tổng hợp (luồng gọi, qua sink)
+ *
+ * Bài đi theo lô đánh số thứ tự. Lô gửi sang NLP được chia nhỏ theo số luồng NLP (batchSize / N),
+ * để cả một lượt ít bài (một lô) cũng được chấm trên mọi luồng; bước ghi gom lại đủ batchSize
+ * trước khi ghi DB. Hai stage một luồng xếp lại lô theo số thứ tự nên khử trùng,
+ * thứ tự ghi và kết quả giống hệt chạy tuần tự. Số lô đang xử lý giữa ingest và bước lọc, và
+ * giữa bước lọc và bước ghi, bị chặn bởi semaphore (PipelineOptions.inFlight): bộ nhớ không phụ
+ * thuộc số bài, và khi stage sau chậm (thường là SQLite) thì stage trước tự dừng chờ. Stage nào
+ * lỗi thì các stage khác bị ngắt và lỗi được ném lại ở luồng gọi.
+ */
+final class StagedPipeline {
+
+    /** Kết quả NLP của một bài; sentiment null = không chấm (ngôn ngữ không có model). */
+    record Analyzed(CleanPost post, SentimentResult sentiment, List<String> damage, List<String> relief) {}
+
+    /** Số đếm của một lượt: bài đọc từ connector, bài qua bộ lọc, bài đã chấm NLP, theo ngôn ngữ. */
+    record Result(int raw, int cleaned, int analyzed, Map<String, Integer> byLang) {}
+
+    private record Batch<T>(long seq, List<T> items) {}
+
+    /** Lô NLP nhỏ nhất: nhỏ hơn thì chi phí chuyển lô giữa các luồng đáng kể so với việc chấm. */
+    private static final int MIN_NLP_BATCH = 32;
+
+    @SuppressWarnings("rawtypes")
+    private static final Batch END = new Batch<>(-1, List.of());
+
+    private final PipelineOptions options;
+    private final PreprocessService preprocess;
+    private final Predicate<CleanPost> keep;
+    private final PostDeduplicator dedup;
+    private final Function<CleanPost, Analyzed> analyzer;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * keep: lọc sau tiền xử lý (chạy trên một luồng, đúng thứ tự). analyzer: NLP cho một bài,
+     * gọi song song nên phải an toàn đa luồng.
+     */
+    StagedPipeline(PipelineOptions options, PreprocessService preprocess, Predicate<CleanPost> keep,
+                   PostDeduplicator dedup, Function<CleanPost, Analyzed> analyzer) {
+        this.options = options;
+        this.preprocess = preprocess;
+        this.keep = keep;
+        this.dedup = dedup;
+        this.analyzer = analyzer;
+    }
+
+    /** Chạy hết stream (và đóng nó); sink nhận từng lô đã phân tích theo đúng thứ tự, trên luồng gọi. */
+    Result run(Stream<RawPost> raw, Consumer<List<Analyzed>> sink) {
+        int pre = options.preprocessWorkers(), nlp = options.nlpWorkers(), window = options.inFlight();
+        int nlpBatch = Math.max(MIN_NLP_BATCH, Math.ceilDiv(options.batchSize(), nlp));
+        BlockingQueue<Batch<RawPost>> toPreprocess = new ArrayBlockingQueue<>(window + pre);
+        BlockingQueue<Batch<CleanPost>> toFilter = new ArrayBlockingQueue<>(window + pre);
+        BlockingQueue<Batch<CleanPost>> toNlp = new ArrayBlockingQueue<>(window + nlp);
+        BlockingQueue<Batch<Analyzed>> toPersist = new ArrayBlockingQueue<>(window + nlp);
+        Semaphore ahead = new Semaphore(window);     // lô giữa ingest và bước lọc
+        Semaphore behind = new Semaphore(window);    // lô giữa bước lọc và bước ghi
+
+        AtomicInteger rawCount = new AtomicInteger(), cleanedCount = new AtomicInteger();
+        Map<String, Integer> byLang = new TreeMap<>();
+
+        // 1) ingest
+        start("pipeline-ingest", () -> {
+            try (raw) {
+                long seq = 0;
+                List<RawPost> buf = new ArrayList<>(options.batchSize());
+                for (Iterator<RawPost> it = raw.iterator(); it.hasNext(); ) {
+                    RawPost rp = it.next();
+                    rawCount.incrementAndGet();
+                    if (!dedup.acceptId(rp.id())) continue;
+                    buf.add(rp);
+                    if (buf.size() == options.batchSize()) {
+                        ahead.acquire();
+                        toPreprocess.put(new Batch<>(seq++, buf));
+                        buf = new ArrayList<>(options.batchSize());
+                    }
+                }
+                if (!buf.isEmpty()) {
+                    ahead.acquire();
+                    toPreprocess.put(new Batch<>(seq, buf));
+                }
+            }
+            for (int i = 0; i < pre; i++) toPreprocess.put(end());
+        });
+
+        // 2) preprocess
+        for (int w = 1; w <= pre; w++) {
+            start("pipeline-preprocess-" + w, () -> {
+                for (Batch<RawPost> b; (b = toPreprocess.take()) != END; ) {
+                    toFilter.put(new Batch<>(b.seq(), preprocess.preprocessAll(b.items())));
+                }
+                toFilter.put(end());
+            });
+        }
+
+        // 3) lọc keyword + gần trùng, gom lại thành lô đầy cho NLP
+        start("pipeline-filter", () -> {
+            Reorder<CleanPost> in = new Reorder<>();
+            long seq = 0;
+            List<CleanPost> out = new ArrayList<>(nlpBatch);
+            for (int ends = 0; ends < pre; ) {
+                Batch<CleanPost> b = toFilter.take();
+                if (b == END) { ends++; continue; }
+                in.add(b);
+                for (List<CleanPost> items; (items = in.poll()) != null; ) {
+                    ahead.release();
+                    for (CleanPost cp : items) {
+                        if (!keep.test(cp) || !dedup.acceptText(cp.textNorm())) continue;
+                        cleanedCount.incrementAndGet();
+                        byLang.merge(String.valueOf(cp.lang()), 1, Integer::sum);
+                        out.add(cp);
+                        if (out.size() == nlpBatch) {
+                            behind.acquire();
+                            toNlp.put(new Batch<>(seq++, out));
+                            out = new ArrayList<>(nlpBatch);
+                        }
+                    }
+                }
+            }
+            if (!out.isEmpty()) {
+                behind.acquire();
+                toNlp.put(new Batch<>(seq, out));
+            }
+            for (int i = 0; i < nlp; i++) toNlp.put(end());
+        });
+
+        // 4) NLP
+        for (int w = 1; w <= nlp; w++) {
+            start("pipeline-nlp-" + w, () -> {
+                for (Batch<CleanPost> b; (b = toNlp.take()) != END; ) {
+                    List<Analyzed> out = new ArrayList<>(b.items().size());
+                    for (CleanPost cp : b.items()) out.add(analyzer.apply(cp));
+                    toPersist.put(new Batch<>(b.seq(), out));
+                }
+                toPersist.put(end());
+            });
+        }
+
+        // 5) ghi + tổng hợp trên luồng gọi, gom các lô NLP lại thành lô batchSize
+        int analyzed = 0;
+        try {
+            Reorder<Analyzed> in = new Reorder<>();
+            List<Analyzed> pending = new ArrayList<>(options.batchSize());
+            for (int ends = 0; ends < nlp; ) {
+                Batch<Analyzed> b = toPersist.poll(100, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) break;
+                if (b == null) continue;
+                if (b == END) { ends++; continue; }
+                in.add(b);
+                for (List<Analyzed> items; (items = in.poll()) != null; ) {
+                    behind.release();
+                    pending.addAll(items);
+                    for (Analyzed a : items) if (a.sentiment() != null) analyzed++;
+                    if (pending.size() >= options.batchSize()) {
+                        sink.accept(pending);
+                        pending = new ArrayList<>(options.batchSize());
+                    }
+                }
+            }
+            if (failure.get() == null && !pending.isEmpty()) sink.accept(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+        }
+        for (Thread t : threads) {
+            try { t.join(); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+        }
+
+        Throwable err = failure.get();
+        if (err instanceof RuntimeException re) throw re;
+        if (err instanceof Error er) throw er;
+        if (err != null) throw new IllegalStateException("[Pipeline] stage failed: " + err, err);
+        // các luồng đã join: đọc byLang ở đây an toàn
+        return new Result(rawCount.get(), cleanedCount.get(), analyzed, byLang);
+    }
+
+    private interface Stage { void run() throws InterruptedException; }
+
+    private void start(String name, Stage body) {
+        Thread t = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                // bị huỷ vì stage khác lỗi
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }, name);
+        t.setDaemon(true);
+        threads.add(t);
+        t.start();
+    }
+
+    /** Ghi nhận lỗi đầu tiên và ngắt mọi stage. */
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            for (Thread t : threads) t.interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Batch<T> end() { return (Batch<T>) END; }
+
+    /** Giữ các lô đến sớm cho tới khi lô kế tiếp theo số thứ tự tới (không an toàn đa luồng). */
+    private static final class Reorder<T> {
+        private final Map<Long, List<T>> early = new HashMap<>();
+        private long next;
+
+        void add(Batch<T> b) { early.put(b.seq(), b.items()); }
+
+        /** Lô kế tiếp nếu đã có, ngược lại null. */
+        List<T> poll() {
+            List<T> items = early.remove(next);
+            if (items != null) next++;
+            return items;
+        }
+    }
+}
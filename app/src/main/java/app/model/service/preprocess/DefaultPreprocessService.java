@@ -2,54 +2,74 @@ package app.model.service.preprocess;
 
 import app.model.domain.CleanPost;
 import app.model.domain.RawPost;
+import app.util.TextNorm;
+import app.util.TimestampParser;
 
-import java.text.Normalizer;
-import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Locale;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
+/**
+ * Tiền xử lý mặc định. textNorm (xem TextNorm) được tạo theo thứ tự:
+ *   bỏ URL -> bỏ email -> bỏ @mention -> bỏ dấu '#' của hashtag -> lower-case -> bỏ dấu (đ→d)
+ *   -> rút ký tự lặp (>= 3 chữ cái giống nhau còn 2, chuỗi !/? còn 1) -> gộp khoảng trắng, trim.
+ *
+ * Nếu connector đã tính sẵn textNorm lúc đọc (RawPost.meta[TextNorm.META_KEY]) thì dùng lại,
+ * không tính lần nữa.
+ *
+ * lang do LanguageDetector gắn theo nội dung (vi/en/ko/..., "und" nếu không rõ), thay cho "vi"
+ * cố định trước đây.
+ *
+ * Bộ đệm chuẩn hoá (TextNorm.Scratch) là của từng luồng nên gọi song song từ nhiều luồng được;
+ * preprocessAll dùng một bộ đệm và một TimestampParser cho cả loạt.
+ */
 public class DefaultPreprocessService implements PreprocessService {
 
-    private static final Pattern URL = Pattern.compile(
-            "(?i)\\b((https?|ftp)://|www\\.)\\S+"
-    );
-    private static final Pattern EMAIL = Pattern.compile(
-            "(?i)\\b[\\w.+-]+@[\\w.-]+\\.[A-Za-z]{2,}\\b"
-    );
-    private static final Pattern MENTION = Pattern.compile("@[\\p{L}0-9_]+");
-    private static final Pattern HASHTAG = Pattern.compile("#([\\p{L}0-9_]+)");
-    private static final Pattern MULTI_WS = Pattern.compile("\\s+");
-    private static final Pattern REPEAT_LETTERS = Pattern.compile("([\\p{L}])\\1{2,}");
-    private static final Pattern REPEAT_PUNCT = Pattern.compile("([!?])\\1+");
+    private static final ThreadLocal<TextNorm.Scratch> SCRATCH = ThreadLocal.withInitial(TextNorm.Scratch::new);
+
+    private final LanguageDetector languages;
+
+    public DefaultPreprocessService() {
+        this(LanguageDetector.shared());
+    }
+
+    public DefaultPreprocessService(LanguageDetector languages) {
+        this.languages = languages;
+    }
 
     @Override
     public CleanPost preprocess(RawPost raw) {
-        String rawText = Optional.ofNullable(raw.text()).orElse("");
-        Map<String, Object> meta = Optional.ofNullable(raw.meta()).orElse(Map.of());
-
-        String cleaned = rawText;
-        cleaned = URL.matcher(cleaned).replaceAll(" ");        
-        cleaned = EMAIL.matcher(cleaned).replaceAll(" ");       
-        cleaned = MENTION.matcher(cleaned).replaceAll(" ");      
-        cleaned = HASHTAG.matcher(cleaned).replaceAll("$1");    
-        cleaned = cleaned.toLowerCase(Locale.ROOT);               
-        cleaned = stripDiacritics(cleaned);                       
-        cleaned = REPEAT_LETTERS.matcher(cleaned).replaceAll("$1$1"); 
-        cleaned = REPEAT_PUNCT.matcher(cleaned).replaceAll("$1");    
-        cleaned = cleaned.replace('\u00A0', ' ');                 
-        cleaned = MULTI_WS.matcher(cleaned).replaceAll(" ").trim();
-
-        String lang = "vi";
+        return preprocess(raw, SCRATCH.get(), null);
+    }
+
+    @Override
+    public List<CleanPost> preprocessAll(List<RawPost> batch) {
+        TextNorm.Scratch scratch = SCRATCH.get();
+        TimestampParser times = new TimestampParser();
+        List<CleanPost> out = new ArrayList<>(batch.size());
+        for (RawPost raw : batch) out.add(preprocess(raw, scratch, times));
+        return out;
+    }
+
+    /** times == null: đọc thời gian không nhớ dạng (gọi lẻ). */
+    private CleanPost preprocess(RawPost raw, TextNorm.Scratch scratch, TimestampParser times) {
+        String rawText = raw.text() != null ? raw.text() : "";
+        Map<String, Object> meta = raw.meta() != null ? raw.meta() : Map.of();
+
+        String cleaned = meta.get(TextNorm.META_KEY) instanceof String pre ? pre : TextNorm.normalize(rawText, scratch);
+
+        // ngôn ngữ theo nội dung; không đủ căn cứ thì giữ nhãn của nguồn (nếu có)
+        String lang = languages.detect(rawText);
+        if (LanguageDetector.UNKNOWN.equals(lang) && raw.lang() != null && !raw.lang().isBlank()) lang = raw.lang();
 
         String createdAt = firstNonBlank(raw.createdAt(),
                                          Objects.toString(meta.get("createdAt"), null),
                                          Objects.toString(meta.get("ts"), null));
-        Instant ts = parseInstantSafe(createdAt).orElseGet(Instant::now);
+        Instant ts = times != null ? times.parse(createdAt) : TimestampParser.parseOnce(createdAt);
+        if (ts == null) ts = Instant.now();
 
         String geo = firstNonBlank(raw.userLoc(),
                                    Objects.toString(meta.get("geo"), null),
@@ -64,13 +84,6 @@ public class DefaultPreprocessService implements PreprocessService {
         );
     }
 
-    private static String stripDiacritics(String s) {
-        String nfd = Normalizer.normalize(s, Normalizer.Form.NFD);
-        return nfd.replaceAll("\\p{M}+", "")
-                  .replace("đ", "d")
-                  .replace("Đ", "D");
-    }
-
     private static String firstNonBlank(String... xs) {
         if (xs == null) return null;
         for (String x : xs) {
@@ -78,35 +91,4 @@ public class DefaultPreprocessService implements PreprocessService {
         }
         return null;
     }
-
-    private static Optional<Instant> parseInstantSafe(String s) {
-        if (s == null || s.isBlank()) return Optional.empty();
-        String x = s.trim();
-
-        if (x.matches("^\\d{13}$")) { 
-            try { return Optional.of(Instant.ofEpochMilli(Long.parseLong(x))); }
-            catch (NumberFormatException ignore) {}
-        }
-        if (x.matches("^\\d{10}$")) { 
-            try { return Optional.of(Instant.ofEpochSecond(Long.parseLong(x))); }
-            catch (NumberFormatException ignore) {}
-        }
-
-        try { return Optional.of(Instant.parse(x)); }
-        catch (DateTimeParseException ignore) {}
-
-        try {
-            var fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            var ldt = LocalDateTime.parse(x, fmt);
-            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignore) {}
-
-        try {
-            var fmt = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
-            var ldt = LocalDateTime.parse(x, fmt);
-            return Optional.of(ldt.toInstant(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignore) {}
-
-        return Optional.empty();
-    }
 }
\ No newline at end of file
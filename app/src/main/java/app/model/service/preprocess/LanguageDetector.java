@@ -0,0 +1,176 @@
+package app.model.service.preprocess;
+
+import app.util.VnFold;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Nhận diện ngôn ngữ offline, không thư viện ngoài, theo ba tầng (dừng ở tầng đầu tiên đủ chắc):
+ *
+ * 1) Chữ viết: phần lớn chữ cái thuộc Hangul/Kana/Hán/Thái/Kirin -> ko/ja/zh/th/ru.
+ * 2) Chữ cái chỉ tiếng Việt mới có (ơ, ư, ă, đ, ạ, ả, ễ...): đủ nhiều là "vi".
+ * 3) Trigram ký tự trên văn bản đã gập ASCII (VnFold): so log-xác suất giữa các hồ sơ
+ *    trong resources/langid/*.tri (vi: từ các collection mẫu; en: văn bản tiếng Anh), để tách
+ *    tiếng Việt không dấu khỏi tiếng Anh.
+ *
+ * Văn bản quá ngắn hoặc chênh lệch không rõ ràng trả về UNKNOWN ("und"). Một trigram được mã hoá
+ * thành số trong [0, 27^3) nên chấm điểm không cấp phát. Dùng chung được giữa các luồng.
+ */
+public final class LanguageDetector {
+
+    public static final String VI = "vi";
+    public static final String EN = "en";
+    public static final String UNKNOWN = "und";
+
+    /** Số chữ cái tối thiểu để xét trigram. */
+    private static final int MIN_LETTERS = 12;
+    /** Tỉ lệ chữ cái riêng tiếng Việt (trên chữ Latin) để kết luận ngay là "vi". */
+    private static final double VI_LETTER_RATIO = 0.04;
+    /** Chênh lệch log-xác suất trung bình mỗi trigram để chọn một hồ sơ. */
+    private static final double MIN_MARGIN = 0.1;
+
+    private static final int ALPHABET = 27, TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+    private static final String VI_LETTERS =
+            "ảãạăằắẳẵặầấẩẫậẻẽẹềếểễệỉĩịỏọồốổỗộơờớởỡợủũụưừứửữựỳỷỹỵđ"
+            + "ẢÃẠĂẰẮẲẴẶẦẤẨẪẬẺẼẸỀẾỂỄỆỈĨỊỎỌỒỐỔỖỘƠỜỚỞỠỢỦŨỤƯỪỨỬỮỰỲỶỸỴĐ";
+
+    private static final LanguageDetector DEFAULT = new LanguageDetector(List.of(VI, EN));
+
+    private final String[] langs;
+    private final float[][] logp;    // [hồ sơ][trigram]
+
+    /** Hồ sơ trigram đọc từ classpath /langid/&lt;lang&gt;.tri; hồ sơ thiếu thì bỏ qua. */
+    public LanguageDetector(List<String> profiles) {
+        List<String> names = new ArrayList<>();
+        List<float[]> tables = new ArrayList<>();
+        for (String lang : profiles) {
+            float[] t = loadProfile(lang);
+            if (t != null) { names.add(lang); tables.add(t); }
+        }
+        this.langs = names.toArray(new String[0]);
+        this.logp = tables.toArray(new float[0][]);
+    }
+
+    public static LanguageDetector shared() { return DEFAULT; }
+
+    public String detect(String text) {
+        if (text == null || text.isEmpty()) return UNKNOWN;
+
+        int letters = 0, latin = 0, viLetters = 0;
+        int hangul = 0, kana = 0, han = 0, thai = 0, cyrillic = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (!Character.isLetter(cp)) {
+                if (cp == 0x0309 || cp == 0x0323 || cp == 0x031B) viLetters++;   // dấu hỏi/nặng/móc dạng tổ hợp
+                continue;
+            }
+            letters++;
+            if (cp < 0x250 || (cp >= 0x1E00 && cp <= 0x1EFF)) {
+                latin++;
+                if (cp >= 0xC0 && VI_LETTERS.indexOf(cp) >= 0) viLetters++;
+                continue;
+            }
+            switch (Character.UnicodeScript.of(cp)) {
+                case HANGUL -> hangul++;
+                case HIRAGANA, KATAKANA -> kana++;
+                case HAN -> han++;
+                case THAI -> thai++;
+                case CYRILLIC -> cyrillic++;
+                default -> { }
+            }
+        }
+        if (letters == 0) return UNKNOWN;
+
+        // 1) chữ viết không phải Latin chiếm đa số
+        if (latin * 2 < letters) {
+            if (hangul * 2 >= letters) return "ko";
+            if (kana > 0 && (kana + han) * 2 >= letters) return "ja";
+            if (han * 2 >= letters) return "zh";
+            if (thai * 2 >= letters) return "th";
+            if (cyrillic * 2 >= letters) return "ru";
+            return UNKNOWN;
+        }
+
+        // 2) chữ cái riêng tiếng Việt
+        if (viLetters > 0 && viLetters >= latin * VI_LETTER_RATIO) return VI;
+        if (latin < MIN_LETTERS || langs.length == 0) return UNKNOWN;
+
+        // 3) trigram trên văn bản đã gập
+        return byTrigrams(text);
+    }
+
+    private String byTrigrams(String text) {
+        double[] score = new double[langs.length];
+        int n = 0, c1 = 0, c2 = 0;      // 0 = khoảng trắng
+        for (int i = 0, len = text.length(); i <= len; ) {
+            int c;
+            if (i == len) {
+                if (c2 == 0) break;
+                c = 0;
+                i++;
+            } else {
+                int cp = text.codePointAt(i);
+                i += Character.charCount(cp);
+                char f = VnFold.alnum(cp);
+                if (f == VnFold.DROP) continue;
+                c = f >= 'a' && f <= 'z' ? f - 'a' + 1 : 0;
+            }
+            if (c == 0 && c2 == 0) continue;
+            int tri = (c1 * ALPHABET + c2) * ALPHABET + c;
+            for (int l = 0; l < langs.length; l++) score[l] += logp[l][tri];
+            n++;
+            c1 = c2;
+            c2 = c;
+        }
+        if (n == 0) return UNKNOWN;
+
+        int best = 0, second = -1;
+        for (int l = 1; l < langs.length; l++) {
+            if (score[l] > score[best]) { second = best; best = l; }
+            else if (second < 0 || score[l] > score[second]) second = l;
+        }
+        if (second >= 0 && (score[best] - score[second]) / n < MIN_MARGIN) return UNKNOWN;
+        return langs[best];
+    }
+
+    /**
+     * Định dạng: dòng đầu "# lang | tổng số trigram", sau đó mỗi dòng "abc\tcount" ('_' = khoảng
+     * trắng). Trigram không có trong hồ sơ nhận xác suất sàn 0.5/tổng.
+     */
+    private static float[] loadProfile(String lang) {
+        try (InputStream in = LanguageDetector.class.getResourceAsStream("/langid/" + lang + ".tri")) {
+            if (in == null) {
+                System.err.println("[WARN] language profile not found: /langid/" + lang + ".tri");
+                return null;
+            }
+            BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String header = r.readLine();
+            double total = Double.parseDouble(header.substring(header.lastIndexOf('|') + 1).trim());
+            float[] t = new float[TRIGRAMS];
+            Arrays.fill(t, (float) Math.log(0.5 / total));
+            String line;
+            while ((line = r.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab != 3) continue;
+                int code = 0;
+                for (int k = 0; k < 3; k++) {
+                    char ch = line.charAt(k);
+                    code = code * ALPHABET + (ch == '_' ? 0 : ch - 'a' + 1);
+                }
+                t[code] = (float) Math.log(Long.parseLong(line.substring(tab + 1).trim()) / total);
+            }
+            return t;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[WARN] language profile " + lang + " unreadable: " + e.getMessage());
+            return null;
+        }
+    }
+}
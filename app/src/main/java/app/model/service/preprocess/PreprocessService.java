@@ -3,6 +3,19 @@ package app.model.service.preprocess;
 import app.model.domain.CleanPost;
 import app.model.domain.RawPost;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface PreprocessService {
     CleanPost preprocess(RawPost raw);
-}
\ No newline at end of file
+
+    /**
+     * Tiền xử lý cả một loạt bài (một chunk của pipeline), giữ nguyên thứ tự. Cài đặt có thể
+     * dùng lại bộ đệm giữa các bài; mặc định gọi preprocess từng bài.
+     */
+    default List<CleanPost> preprocessAll(List<RawPost> batch) {
+        List<CleanPost> out = new ArrayList<>(batch.size());
+        for (RawPost raw : batch) out.add(preprocess(raw));
+        return out;
+    }
+}
@@ -0,0 +1,305 @@
+package app.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * textNorm của một bài viết (dùng cho NLP, lọc keyword và khử trùng lặp), theo thứ tự:
+ *   bỏ URL -> bỏ email -> bỏ @mention -> bỏ dấu '#' của hashtag -> lower-case -> bỏ dấu (đ→d)
+ *   -> rút ký tự lặp (>= 3 chữ cái giống nhau còn 2, chuỗi !/? còn 1) -> gộp khoảng trắng, trim.
+ *
+ * normalize() làm đúng chuỗi bước trên mà không dùng regex: URL và email là hai lượt quét tay
+ * (ngữ nghĩa \b, \w, \S y như regex cũ, vì bỏ URL trước có thể đổi email khớp phía sau), các
+ * bước còn lại gộp vào một lượt duyệt code point trên bảng VnFold.base. normalizeReference() giữ
+ * nguyên chuỗi regex cũ làm bản đối chiếu, và dùng khi văn bản có 'Σ' (lower-case của nó phụ
+ * thuộc ngữ cảnh).
+ */
+public final class TextNorm {
+
+    /** Khoá trong RawPost.meta khi connector đã tính sẵn textNorm lúc đọc (IngestOptions.withTextNorm). */
+    public static final String META_KEY = "textNorm";
+
+    private static final Pattern URL = Pattern.compile(
+            "(?i)\\b((https?|ftp)://|www\\.)\\S+"
+    );
+    private static final Pattern EMAIL = Pattern.compile(
+            "(?i)\\b[\\w.+-]+@[\\w.-]+\\.[A-Za-z]{2,}\\b"
+    );
+    private static final Pattern MENTION = Pattern.compile("@[\\p{L}0-9_]+");
+    private static final Pattern HASHTAG = Pattern.compile("#([\\p{L}0-9_]+)");
+    private static final Pattern MULTI_WS = Pattern.compile("\\s+");
+    private static final Pattern REPEAT_LETTERS = Pattern.compile("([\\p{L}])\\1{2,}");
+    private static final Pattern REPEAT_PUNCT = Pattern.compile("([!?])\\1+");
+
+    private TextNorm() {}
+
+    /**
+     * Bộ đệm dùng lại giữa các lần normalize (mỗi luồng một bộ, không chia sẻ): khi xử lý cả loạt
+     * bài thì chỉ còn cấp phát chuỗi kết quả.
+     */
+    public static final class Scratch {
+        private final StringBuilder text = new StringBuilder(256);
+        private final Folder folder = new Folder(256);
+    }
+
+    /** textNorm của một văn bản thô; kết quả giống hệt normalizeReference. */
+    public static String normalize(String text) {
+        return normalize(text, new Scratch());
+    }
+
+    /** Như normalize(text) nhưng dùng lại bộ đệm của scratch. */
+    public static String normalize(String text, Scratch scratch) {
+        if (text == null) return "";
+        if (text.indexOf('\u03A3') >= 0) return normalizeReference(text);
+        String s = stripUrls(text, scratch.text);
+        if (s.indexOf('@') >= 0) s = stripEmails(s, scratch.text);
+        return fold(s, scratch.folder);
+    }
+
+    /** Chuỗi regex gốc, giữ làm bản đối chiếu. */
+    public static String normalizeReference(String text) {
+        if (text == null) return "";
+        String cleaned = text;
+        cleaned = URL.matcher(cleaned).replaceAll(" ");
+        cleaned = EMAIL.matcher(cleaned).replaceAll(" ");
+        cleaned = MENTION.matcher(cleaned).replaceAll(" ");
+        cleaned = HASHTAG.matcher(cleaned).replaceAll("$1");
+        cleaned = cleaned.toLowerCase(Locale.ROOT);
+        cleaned = stripDiacritics(cleaned);
+        cleaned = REPEAT_LETTERS.matcher(cleaned).replaceAll("$1$1");
+        cleaned = REPEAT_PUNCT.matcher(cleaned).replaceAll("$1");
+        cleaned = cleaned.replace('\u00A0', ' ');
+        return MULTI_WS.matcher(cleaned).replaceAll(" ").trim();
+    }
+
+    // ===== URL / email: quét tay, cùng ngữ nghĩa với URL, EMAIL ở trên =====
+
+    /** \w của regex Java (không bật UNICODE_CHARACTER_CLASS) là [A-Za-z0-9_]. */
+    private static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /** \s của regex Java: [ \t\n\x0B\f\r]. */
+    private static boolean isSpace(int c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * \b như Pattern.Bound: mỗi phía là "chữ" nếu là \w, hoặc là dấu không khoảng cách (Mn)
+     * đứng sau một chữ cái/chữ số Unicode (vd. "é" viết tổ hợp e + U+0301).
+     */
+    private static boolean boundary(String s, int i) {
+        return wordBefore(s, i) != wordAt(s, i);
+    }
+
+    private static boolean wordBefore(String s, int i) {
+        if (i == 0) return false;
+        int cp = s.codePointBefore(i);
+        return cp < 0x80 ? isWord((char) cp) : isMarkAfterBase(s, cp, i - 1);
+    }
+
+    private static boolean wordAt(String s, int i) {
+        if (i >= s.length()) return false;
+        int cp = s.codePointAt(i);
+        return cp < 0x80 ? isWord((char) cp) : isMarkAfterBase(s, cp, i);
+    }
+
+    private static boolean isMarkAfterBase(String s, int cp, int i) {
+        if (Character.getType(cp) != Character.NON_SPACING_MARK) return false;
+        for (int x = i; x >= 0; x--) {
+            int c = s.codePointAt(x);
+            if (Character.isLetterOrDigit(c)) return true;
+            if (Character.getType(c) != Character.NON_SPACING_MARK) return false;
+        }
+        return false;
+    }
+
+    /** So khớp không phân biệt hoa thường kiểu (?i) không UNICODE_CASE: chỉ gập chữ ASCII. */
+    private static boolean startsWithAscii(String s, int i, String lowerPrefix) {
+        int n = lowerPrefix.length();
+        if (i + n > s.length()) return false;
+        for (int k = 0; k < n; k++) {
+            char c = s.charAt(i + k), p = lowerPrefix.charAt(k);
+            if (c != p && !(isAsciiLetter(c) && (c | 0x20) == p)) return false;
+        }
+        return true;
+    }
+
+    /** Thay mỗi "(https?|ftp)://…" hoặc "www.…" (tới khoảng trắng) bằng một dấu cách. */
+    private static String stripUrls(String s, StringBuilder out) {
+        boolean changed = false;
+        int n = s.length(), copied = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c != 'h' && c != 'H' && c != 'f' && c != 'F' && c != 'w' && c != 'W') continue;
+            if (wordBefore(s, i)) continue;
+            int p;
+            if (startsWithAscii(s, i, "https://")) p = i + 8;
+            else if (startsWithAscii(s, i, "http://")) p = i + 7;
+            else if (startsWithAscii(s, i, "ftp://")) p = i + 6;
+            else if (startsWithAscii(s, i, "www.")) p = i + 4;
+            else continue;
+            int e = p;
+            while (e < n && !isSpace(s.charAt(e))) e++;
+            if (e == p) continue;
+            if (!changed) { out.setLength(0); changed = true; }
+            out.append(s, copied, i).append(' ');
+            copied = e;
+            i = e - 1;
+        }
+        return changed ? out.append(s, copied, n).toString() : s;
+    }
+
+    private static boolean isLocalPart(char c) {
+        return isWord(c) || c == '.' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainPart(char c) {
+        return isWord(c) || c == '.' || c == '-';
+    }
+
+    /** Thay mỗi email (\b[\w.+-]+@[\w.-]+\.[A-Za-z]{2,}\b) bằng một dấu cách. */
+    private static String stripEmails(String s, StringBuilder out) {
+        boolean changed = false;
+        int n = s.length(), copied = 0;
+        int i = 0;
+        while (i < n) {
+            if (!isLocalPart(s.charAt(i)) || !boundary(s, i)) { i++; continue; }
+            // phần trước '@' khớp tham lam tới hết dãy; mọi điểm bắt đầu trong dãy cho cùng kết quả
+            int r = i;
+            while (r < n && isLocalPart(s.charAt(r))) r++;
+            int e = r < n && s.charAt(r) == '@' ? emailDomainEnd(s, r + 1) : -1;
+            if (e < 0) { i = r; continue; }
+            if (!changed) { out.setLength(0); changed = true; }
+            out.append(s, copied, i).append(' ');
+            copied = e;
+            i = e;
+        }
+        return changed ? out.append(s, copied, n).toString() : s;
+    }
+
+    /** Vị trí kết thúc của "[\w.-]+\.[A-Za-z]{2,}\b" bắt đầu tại p (thử phần đầu dài nhất trước); -1 nếu không khớp. */
+    private static int emailDomainEnd(String s, int p) {
+        int n = s.length(), q = p;
+        while (q < n && isDomainPart(s.charAt(q))) q++;
+        for (int dot = q - 1; dot > p; dot--) {
+            if (s.charAt(dot) != '.') continue;
+            int e = dot + 1;
+            while (e < n && isAsciiLetter(s.charAt(e))) e++;
+            if (e - dot - 1 >= 2 && !wordAt(s, e)) return e;
+        }
+        return -1;
+    }
+
+    // ===== mention, hashtag, lower-case, bỏ dấu, rút lặp, khoảng trắng: một lượt =====
+
+    /** [\p{L}0-9_] của MENTION/HASHTAG. */
+    private static boolean isTagChar(int cp) {
+        return Character.isLetter(cp) || (cp >= '0' && cp <= '9') || cp == '_';
+    }
+
+    private static boolean tagCharAt(String s, int i) {
+        return i < s.length() && isTagChar(s.codePointAt(i));
+    }
+
+    private static String fold(String s, Folder f) {
+        int n = s.length();
+        f.reset(n);
+        for (int i = 0; i < n; ) {
+            char c = s.charAt(i);
+            if (c == '@' && tagCharAt(s, i + 1)) {
+                int j = i + 1;
+                while (j < n) {
+                    int cp = s.codePointAt(j);
+                    if (!isTagChar(cp)) break;
+                    j += Character.charCount(cp);
+                }
+                f.push(' ');
+                i = j;
+                continue;
+            }
+            if (c == '#' && tagCharAt(s, i + 1)) { i++; continue; }
+            if (!Character.isSurrogate(c)) {
+                int b = VnFold.base(c);
+                if (b >= 0) f.push(b);
+                else if (b == VnFold.BASE_MULTI) f.pushAll(VnFold.baseString(c));
+                i++;
+            } else {
+                int cp = s.codePointAt(i);
+                f.pushAll(VnFold.baseString(cp));
+                i += Character.charCount(cp);
+            }
+        }
+        return f.result();
+    }
+
+    /** Nhận từng code point đã gập, rút lặp và gộp khoảng trắng ngay khi ghi. */
+    private static final class Folder {
+        private char[] buf;
+        private int len, prev = -1, repeat;
+        private boolean space;
+
+        Folder(int capacity) {
+            buf = new char[Math.max(16, capacity + 8)];
+        }
+
+        void reset(int capacity) {
+            if (buf.length < capacity + 8) buf = new char[capacity + 8];
+            len = 0;
+            prev = -1;
+            repeat = 0;
+            space = false;
+        }
+
+        void pushAll(String s) {
+            for (int i = 0; i < s.length(); ) {
+                int cp = s.codePointAt(i);
+                push(cp);
+                i += Character.charCount(cp);
+            }
+        }
+
+        void push(int cp) {
+            if (cp == prev) repeat++;
+            else { prev = cp; repeat = 1; }
+            if (repeat > 1) {
+                if (cp == '!' || cp == '?') return;
+                if (repeat > 2 && Character.isLetter(cp)) return;
+            }
+            if (cp == '\u00A0' || isSpace(cp)) {
+                if (!space) { space = true; append(' '); }
+                return;
+            }
+            space = false;
+            if (len + 2 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            if (cp <= Character.MAX_VALUE) buf[len++] = (char) cp;
+            else len += Character.toChars(cp, buf, len);
+        }
+
+        private void append(char c) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[len++] = c;
+        }
+
+        /** Như String.trim(): bỏ mọi ký tự <= ' ' ở hai đầu. */
+        String result() {
+            int from = 0, to = len;
+            while (from < to && buf[from] <= ' ') from++;
+            while (to > from && buf[to - 1] <= ' ') to--;
+            return new String(buf, from, to - from);
+        }
+    }
+
+    private static String stripDiacritics(String s) {
+        String nfd = Normalizer.normalize(s, Normalizer.Form.NFD);
+        return nfd.replaceAll("\\p{M}+", "")
+                  .replace("đ", "d")
+                  .replace("Đ", "D");
+    }
+}
@@ -0,0 +1,165 @@
+package app.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+/**
+ * Đọc thời điểm của bài viết từ chuỗi, nhận các dạng (sau trim):
+ *   - epoch mili giây (13 chữ số), epoch giây (10 chữ số)
+ *   - ISO-8601 kiểu Instant.parse ("2024-09-07T03:15:00Z", có/không phần lẻ giây, offset...)
+ *   - "yyyy-MM-dd HH:mm:ss" và "yyyy/MM/dd HH:mm:ss" (coi là UTC)
+ *
+ * Dạng được nhận ra bằng cách xem ký tự, không regex; các dạng thường gặp được tách số trực tiếp
+ * nên không tạo formatter và không ném/bắt exception. Chuỗi gần đúng dạng nhưng lạ (năm quá 4 chữ
+ * số, giây nhuận, offset khác Z, ngày 31 tháng 2...) mới đi qua formatter của JDK để kết quả giống
+ * hệt trước. Các dạng loại trừ nhau nên thử dạng nào trước cũng ra cùng kết quả.
+ *
+ * Một đối tượng nhớ dạng vừa đọc được và thử dạng đó trước ở lần sau: dùng một đối tượng cho mỗi
+ * file (các dòng trong một file gần như luôn cùng dạng). Không an toàn đa luồng; các hàm static
+ * thì dùng ở đâu cũng được.
+ */
+public final class TimestampParser {
+
+    private enum Format { EPOCH_MILLIS, EPOCH_SECONDS, ISO, LOCAL_DASH, LOCAL_SLASH }
+
+    private static final Format[] ORDER = Format.values();
+    private static final DateTimeFormatter LOCAL_DASH = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter LOCAL_SLASH = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+    private Format last;
+
+    /** Thời điểm của s, null nếu không đọc được. Dạng thắng được nhớ cho lần gọi sau. */
+    public Instant parse(String s) {
+        if (s == null) return null;
+        String x = s.trim();
+        if (x.isEmpty()) return null;
+        if (last != null) {
+            Instant t = parse(x, last);
+            if (t != null) return t;
+        }
+        for (Format f : ORDER) {
+            if (f == last) continue;
+            Instant t = parse(x, f);
+            if (t != null) { last = f; return t; }
+        }
+        return null;
+    }
+
+    /** Như parse nhưng không nhớ dạng (dùng lẻ, an toàn đa luồng). */
+    public static Instant parseOnce(String s) {
+        if (s == null) return null;
+        String x = s.trim();
+        if (x.isEmpty()) return null;
+        for (Format f : ORDER) {
+            Instant t = parse(x, f);
+            if (t != null) return t;
+        }
+        return null;
+    }
+
+    public static Optional<Instant> parseSafe(String s) {
+        return Optional.ofNullable(parseOnce(s));
+    }
+
+    private static Instant parse(String x, Format f) {
+        return switch (f) {
+            case EPOCH_MILLIS -> x.length() == 13 && allDigits(x, 0, 13) ? Instant.ofEpochMilli(digits(x, 0, 13)) : null;
+            case EPOCH_SECONDS -> x.length() == 10 && allDigits(x, 0, 10) ? Instant.ofEpochSecond(digits(x, 0, 10)) : null;
+            case ISO -> parseIso(x);
+            case LOCAL_DASH -> parseLocal(x, '-', LOCAL_DASH);
+            case LOCAL_SLASH -> parseLocal(x, '/', LOCAL_SLASH);
+        };
+    }
+
+    /** yyyy-MM-ddTHH:mm:ss[.f{1,9}]Z tách trực tiếp; dạng ISO khác để Instant.parse lo. */
+    private static Instant parseIso(String x) {
+        int n = x.length();
+        // Instant.parse cần ít nhất "yyyy-MM-ddTHH:mm:ssZ" và chữ T (không phân biệt hoa thường)
+        if (n < 20) return null;
+        if (n <= 30 && x.charAt(n - 1) == 'Z' && x.charAt(10) == 'T' && dateTime(x, '-', 'T')
+                && (n == 20 || (n > 21 && x.charAt(19) == '.' && allDigits(x, 20, n - 21)))) {
+            long sec = fastEpochSecond(x);
+            if (sec != Long.MIN_VALUE) {
+                int nanos = 0;
+                if (n > 20) {
+                    nanos = (int) digits(x, 20, n - 21);
+                    for (int k = n - 21; k < 9; k++) nanos *= 10;
+                }
+                return Instant.ofEpochSecond(sec, nanos);
+            }
+        }
+        // mọi chuỗi Instant.parse nhận đều kết thúc bằng offset: Z/z hoặc chữ số
+        char end = x.charAt(n - 1);
+        if (end != 'Z' && end != 'z' && !isDigit(end)) return null;
+        if (x.indexOf('T') < 0 && x.indexOf('t') < 0) return null;
+        try { return Instant.parse(x); }
+        catch (DateTimeException e) { return null; }
+    }
+
+    private static Instant parseLocal(String x, char sep, DateTimeFormatter fmt) {
+        int n = x.length();
+        // "yyyy" là năm theo kỷ nguyên (từ 1): năm 0000 để formatter quyết định
+        if (n == 19 && dateTime(x, sep, ' ') && !x.startsWith("0000")) {
+            long sec = fastEpochSecond(x);
+            if (sec != Long.MIN_VALUE) return Instant.ofEpochSecond(sec);
+        }
+        // yyyy cho phép năm dài hơn 4 chữ số (có dấu), HH:mm:ss đúng 2 chữ số: ít nhất 19 ký tự, có khoảng trắng
+        if (n < 19 || !isDigit(x.charAt(n - 1)) || x.indexOf(' ') < 0 || x.indexOf(sep) < 0) return null;
+        try { return LocalDateTime.parse(x, fmt).toInstant(ZoneOffset.UTC); }
+        catch (DateTimeException e) { return null; }
+    }
+
+    /** "dddd?dd?ddXdd:dd:dd" ở đầu chuỗi, ? = sep, X = mid. */
+    private static boolean dateTime(String x, char sep, char mid) {
+        return x.charAt(4) == sep && x.charAt(7) == sep && x.charAt(10) == mid
+                && x.charAt(13) == ':' && x.charAt(16) == ':'
+                && allDigits(x, 0, 4) && allDigits(x, 5, 2) && allDigits(x, 8, 2)
+                && allDigits(x, 11, 2) && allDigits(x, 14, 2) && allDigits(x, 17, 2);
+    }
+
+    /** Epoch giây của 19 ký tự đầu (đã đúng dạng); Long.MIN_VALUE nếu trường nào ngoài khoảng thường. */
+    private static long fastEpochSecond(String x) {
+        int year = (int) digits(x, 0, 4), month = (int) digits(x, 5, 2), day = (int) digits(x, 8, 2);
+        int hh = (int) digits(x, 11, 2), mm = (int) digits(x, 14, 2), ss = (int) digits(x, 17, 2);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hh > 23 || mm > 59 || ss > 59) return Long.MIN_VALUE;
+        return epochDay(year, month, day) * 86_400L + hh * 3600L + mm * 60L + ss;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /** Số ngày từ 1970-01-01 (lịch Gregory mở rộng về trước, như LocalDate.toEpochDay). */
+    private static long epochDay(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468L;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean allDigits(String x, int from, int len) {
+        for (int i = from, end = from + len; i < end; i++) {
+            char c = x.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static long digits(String x, int from, int len) {
+        long v = 0;
+        for (int i = from, end = from + len; i < end; i++) v = v * 10 + (x.charAt(i) - '0');
+        return v;
+    }
+}
@@ -0,0 +1,251 @@
+package app.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Gập văn bản tiếng Việt về ASCII bằng bảng tra ký tự (dựng một lần khi nạp lớp).
+ *
+ * foldAlnum(s) cho kết quả giống hệt chuỗi xử lý cũ
+ *   lower-case -> NFD -> bỏ \p{M} -> đ→d -> [^a-z0-9#\s]→' ' -> gộp khoảng trắng -> trim
+ * nhưng chỉ duyệt chuỗi một lần, không regex, không chuỗi trung gian.
+ *
+ * base(c) là bước gập "giữ ký tự": lower-case -> NFD -> bỏ \p{M} -> đ→d (không đổi ký tự khác
+ * thành khoảng trắng). fold(s) = base trên cả chuỗi + gộp khoảng trắng + trim, là dạng chuẩn của
+ * keyword và cụm từ lexicon; textNorm của bài viết dựng trên base (xem TextNorm).
+ *
+ * Đây là chỗ chuẩn hoá duy nhất: connector, tiền xử lý, pipeline và NLP đều gọi vào đây.
+ */
+public final class VnFold {
+
+    /** Ký tự bị bỏ hẳn (dấu kết hợp). */
+    public static final char DROP = 0;
+    private static final char UNSET = '\uFFFF';
+
+    /**
+     * ASCII dựng sẵn; ký tự khác được tính lần đầu gặp rồi ghi lại. Ghi đua giữa các luồng
+     * là vô hại vì giá trị tính ra luôn như nhau.
+     */
+    private static final char[] ALNUM = initAlnum();
+
+    /** base(c): ký tự bị bỏ hẳn. */
+    public static final int BASE_DROP = -1;
+    /** base(c): gập ra nhiều ký tự, lấy bằng baseString(c). */
+    public static final int BASE_MULTI = -2;
+    private static final int BASE_UNSET = -3;
+
+    /**
+     * Như ALNUM: tính lần đầu gặp. BASE và BASE_MULTI_STR là hai mảng ghi không đồng bộ, nên một
+     * luồng có thể thấy BASE[c] == BASE_MULTI trước khi thấy chuỗi: baseString gặp null thì tự tính
+     * lại (String bất biến nên đọc được chuỗi nào thì chuỗi đó đầy đủ).
+     */
+    private static final int[] BASE = initBase();
+    private static final String[] BASE_MULTI_STR = new String[Character.MAX_VALUE + 1];
+
+    private VnFold() {}
+
+    /**
+     * Gập cơ sở của một ký tự BMP: ký tự kết quả, BASE_DROP hoặc BASE_MULTI.
+     * Lower-case theo từng ký tự nên 'Σ' luôn ra 'σ'; sigma cuối từ ('ς') phụ thuộc ngữ cảnh,
+     * bên gọi tự xử lý.
+     */
+    public static int base(char c) {
+        int f = BASE[c];
+        if (f != BASE_UNSET) return f;
+        String s = Character.isSurrogate(c) ? String.valueOf(c) : computeBase(String.valueOf(c));
+        if (s.length() == 1) f = s.charAt(0);
+        else if (s.isEmpty()) f = BASE_DROP;
+        else { BASE_MULTI_STR[c] = s; f = BASE_MULTI; }
+        BASE[c] = f;
+        return f;
+    }
+
+    /** Gập cơ sở dạng chuỗi, cho ký tự BASE_MULTI và code point ngoài BMP. */
+    public static String baseString(int codePoint) {
+        if (codePoint <= Character.MAX_VALUE) {
+            int f = base((char) codePoint);
+            if (f == BASE_MULTI) {
+                String s = BASE_MULTI_STR[codePoint];
+                return s != null ? s : (BASE_MULTI_STR[codePoint] = computeBase(String.valueOf((char) codePoint)));
+            }
+            return f == BASE_DROP ? "" : String.valueOf((char) f);
+        }
+        return computeBase(Character.toString(codePoint));
+    }
+
+    /**
+     * lower-case -> NFD -> bỏ \p{M} -> đ→d -> gộp \s -> trim (như chuỗi regex cũ trong
+     * PipelineService/LocalNlpModel).
+     */
+    public static String fold(String s) {
+        if (s == null) return "";
+        // 'Σ' lower-case theo ngữ cảnh (sigma cuối từ): hạ cả chuỗi trước, base giữ nguyên chữ thường
+        if (s.indexOf('\u03A3') >= 0) s = s.toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); ) {
+            char c = s.charAt(i);
+            if (c < 0x80 && c > ' ') {          // nhánh nhanh: ASCII thường
+                out.append(Character.toLowerCase(c));
+                space = false;
+                i++;
+                continue;
+            }
+            String f;
+            if (Character.isSurrogate(c)) {
+                int cp = s.codePointAt(i);
+                f = baseString(cp);
+                i += Character.charCount(cp);
+            } else {
+                int b = base(c);
+                i++;
+                if (b == BASE_DROP) continue;
+                if (b != BASE_MULTI) {
+                    char x = (char) b;
+                    boolean ws = x == ' ' || (x >= '\t' && x <= '\r');
+                    if (!ws) out.append(x);
+                    else if (!space) out.append(' ');
+                    space = ws;
+                    continue;
+                }
+                f = baseString(c);
+            }
+            if (f.isEmpty()) continue;      // dấu ngoài BMP
+            out.append(f);
+            space = false;
+        }
+        return out.toString().trim();
+    }
+
+    /** Ký tự gập: a-z, 0-9, '#', ' ' (ngăn cách) hoặc DROP. */
+    public static char alnum(char c) {
+        char f = ALNUM[c];
+        return f != UNSET ? f : (ALNUM[c] = computeAlnum(c));
+    }
+
+    /** Như alnum(char) cho cả code point ngoài BMP (hiếm: tính trực tiếp, không lưu bảng). */
+    public static char alnum(int codePoint) {
+        return codePoint <= Character.MAX_VALUE ? alnum((char) codePoint) : computeAlnum(Character.toString(codePoint));
+    }
+
+    public static String foldAlnum(String s) {
+        if (s == null) return "";
+        Sink out = new Sink(s.length());
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            out.add(alnum(cp));
+            i += Character.charCount(cp);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Bộ đệm nhận ký tự đã gập, tự gộp khoảng trắng và bỏ khoảng trắng đầu/cuối.
+     * Dùng lại được (reset) để tránh cấp phát theo từng dòng.
+     */
+    public static final class Sink {
+        private char[] buf;
+        private int len;
+        private boolean pendingSpace;
+
+        public Sink(int capacity) { buf = new char[Math.max(16, capacity)]; }
+
+        public void reset() { len = 0; pendingSpace = false; }
+
+        public void add(char folded) {
+            if (folded == DROP) return;
+            if (folded == ' ') { pendingSpace = len > 0; return; }
+            if (len + 2 > buf.length) buf = java.util.Arrays.copyOf(buf, buf.length * 2);
+            if (pendingSpace) { buf[len++] = ' '; pendingSpace = false; }
+            buf[len++] = folded;
+        }
+
+        public int length() { return len; }
+
+        /** Chuỗi đã gập có chứa key (so khớp con) hay không. */
+        public boolean contains(String key) {
+            int n = key.length();
+            if (n == 0) return true;
+            char first = key.charAt(0);
+            for (int i = 0, last = len - n; i <= last; i++) {
+                if (buf[i] != first) continue;
+                int k = 1;
+                while (k < n && buf[i + k] == key.charAt(k)) k++;
+                if (k == n) return true;
+            }
+            return false;
+        }
+
+        @Override public String toString() { return new String(buf, 0, len); }
+    }
+
+    /* ========================== Dựng bảng ========================== */
+
+    private static char[] initAlnum() {
+        char[] t = new char[Character.MAX_VALUE + 1];
+        java.util.Arrays.fill(t, UNSET);
+        for (char c = 0; c < 128; c++) {
+            char l = Character.toLowerCase(c);
+            t[c] = isAlnum(l) ? l : ' ';
+        }
+        return t;
+    }
+
+    private static int[] initBase() {
+        int[] t = new int[Character.MAX_VALUE + 1];
+        java.util.Arrays.fill(t, BASE_UNSET);
+        for (char c = 0; c < 128; c++) t[c] = Character.toLowerCase(c);
+        return t;
+    }
+
+    private static String computeBase(String ch) {
+        String nfd = Normalizer.normalize(ch.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(nfd.length());
+        for (int i = 0; i < nfd.length(); ) {
+            int cp = nfd.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isMark(cp)) continue;
+            if (cp == 'đ') cp = 'd';
+            else if (cp == 'Đ') cp = 'D';
+            out.appendCodePoint(cp);
+        }
+        return out.toString();
+    }
+
+    private static char computeAlnum(char c) {
+        if (Character.isSurrogate(c)) return ' ';   // nửa cặp lẻ
+        return computeAlnum(String.valueOf(c));
+    }
+
+    private static char computeAlnum(String ch) {
+        String lower = ch.toLowerCase(Locale.ROOT);
+        String nfd = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        char out = DROP;
+        for (int i = 0; i < nfd.length(); i++) {
+            char x = nfd.charAt(i);
+            if (Character.isSurrogate(x)) {
+                int cp = nfd.codePointAt(i);
+                if (Character.isSupplementaryCodePoint(cp)) i++;
+                if (!isMark(cp)) out = ' ';
+                continue;
+            }
+            if (isMark(x)) continue;
+            if (x == 'đ') x = 'd';
+            // mỗi ký tự gốc gập ra tối đa một ký tự a-z0-9#; phần còn lại là ngăn cách
+            if (isAlnum(x)) return x;
+            out = ' ';
+        }
+        return out;
+    }
+
+    private static boolean isAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '#';
+    }
+
+    private static boolean isMark(int c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+}
\ No newline at end of file
@@ -110,4 +110,17 @@ CREATE TABLE IF NOT EXISTS relief_sentiment_daily(
   neg INTEGER NOT NULL DEFAULT 0,
   neu INTEGER NOT NULL DEFAULT 0,
   PRIMARY KEY (run_id, item, bucket_start)
+);
+
+-- Ingest tăng dần: mốc đọc từng file theo scope (keyword + cửa sổ thời gian)
+CREATE TABLE IF NOT EXISTS ingest_watermarks(
+  scope TEXT NOT NULL,
+  path TEXT NOT NULL,          -- tương đối so với data/collections
+  size INTEGER NOT NULL,
+  last_offset INTEGER NOT NULL,
+  mtime INTEGER NOT NULL,
+  hash TEXT NOT NULL,
+  run_id TEXT NOT NULL,
+  updated_at TEXT NOT NULL,
+  PRIMARY KEY (scope, path)
 );
\ No newline at end of file
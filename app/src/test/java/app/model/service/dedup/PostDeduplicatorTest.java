@@ -0,0 +1,56 @@
+package app.model.service.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tách luồng như StagedPipeline: id trên một luồng, textNorm trên luồng khác. */
+class PostDeduplicatorTest {
+
+    private static final String TEXT = "mua lu keo dai nhieu ngay khien nhieu tuyen duong ngap sau";
+
+    @Test
+    void idsAndTextsOnSeparateThreads() throws Exception {
+        PostDeduplicator dd = new PostDeduplicator(DedupOptions.IDS.withNearDuplicate(true));
+        dd.seed("old", TEXT);
+
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        Thread ingest = new Thread(() -> {
+            try {
+                assertTrue(dd.acceptId("a"));
+                assertFalse(dd.acceptId("a"));
+                assertFalse(dd.acceptId("old"));
+            } catch (Throwable t) { err.set(t); }
+        });
+        Thread filter = new Thread(() -> {
+            try {
+                assertFalse(dd.acceptText(TEXT));
+                assertTrue(dd.acceptText("bao so 3 do bo vao quang ninh hai phong gio giat cap 12"));
+            } catch (Throwable t) { err.set(t); }
+        });
+        ingest.start();
+        filter.start();
+        ingest.join();
+        filter.join();
+        assertNull(err.get());
+        assertEquals(2, dd.droppedIds());
+        assertEquals(1, dd.droppedNear());
+    }
+
+    @Test
+    void secondThreadOnSameHalfIsRejected() throws Exception {
+        PostDeduplicator dd = new PostDeduplicator(DedupOptions.IDS);
+        assertTrue(dd.acceptId("a"));
+
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try { dd.acceptId("b"); } catch (Throwable t) { err.set(t); }
+        });
+        other.start();
+        other.join();
+        assertTrue(err.get() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> dd.seed("c", TEXT));
+    }
+}
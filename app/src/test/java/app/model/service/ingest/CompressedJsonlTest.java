@@ -0,0 +1,173 @@
+package app.model.service.ingest;
+
+import app.model.domain.FileWatermark;
+import app.model.domain.RawPost;
+import collector.core.Compression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** File .jsonl.gz / .jsonl.zst do collector ghi (Compression.newWriter) được FileConnector đọc lại. */
+class CompressedJsonlTest {
+
+    private static final String[] SUFFIXES = {".jsonl.gz", ".jsonl.zst"};
+
+    /**
+     * Lượt tăng dần chạy đúng lúc collector đang ghi lại file nén: stream bị cắt giữa chừng không được
+     * đọc dở hay ghi mốc, và khi file hoàn chỉnh thì mọi dòng đều được đọc.
+     */
+    @Test
+    void incrementalRunDuringRewriteLosesNoRows(@TempDir Path root) throws IOException {
+        for (String suffix : SUFFIXES) {
+            Path dir = Files.createDirectories(root.resolve("c" + suffix.replace('.', '_')));
+            Path file = dir.resolve("raw" + suffix);
+            FileConnector fc = new FileConnector(root);
+            QuerySpec spec = QuerySpec.ofKeywords(List.of()).withCollections(List.of(dir.getFileName().toString()));
+
+            write(file, rows(0, 3));
+            FileConnector.Increment first = fc.fetchIncremental(spec, Map.of());
+            assertEquals(ids(0, 3), ids(first.posts()), suffix);
+            Map<String, FileWatermark> marks = byPath(first.watermarks());
+            assertEquals(1, marks.size(), suffix);
+
+            // collector ghi lại file với nhiều dòng hơn, lượt chạy thấy stream mới bị cắt ở giữa
+            byte[] full = encoded(dir, suffix, rows(0, 200));
+            for (int cut : new int[]{full.length - 1, full.length / 2, 4, 0}) {
+                Files.write(file, Arrays.copyOf(full, cut));
+                bumpMtime(file);
+
+                FileConnector.Increment inc = fc.fetchIncremental(spec, marks);
+                assertTrue(inc.rewritten(), suffix + " cut " + cut);
+                inc.posts().close();
+
+                FileConnector.Increment rebuilt = fc.fetchIncremental(spec, Map.of());
+                assertEquals(List.of(), ids(rebuilt.posts()), suffix + " cut " + cut);
+                assertEquals(List.of(), rebuilt.watermarks(), suffix + " cut " + cut);
+            }
+
+            // ghi xong: lượt sau (mốc rỗng như sau lượt dựng lại) đọc đủ 200 dòng
+            Files.write(file, full);
+            bumpMtime(file);
+            FileConnector.Increment done = fc.fetchIncremental(spec, Map.of());
+            assertEquals(ids(0, 200), ids(done.posts()), suffix);
+            Map<String, FileWatermark> doneMarks = byPath(done.watermarks());
+            assertEquals(Files.size(file), doneMarks.values().iterator().next().offset(), suffix);
+
+            // không đổi: không đọc lại gì
+            FileConnector.Increment again = fc.fetchIncremental(spec, doneMarks);
+            assertFalse(again.rewritten(), suffix);
+            assertEquals(List.of(), ids(again.posts()), suffix);
+            assertEquals(doneMarks, byPath(again.watermarks()), suffix);
+        }
+    }
+
+    /** Ghi bằng Compression.newWriter, đọc lại tuần tự và song song: giống hệt bản .jsonl thường. */
+    @Test
+    void roundTripThroughFileConnector(@TempDir Path root) throws IOException {
+        List<String> lines = rows(0, 5000);
+        for (Compression c : Compression.values()) {
+            Path dir = Files.createDirectories(root.resolve(c.name()));
+            Path file = dir.resolve("raw" + c.suffix());
+            write(file, lines);
+            try (var r = Compression.newReader(file)) {
+                assertEquals(lines, r.lines().toList(), c.name());
+            }
+        }
+
+        List<RawPost> expected = fetch(root, Compression.NONE, IngestOptions.SEQUENTIAL);
+        assertEquals(ids(0, 5000), expected.stream().map(RawPost::id).toList());
+        // splitBytes nhỏ nhất: file thường bị cắt thành nhiều đoạn, file nén vẫn là một đoạn
+        IngestOptions parallel = IngestOptions.parallel(4, true).withSplitBytes(0);
+        for (Compression c : Compression.values()) {
+            assertEquals(expected, fetch(root, c, IngestOptions.SEQUENTIAL), c + " sequential");
+            assertEquals(expected, fetch(root, c, parallel), c + " parallel");
+        }
+    }
+
+    /** Nhiều member gzip / frame zstd nối nhau (ví dụ nối file bằng cat) được đọc liền một mạch. */
+    @Test
+    void concatenatedStreams(@TempDir Path root) throws IOException {
+        for (String suffix : SUFFIXES) {
+            Path dir = Files.createDirectories(root.resolve("c" + suffix.replace('.', '_')));
+            Path file = dir.resolve("raw" + suffix);
+            Files.write(file, encoded(dir, suffix, rows(0, 10)));
+            Files.write(file, encoded(dir, suffix, rows(10, 25)), StandardOpenOption.APPEND);
+
+            QuerySpec spec = QuerySpec.ofKeywords(List.of()).withCollections(List.of(dir.getFileName().toString()));
+            assertEquals(ids(0, 25), ids(new FileConnector(root).fetch(spec)), suffix);
+        }
+    }
+
+    /* ========================== Tiện ích ========================== */
+
+    private static List<RawPost> fetch(Path root, Compression c, IngestOptions options) {
+        QuerySpec spec = QuerySpec.ofKeywords(List.of()).withCollections(List.of(c.name()));
+        try (Stream<RawPost> s = new FileConnector(root, options).fetch(spec)) {
+            return s.toList();
+        }
+    }
+
+    static List<String> rows(int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            out.add("{\"id\":\"p" + i + "\",\"platform\":\"x\",\"text\":\"bão Yagi số " + i
+                    + " gây ngập\",\"ts\":\"2024-09-" + (10 + i % 10) + "T08:00:00Z\",\"hashtags\":[\"#yagi\"]}");
+        }
+        return out;
+    }
+
+    static List<String> ids(int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i < to; i++) out.add("p" + i);
+        return out;
+    }
+
+    static void write(Path file, List<String> lines) throws IOException {
+        try (BufferedWriter w = Compression.newWriter(file)) {
+            for (String l : lines) {
+                w.write(l);
+                w.newLine();
+            }
+        }
+    }
+
+    private static byte[] encoded(Path dir, String suffix, List<String> lines) throws IOException {
+        Path tmp = Files.createTempFile(dir.getParent(), "enc", suffix);
+        write(tmp, lines);
+        byte[] b = Files.readAllBytes(tmp);
+        Files.delete(tmp);
+        return b;
+    }
+
+    /** mtime mới hẳn, kể cả trên hệ thống file có độ phân giải thô. */
+    private static void bumpMtime(Path file) throws IOException {
+        long now = Math.max(System.currentTimeMillis(), Files.getLastModifiedTime(file).toMillis());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(now + 2000));
+    }
+
+    private static List<String> ids(Stream<RawPost> posts) {
+        try (posts) {
+            return posts.map(RawPost::id).toList();
+        }
+    }
+
+    private static Map<String, FileWatermark> byPath(List<FileWatermark> marks) {
+        Map<String, FileWatermark> m = new HashMap<>();
+        for (FileWatermark w : marks) m.put(w.path(), w);
+        return m;
+    }
+}
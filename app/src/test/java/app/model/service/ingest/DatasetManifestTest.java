@@ -0,0 +1,107 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Đọc dataset.yaml dạng collector sinh ra và quyết định bỏ qua collection (allDatasets=false). */
+class DatasetManifestTest {
+
+    @Test
+    void parsesCollectorYaml(@TempDir Path dir) throws IOException {
+        write(dir, """
+                # sinh bởi collector
+                name: "aid-sept"   # tên hiển thị
+                description: 'có dấu # trong nháy'
+                time:
+                  from: "2024-09-07T00:00:00Z"
+                  to:   "2024-09-20T23:59:00Z"
+                defaults:
+                  lang: "vi"
+                keywords_hint: ["cuu_tro", 'thien nguyen', bao, "a,b"]
+                records: 700
+                """);
+        DatasetManifest m = DatasetManifest.load(dir);
+        assertNotNull(m);
+        assertEquals("aid-sept", m.name());
+        assertEquals(Instant.parse("2024-09-07T00:00:00Z"), m.from());
+        assertEquals(Instant.parse("2024-09-20T23:59:00Z"), m.to());
+        assertEquals(List.of("cuu_tro", "thien nguyen", "bao", "a,b"), m.keywordsHint());
+    }
+
+    @Test
+    void missingFieldsAndFiles(@TempDir Path dir) throws IOException {
+        assertNull(DatasetManifest.load(dir));
+
+        write(dir, "name: bare\nkeywords_hint: yagi\n");
+        DatasetManifest m = DatasetManifest.load(dir);
+        assertEquals("bare", m.name());
+        assertNull(m.from());
+        assertNull(m.to());
+        assertEquals(List.of("yagi"), m.keywordsHint());
+    }
+
+    @Test
+    void mayMatchByWindowAndHints() {
+        DatasetManifest m = new DatasetManifest("aid", Instant.parse("2024-09-07T00:00:00Z"),
+                Instant.parse("2024-09-20T23:59:00Z"), List.of("cuu_tro", "#Thiện nguyện"));
+
+        QuerySpec any = QuerySpec.ofKeywords(List.of());
+        assertTrue(m.mayMatch(any));
+        // cửa sổ chạm biên vẫn tính là giao nhau
+        assertTrue(m.mayMatch(any.withWindow(Instant.parse("2024-09-20T23:59:00Z"), null)));
+        assertTrue(m.mayMatch(any.withWindow(null, Instant.parse("2024-09-07T00:00:00Z"))));
+        assertFalse(m.mayMatch(any.withWindow(Instant.parse("2024-09-21T00:00:00Z"), null)));
+        assertFalse(m.mayMatch(any.withWindow(Instant.parse("2024-08-01T00:00:00Z"), Instant.parse("2024-09-06T00:00:00Z"))));
+
+        // hint gập không dấu, '_' ~ khoảng trắng, bỏ '#', khớp theo chuỗi con hai chiều
+        assertTrue(m.mayMatch(QuerySpec.ofKeywords(List.of("#cuu tro"))));
+        assertTrue(m.mayMatch(QuerySpec.ofKeywords(List.of("bao yagi", "cứu trợ khẩn cấp"))));
+        assertTrue(m.mayMatch(QuerySpec.ofKeywords(List.of("thien"))));
+        assertFalse(m.mayMatch(QuerySpec.ofKeywords(List.of("ragasa", "#bao ragasa"))));
+
+        DatasetManifest open = new DatasetManifest("open", null, null, List.of());
+        assertTrue(open.mayMatch(QuerySpec.ofKeywords(List.of("ragasa"))
+                .withWindow(Instant.parse("2030-01-01T00:00:00Z"), null)));
+    }
+
+    @Test
+    void fileConnectorPrunesOnlyWhenAsked(@TempDir Path root) throws IOException {
+        Path aid = Files.createDirectories(root.resolve("aid"));
+        write(aid, "name: aid\ntime:\n  from: 2024-09-07T00:00:00Z\n  to: 2024-09-20T23:59:00Z\nkeywords_hint: [cuu_tro]\n");
+        Files.writeString(aid.resolve("a.jsonl"), "{\"id\":\"a1\",\"text\":\"bão ragasa\",\"ts\":\"2024-09-10T00:00:00Z\"}\n");
+        Path rag = Files.createDirectories(root.resolve("rag"));
+        write(rag, "name: ragasa-oct\nkeywords_hint: [ragasa]\n");
+        Files.writeString(rag.resolve("r.jsonl"), "{\"id\":\"r1\",\"text\":\"bão ragasa\",\"ts\":\"2024-10-02T00:00:00Z\"}\n");
+        Files.writeString(root.resolve("loose.jsonl"), "{\"id\":\"l1\",\"text\":\"ragasa\"}\n");
+
+        FileConnector fc = new FileConnector(root);
+        QuerySpec spec = QuerySpec.ofKeywords(List.of("ragasa"));
+        assertEquals(Set.of("a1", "r1", "l1"), ids(fc, spec));
+        assertEquals(Set.of("r1", "l1"), ids(fc, spec.allDatasets(false)));
+        assertEquals(Set.of("r1"), ids(fc, spec.allDatasets(false).withCollections(List.of("ragasa-oct", "aid"))));
+    }
+
+    private static Set<String> ids(FileConnector fc, QuerySpec spec) {
+        try (Stream<RawPost> s = fc.fetch(spec)) {
+            return s.map(RawPost::id).collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+
+    private static void write(Path dir, String yaml) throws IOException {
+        Files.writeString(dir.resolve(DatasetManifest.FILE_NAME), yaml, StandardCharsets.UTF_8);
+    }
+}
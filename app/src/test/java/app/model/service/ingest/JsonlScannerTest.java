@@ -0,0 +1,87 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Đọc qua nhiều cửa sổ map phải cho đúng các dòng như khi map cả file một lần. */
+class JsonlScannerTest {
+
+    @Test
+    void smallWindowsReadSameLinesAsOneMapping(@TempDir Path dir) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String[] ends = {"\n", "\r\n", "\r", "\n\n", "\r\n  \r\n"};
+        for (int i = 0; i < 200; i++) {
+            sb.append("{\"id\":\"p").append(i).append("\",\"text\":\"")
+              .append("bão lũ ".repeat(i % 7)).append("\"}").append(ends[i % ends.length]);
+        }
+        Path file = dir.resolve("lines.jsonl");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+
+        List<String> whole = lines(file, JsonlScanner.WINDOW);
+        assertEquals(200, whole.size());
+        // cửa sổ nhỏ nhất vẫn chứa được dòng dài nhất (kể cả "\r\n"), tới vài lần độ dài dòng
+        for (long w = 120; w < 400; w++) assertEquals(whole, lines(file, w), "window " + w);
+    }
+
+    @Test
+    void chunkStartingMidLineWithSmallWindow(@TempDir Path dir) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) sb.append("{\"id\":\"p").append(i).append("\"}\r\n");
+        Path file = dir.resolve("split.jsonl");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        long size = Files.size(file);
+
+        List<String> whole = lines(file, JsonlScanner.WINDOW);
+        for (long cut = 1; cut < size; cut += 7) {
+            List<String> parts = new ArrayList<>();
+            parts.addAll(lines(new JsonlChunks.Chunk(0, file, 0, cut), 40));
+            parts.addAll(lines(new JsonlChunks.Chunk(1, file, cut, size), 40));
+            assertEquals(whole, parts, "cut " + cut);
+        }
+    }
+
+    @Test
+    void lineLongerThanWindowFails(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("long.jsonl");
+        Files.writeString(file, "{\"id\":\"a\"}\n{\"id\":\"" + "x".repeat(500) + "\"}\n");
+        assertThrows(RuntimeException.class, () -> lines(file, 100));
+    }
+
+    @Test
+    void bundledCollectionsThroughSmallWindows() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(Path.of("data", "collections"))) {
+            files = s.filter(p -> JsonlCodec.of(p) == JsonlCodec.PLAIN).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+        for (Path f : files) assertEquals(lines(f, JsonlScanner.WINDOW), lines(f, 64 * 1024), f.toString());
+    }
+
+    private static List<String> lines(Path file, long window) throws IOException {
+        return lines(new JsonlChunks.Chunk(0, file, 0, Files.size(file)), window);
+    }
+
+    /** offset + nội dung đã parse của từng dòng (id sinh ngẫu nhiên thì bỏ). */
+    private static List<String> lines(JsonlChunks.Chunk chunk, long window) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (JsonlScanner sc = new JsonlScanner(chunk, window)) {
+            while (sc.nextLine()) {
+                RawPost p = sc.parseLine();
+                String id = p == null || p.id().startsWith("gen_") ? "?" : p.id();
+                out.add(sc.lineOffset() + " " + id + " " + (p == null ? null : p.text()));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,113 @@
+package app.model.service.ingest;
+
+import app.model.domain.RawPost;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Snapshot dạng cột của collection có sẵn phải cho đúng các RawPost (và thứ tự) như FileConnector. */
+class SnapshotConnectorTest {
+
+    private static final Path BUNDLED = Path.of("data", "collections");
+
+    @Test
+    void bundledCollectionRoundTrip(@TempDir Path snaps) throws IOException {
+        assertEquals(List.of("yagi-sept"), ColumnarSnapshot.refresh(BUNDLED, snaps, Set.of("Yagi Sept Simulated")));
+        assertTrue(Files.isRegularFile(snaps.resolve("yagi-sept" + ColumnarSnapshot.SUFFIX)));
+
+        FileConnector files = new FileConnector(BUNDLED);
+        SnapshotConnector snap = new SnapshotConnector(snaps);
+        QuerySpec all = QuerySpec.ofKeywords(List.of()).withCollections(List.of("yagi-sept"));
+        // keyword đã gập như PipelineService.expandKeywords; biên cửa sổ rơi giữa ngày có bài
+        QuerySpec query = QuerySpec.ofKeywords(List.of("yagi", "#yagi", "bao yagi", "#bao yagi", "cuu tro"))
+                .withWindow(Instant.parse("2024-09-08T06:30:00Z"), Instant.parse("2024-09-15T18:00:00Z"))
+                .withCollections(List.of("yagi-sept"));
+
+        List<RawPost> expectedAll = fetch(files, all);
+        assertTrue(expectedAll.size() > 1000, "rows " + expectedAll.size());
+        assertEquals(expectedAll, fetch(snap, all));
+
+        List<RawPost> expected = fetch(files, query);
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() < expectedAll.size());
+        assertEquals(expected, fetch(snap, query));
+
+        // cửa sổ chỉ một phía
+        QuerySpec after = QuerySpec.ofKeywords(List.of()).withWindow(Instant.parse("2024-09-20T00:00:00Z"), null)
+                .withCollections(List.of("yagi-sept"));
+        assertEquals(fetch(files, after), fetch(snap, after));
+    }
+
+    @Test
+    void staleSnapshotWarnsThenRefreshes(@TempDir Path tmp) throws IOException {
+        Path root = Files.createDirectories(tmp.resolve("collections"));
+        Path coll = Files.createDirectories(root.resolve("ragasa-oct"));
+        for (String f : List.of("dataset.yaml", "2024-10-simulated.jsonl")) {
+            Files.copy(BUNDLED.resolve("ragasa-oct").resolve(f), coll.resolve(f), StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        Path snaps = tmp.resolve("snapshots");
+        SnapshotConnector auto = SnapshotConnector.over(root);
+        QuerySpec all = QuerySpec.ofKeywords(List.of());
+
+        List<RawPost> before = fetch(auto, all);
+        assertEquals(fetch(new FileConnector(root), all), before);
+        Path snapFile = snaps.resolve("ragasa-oct" + ColumnarSnapshot.SUFFIX);
+        assertTrue(ColumnarSnapshot.isCurrent(snapFile, coll));
+
+        // collector ghi thêm: snapshot cũ vẫn đọc được nhưng có cảnh báo
+        Path jsonl = coll.resolve("2024-10-simulated.jsonl");
+        Files.writeString(jsonl, "{\"id\":\"late-1\",\"text\":\"bão Ragasa đến muộn\",\"ts\":\"2024-10-16T00:00:00Z\"}\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(jsonl, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        assertFalse(ColumnarSnapshot.isCurrent(snapFile, coll));
+
+        String err = stderrOf(() -> assertEquals(before, fetch(new SnapshotConnector(snaps), all)));
+        assertTrue(err.contains("[WARN] snapshot ragasa-oct.snap is older than its collection"), err);
+
+        // over(...) dựng lại trước khi đọc: có dòng mới, không còn cảnh báo
+        String err2 = stderrOf(() -> {
+            List<RawPost> after = fetch(auto, all);
+            assertEquals(before.size() + 1, after.size());
+            assertEquals("late-1", after.get(after.size() - 1).id());
+            assertEquals(fetch(new FileConnector(root), all), after);
+        });
+        assertFalse(err2.contains("[WARN]"), err2);
+        assertTrue(ColumnarSnapshot.isCurrent(snapFile, coll));
+
+        // collection không tồn tại: không đọc gì
+        assertEquals(List.of(), fetch(auto, all.withCollections(List.of("nope"))));
+    }
+
+    private static List<RawPost> fetch(SocialConnector c, QuerySpec spec) {
+        try (Stream<RawPost> s = c.fetch(spec)) {
+            return s.toList();
+        }
+    }
+
+    private static String stderrOf(Runnable r) {
+        PrintStream old = System.err;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(buf, true, StandardCharsets.UTF_8));
+        try {
+            r.run();
+        } finally {
+            System.setErr(old);
+        }
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,149 @@
+package app.model.service.nlp;
+
+import app.util.TestCorpus;
+import app.util.TextNorm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Lexicon đọc từ .lexbin phải chấm điểm y hệt bản biên dịch từ file text; cache hỏng/cũ thì biên dịch lại. */
+class LexiconCacheTest {
+
+    private static final Instant TS = Instant.parse("2024-09-08T00:00:00Z");
+
+    @Test
+    void warmLoadAnalyzesLikeColdLoad(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        Path cache = LexiconCache.fileOf(root);
+        assertFalse(Files.exists(cache));
+
+        LocalNlpModel cold = new LocalNlpModel(root);
+        assertTrue(Files.isRegularFile(cache));
+        LexiconSnapshot lx = LexiconSnapshot.load(root);
+        assertTrue(lx.cached);
+        LocalNlpModel warm = new LocalNlpModel(root);
+
+        List<String> texts = new ArrayList<>();
+        TestCorpus.texts().forEach(t -> texts.add(TextNorm.normalize(t)));
+        assertFalse(texts.isEmpty());
+        for (int i = 0; i < texts.size(); i++) {
+            String t = texts.get(i);
+            LocalNlpModel.Analysis a = cold.analyzeAll("p" + i, t, "vi", TS), b = warm.analyzeAll("p" + i, t, "vi", TS);
+            assertEquals(a.sentiment(), b.sentiment(), t);
+            assertEquals(a.reliefSentiment(), b.reliefSentiment(), t);
+            // không khớp cụm nào của damage.yaml thì loại thiệt hại là một loại chọn ngẫu nhiên
+            boolean[] hit = {false};
+            lx.taxonomyPhrases.scan(t, (p, end) -> hit[0] |= lx.damageOf[p].length > 0);
+            if (hit[0]) assertEquals(a.damageTypes(), b.damageTypes(), t);
+            else assertEquals(1, b.damageTypes().size(), t);
+            assertEquals(cold.tokenizeForTrends(t), warm.tokenizeForTrends(t), t);
+        }
+    }
+
+    @Test
+    void corruptOrTruncatedCacheFallsBackToCompiling(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        LexiconSnapshot compiled = LexiconSnapshot.load(root);
+        assertFalse(compiled.cached);
+        Path cache = LexiconCache.fileOf(root);
+        byte[] good = Files.readAllBytes(cache);
+
+        List<byte[]> broken = new ArrayList<>();
+        broken.add(new byte[0]);
+        broken.add(Arrays.copyOf(good, 12));                   // header cắt giữa chừng
+        broken.add(Arrays.copyOf(good, good.length / 2));      // ghi dở
+        broken.add(Arrays.copyOf(good, good.length - 1));      // mất MAGIC cuối
+        byte[] version = good.clone();
+        version[7]++;                                          // VERSION khác
+        broken.add(version);
+        byte[] code = good.clone();
+        code[15]++;                                            // bytecode biên dịch khác
+        broken.add(code);
+        for (int at : new int[]{100, good.length / 3, good.length - 8}) {
+            byte[] flipped = good.clone();
+            flipped[at] = (byte) ~flipped[at];                 // hỏng giữa thân file
+            broken.add(flipped);
+        }
+
+        for (byte[] b : broken) {
+            Files.write(cache, b);
+            LexiconSnapshot lx = LexiconSnapshot.load(root);
+            assertFalse(lx.cached, "cache of " + b.length + " bytes");
+            assertSameLexicon(compiled, lx);
+            // biên dịch lại thì ghi đè bằng cache tốt
+            assertArrayEquals(good, Files.readAllBytes(cache));
+            assertTrue(LexiconSnapshot.load(root).cached);
+        }
+    }
+
+    /** Sửa file nguồn mà giữ nguyên kích thước và mtime (mtime thô, chép đè giữ mtime): vẫn không dùng cache cũ. */
+    @Test
+    void sameSizeSameMtimeEditIsNotServedStale(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        LocalNlpModel before = new LocalNlpModel(root);
+        assertEquals(List.of("nguoi_bi_anh_huong"), before.detectDamageTypes("mat tich"));
+        assertTrue(LexiconSnapshot.load(root).cached);
+
+        Path damage = root.resolve("damage.yaml");
+        FileTime mtime = Files.getLastModifiedTime(damage);
+        long size = Files.size(damage);
+        Files.writeString(damage, Files.readString(damage, StandardCharsets.UTF_8).replace("\"mat tich\"", "\"xa lu ho\""),
+                StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(damage, mtime);
+        assertEquals(size, Files.size(damage));
+
+        LexiconSnapshot lx = LexiconSnapshot.load(root);
+        assertFalse(lx.cached);
+        assertTrue(lx.damageMap.get("nguoi_bi_anh_huong").contains("xa lu ho"));
+        assertFalse(lx.damageMap.get("nguoi_bi_anh_huong").contains("mat tich"));
+        assertTrue(LexiconSnapshot.load(root).cached);
+        assertEquals(List.of("nguoi_bi_anh_huong"), new LocalNlpModel(root).detectDamageTypes("xa lu ho"));
+    }
+
+    /** File thiếu cũng là một phần dấu vân tay: thêm lại file thì phải biên dịch lại. */
+    @Test
+    void missingFileChangesStamp(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        Path stop = root.resolve("stopwords.txt");
+        byte[] content = Files.readAllBytes(stop);
+        Files.delete(stop);
+        LexiconSnapshot without = LexiconSnapshot.load(root);
+        assertFalse(without.files.contains("stopwords.txt"));
+        assertTrue(LexiconSnapshot.load(root).cached);
+
+        Files.write(stop, content);
+        LexiconSnapshot with = LexiconSnapshot.load(root);
+        assertFalse(with.cached);
+        assertTrue(with.files.contains("stopwords.txt"));
+        assertFalse(with.stop.isEmpty());
+    }
+
+    private static void assertSameLexicon(LexiconSnapshot expected, LexiconSnapshot actual) {
+        assertArrayEquals(expected.vocab.words(), actual.vocab.words());
+        assertArrayEquals(expected.flags, actual.flags);
+        assertArrayEquals(expected.phraseSign, actual.phraseSign);
+        assertArrayEquals(expected.sentimentPhrases.tables(), actual.sentimentPhrases.tables());
+        assertArrayEquals(expected.taxonomyPhrases.tables(), actual.taxonomyPhrases.tables());
+        assertEquals(expected.damageMap, actual.damageMap);
+        assertEquals(expected.reliefMap, actual.reliefMap);
+        assertEquals(expected.stop, actual.stop);
+        assertEquals(expected.files, actual.files);
+    }
+
+    private static Path copyLexicons(Path tmp) throws IOException {
+        Path root = Files.createDirectories(tmp.resolve("vi"));
+        for (String f : LexiconSnapshot.FILES) Files.copy(Path.of("data", "lexicons", "vi", f), root.resolve(f));
+        return root;
+    }
+}
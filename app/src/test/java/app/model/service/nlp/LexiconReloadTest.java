@@ -0,0 +1,61 @@
+package app.model.service.nlp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Nạp lại khi file lexicon đang bị xoá/ghi dở phải giữ snapshot cũ; lần nạp đầu vẫn dùng mặc định. */
+class LexiconReloadTest {
+
+    private static final String TEXT = "nhieu nguoi chet va mat tich sau bao";
+
+    @Test
+    void reloadKeepsSnapshotWhenFileDisappearsOrIsTruncated(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        LocalNlpModel m = new LocalNlpModel(root);
+        List<String> before = m.detectDamageTypes(TEXT);
+        assertTrue(before.contains("nguoi_bi_anh_huong"));
+        long v = m.lexiconVersion();
+
+        Path damage = root.resolve("damage.yaml");
+        String content = Files.readString(damage);
+        Files.delete(damage);
+        assertFalse(m.reload());
+        assertEquals(v, m.lexiconVersion());
+        assertEquals(before, m.detectDamageTypes(TEXT));
+
+        Files.writeString(damage, "");                              // ghi dở: chưa có nội dung
+        assertFalse(m.reload());
+        Files.writeString(damage, "  nguoi_bi_anh_huong:\n");     // bị cắt mất khoá gốc
+        assertFalse(m.reload());
+        assertEquals(v, m.lexiconVersion());
+        assertEquals(before, m.detectDamageTypes(TEXT));
+
+        Files.writeString(damage, content.replace("\"mat tich\"", "\"mat tich\"\n    - \"sat lo\""));
+        assertTrue(m.reload());
+        assertNotEquals(v, m.lexiconVersion());
+        assertTrue(m.detectDamageTypes("sat lo dat").contains("nguoi_bi_anh_huong"));
+    }
+
+    @Test
+    void fileMissingFromTheStartIsNotRequiredOnReload(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        Files.delete(root.resolve("stopwords.txt"));
+        LocalNlpModel m = new LocalNlpModel(root);    // lần đầu: thiếu file vẫn nạp được
+        assertTrue(m.reload());
+    }
+
+    private static Path copyLexicons(Path tmp) throws IOException {
+        Path root = Files.createDirectories(tmp.resolve("vi"));
+        for (String f : LexiconSnapshot.FILES) {
+            Files.copy(Path.of("data", "lexicons", "vi", f), root.resolve(f));
+        }
+        return root;
+    }
+}
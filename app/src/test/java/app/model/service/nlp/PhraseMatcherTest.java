@@ -0,0 +1,205 @@
+package app.model.service.nlp;
+
+import app.util.TestCorpus;
+import app.util.TextNorm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Automaton phải báo đúng các lần khớp mà cách dò thô từng vị trí (như trước khi có PhraseMatcher) tìm ra. */
+class PhraseMatcherTest {
+
+    /** Cụm và văn bản ngẫu nhiên trên bảng ký hiệu nhỏ: nhiều cụm chồng nhau, cụm là tiền/hậu tố của nhau. */
+    @Test
+    void randomSymbolsMatchBruteForce() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int alphabet = 2 + rnd.nextInt(4);
+            PhraseMatcher.Builder b = new PhraseMatcher.Builder();
+            List<int[]> patterns = new ArrayList<>();
+            for (int k = 0, n = 1 + rnd.nextInt(30); k < n; k++) {
+                int[] p = new int[1 + rnd.nextInt(6)];
+                for (int i = 0; i < p.length; i++) p[i] = rnd.nextInt(alphabet);
+                int id = b.add(p);
+                if (id == patterns.size()) patterns.add(p);
+                else assertArrayEquals(patterns.get(id), p);   // cụm đã có: id cũ
+            }
+            PhraseMatcher m = b.build();
+            assertEquals(patterns.size(), m.size());
+
+            int[] text = new int[rnd.nextInt(200)];
+            for (int i = 0; i < text.length; i++) text[i] = rnd.nextInt(alphabet + 1) - 1;   // có cả -1
+            int from = text.length == 0 ? 0 : rnd.nextInt(text.length), to = from + rnd.nextInt(text.length - from + 1);
+
+            assertEquals(bruteForce(patterns, text, 0, text.length), hits(m, text, 0, text.length), "round " + round);
+            assertEquals(bruteForce(patterns, text, from, to), hits(m, text, from, to), "round " + round);
+        }
+    }
+
+    /** Cụm taxonomy khớp theo ký tự như String.indexOf, kể cả khi nằm giữa một từ khác. */
+    @Test
+    void taxonomyCharsMatchIndexOf() {
+        List<String> phrases = List.of("mat", "mat dien", "dien", "at d", "ngap", "ngap sau", "sau", "a", "aa", "aaa",
+                "cau", "sap cau", "ap");
+        String[] texts = {
+                "", "a", "aaaa", "tomato mat dien ngap sau aaaa", "mattress madien", "sap cau cau sap", "khau trang",
+                "nhà bị ngập sâu, mất điện", "ngapsaudien", "xx dien mat",
+        };
+        PhraseMatcher m = build(phrases);
+        for (String t : texts) {
+            String norm = TextNorm.normalize(t);
+            assertEquals(indexOfHits(phrases, norm), hits(m, norm), t);
+        }
+    }
+
+    /** Taxonomy có sẵn (damage.yaml + relief.yaml) trên textNorm của mọi bài trong corpus. */
+    @Test
+    void bundledTaxonomyMatchesIndexOfOnCorpus(@TempDir Path tmp) throws IOException {
+        LexiconSnapshot lx = LexiconSnapshot.load(copyLexicons(tmp));
+        List<String> phrases = new ArrayList<>();
+        lx.damageMap.values().forEach(l -> l.stream().filter(p -> !p.isEmpty() && !phrases.contains(p)).forEach(phrases::add));
+        lx.reliefMap.values().forEach(l -> l.stream().filter(p -> !p.isEmpty() && !phrases.contains(p)).forEach(phrases::add));
+        PhraseMatcher m = build(phrases);
+        assertEquals(phrases.size(), lx.taxonomyPhrases.size());
+
+        for (String t : TestCorpus.texts()) {
+            String norm = TextNorm.normalize(t);
+            List<String> expected = indexOfHits(phrases, norm);
+            assertEquals(expected, hits(m, norm), t);
+            assertEquals(expected.size(), hits(lx.taxonomyPhrases, norm).size(), t);
+        }
+    }
+
+    /**
+     * Cụm cảm xúc dài nhất tại từng token, cụm có ở cả pos và neg thì pos thắng: LocalNlpModel.longestPhrases
+     * phải cho đúng kết quả của matchAt cũ (thử mọi cụm pos rồi neg ở từng vị trí).
+     */
+    @Test
+    void sentimentPhrasesMatchPerPositionBruteForce(@TempDir Path tmp) throws IOException {
+        Path root = copyLexicons(tmp);
+        Files.writeString(root.resolve("sentiment_pos.txt"), String.join("\n",
+                "ung ho", "mat dien", "ho tro kip thoi", "kip thoi", "tot"), StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("sentiment_neg.txt"), String.join("\n",
+                "mat dien", "mat dien keo dai", "keo dai", "dai dang", "ho tro cham", "xau"), StandardCharsets.UTF_8);
+        List<String> texts = new ArrayList<>(List.of(
+                "", "mat dien", "mat dien keo dai dang", "mat mat dien keo", "ho tro kip thoi va ho tro cham",
+                "keo dai dai dang mat dien", "ung ho ung ho tot xau"));
+        TestCorpus.texts().forEach(t -> texts.add(TextNorm.normalize(t)));
+        assertSentimentMatchesBruteForce(LexiconSnapshot.load(root), root, texts);
+
+        // lexicon có sẵn trên corpus
+        Path bundled = copyLexicons(Files.createDirectories(tmp.resolve("bundled")));
+        assertSentimentMatchesBruteForce(LexiconSnapshot.load(bundled), bundled, texts);
+    }
+
+    private static void assertSentimentMatchesBruteForce(LexiconSnapshot lx, Path root, List<String> texts) throws IOException {
+        List<List<String>> pos = phrases(LexiconSnapshot.POS_DEFAULTS, root.resolve("sentiment_pos.txt"));
+        List<List<String>> neg = phrases(LexiconSnapshot.NEG_DEFAULTS, root.resolve("sentiment_neg.txt"));
+        for (String t : texts) {
+            List<String> toks = Vocabulary.tokenize(t);
+            Vocabulary.Tokens enc = lx.vocab.encode(t);
+            assertEquals(toks.size(), enc.size(), t);
+            int[] expected = new int[toks.size()];
+            for (int i = 0; i < toks.size(); i++) expected[i] = matchAt(toks, i, pos, neg);
+            assertArrayEquals(expected, LocalNlpModel.longestPhrases(lx, enc.ids(), 0, enc.size()), t);
+        }
+    }
+
+    /* ========================== Dò thô ========================== */
+
+    /** Mọi (cụm, vị trí kết thúc) trong text[from, to), thử từng cụm ở từng vị trí. */
+    private static List<String> bruteForce(List<int[]> patterns, int[] text, int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            for (int p = 0; p < patterns.size(); p++) {
+                int[] pat = patterns.get(p);
+                if (i + pat.length <= to && Arrays.equals(pat, 0, pat.length, text, i, i + pat.length)) {
+                    out.add(p + "@" + (i + pat.length));
+                }
+            }
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static List<String> indexOfHits(List<String> phrases, String text) {
+        List<String> out = new ArrayList<>();
+        for (int p = 0; p < phrases.size(); p++) {
+            String ph = phrases.get(p);
+            for (int at = text.indexOf(ph); at >= 0; at = text.indexOf(ph, at + 1)) out.add(p + "@" + (at + ph.length()));
+        }
+        out.sort(null);
+        return out;
+    }
+
+    /** matchAt cũ: +độ dài cụm pos, -độ dài cụm neg dài nhất bắt đầu tại i (pos thắng khi bằng), 0 nếu không có. */
+    private static int matchAt(List<String> toks, int i, List<List<String>> pos, List<List<String>> neg) {
+        int bestLen = 0, bestSign = 0;
+        for (List<String> p : pos) {
+            if (i + p.size() <= toks.size() && toks.subList(i, i + p.size()).equals(p) && p.size() > bestLen) {
+                bestLen = p.size();
+                bestSign = +1;
+            }
+        }
+        for (List<String> p : neg) {
+            if (i + p.size() <= toks.size() && toks.subList(i, i + p.size()).equals(p) && p.size() > bestLen) {
+                bestLen = p.size();
+                bestSign = -1;
+            }
+        }
+        return bestSign * bestLen;
+    }
+
+    /* ========================== Tiện ích ========================== */
+
+    private static PhraseMatcher build(List<String> phrases) {
+        PhraseMatcher.Builder b = new PhraseMatcher.Builder();
+        for (int p = 0; p < phrases.size(); p++) assertEquals(p, b.add(phrases.get(p)));
+        return b.build();
+    }
+
+    private static List<String> hits(PhraseMatcher m, int[] text, int from, int to) {
+        List<String> out = new ArrayList<>();
+        m.scan(text, from, to, (p, end) -> out.add(p + "@" + end));
+        out.sort(null);
+        return out;
+    }
+
+    private static List<String> hits(PhraseMatcher m, String text) {
+        List<String> out = new ArrayList<>();
+        m.scan(text, (p, end) -> out.add(p + "@" + end));
+        out.sort(null);
+        return out;
+    }
+
+    /** Cụm (>= 2 token) của một lexicon cảm xúc (mặc định + file), tách như LexiconSnapshot. */
+    private static List<List<String>> phrases(List<String> defaults, Path file) throws IOException {
+        List<List<String>> out = new ArrayList<>();
+        List<String> lines = new ArrayList<>(defaults);
+        lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+        for (String line : lines) {
+            line = line.trim().toLowerCase(Locale.ROOT);
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            List<String> toks = Vocabulary.tokenize(line);
+            if (toks.size() >= 2) out.add(toks);
+        }
+        return out;
+    }
+
+    private static Path copyLexicons(Path tmp) throws IOException {
+        Path root = Files.createDirectories(tmp.resolve("vi"));
+        for (String f : LexiconSnapshot.FILES) Files.copy(Path.of("data", "lexicons", "vi", f), root.resolve(f));
+        return root;
+    }
+}
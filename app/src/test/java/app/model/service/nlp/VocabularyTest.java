@@ -0,0 +1,83 @@
+package app.model.service.nlp;
+
+import app.util.TestCorpus;
+import app.util.TextNorm;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** tokenize/encode (bảng lớp ký tự) phải tách giống hệt bộ tách regex cũ (tokenizeRegex). */
+class VocabularyTest {
+
+    private static final Pattern SPACES = Pattern.compile("\\p{Z}+");
+
+    private static final String[] EDGE = {
+            "", " ", "   ", "a", "A-BIT hơi a-bit", "#bao #Yagi ##x # #", "ŞİMDİ İstanbul İİ",
+            "K kelvin Kk", "tab\there new\nline cr\rx", "nbsp split em split ideo　split",
+            "line sep para sep", "ﬁ ligature ß", "emoji😀inside 𝐀𝐁𝐂", "\uD800lone \uDC00",
+            "số 123 và x2", "!!!...,,,", "mưa   lớn,  ngập-sâu", "ABĆdef",
+    };
+
+    @Test
+    void tokenizeMatchesRegexOnEdgeCases() {
+        for (String t : EDGE) assertEquals(tokenizeRegex(t), Vocabulary.tokenize(t), t);
+    }
+
+    @Test
+    void tokenizeMatchesRegexOnCorpus() {
+        for (String t : inputs()) assertEquals(tokenizeRegex(t), Vocabulary.tokenize(t), t);
+    }
+
+    @Test
+    void encodeMatchesRegexTokens() {
+        List<String> inputs = new ArrayList<>(inputs());
+        for (String e : EDGE) inputs.add(e);
+
+        // từ vựng chỉ lấy từ một nửa số văn bản để nửa kia có cả token ngoài từ vựng (-1)
+        Vocabulary vocab = new Vocabulary();
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < inputs.size(); i += 2) {
+            for (String tok : tokenizeRegex(inputs.get(i))) ids.put(tok, vocab.intern(tok));
+        }
+
+        for (String t : inputs) {
+            List<String> ref = tokenizeRegex(t);
+            Vocabulary.Tokens got = vocab.encode(t);
+            assertEquals(ref.size(), got.size(), t);
+            int start = 0;
+            for (int i = 0; i < ref.size(); i++) {
+                assertEquals((int) ids.getOrDefault(ref.get(i), -1), got.ids()[i], t);
+                assertEquals(start, got.starts()[i], t);
+                start += ref.get(i).length() + 1;
+            }
+        }
+    }
+
+    /** Bộ tách cũ của LocalNlpModel (split + replaceAll theo từng token), làm chuẩn để đối chiếu. */
+    private static List<String> tokenizeRegex(String text) {
+        var raw = SPACES.split(text.trim().toLowerCase(Locale.ROOT));
+        var list = new ArrayList<String>(raw.length);
+        for (var w : raw) {
+            w = w.replaceAll("[^a-z0-9#]+", "");
+            if (!w.isBlank()) list.add(w);
+        }
+        return list;
+    }
+
+    /** Văn bản thô và textNorm (đầu vào thật của LocalNlpModel) của mọi bài trong corpus. */
+    private static List<String> inputs() {
+        List<String> out = new ArrayList<>();
+        for (String t : TestCorpus.texts()) {
+            out.add(t);
+            out.add(TextNorm.normalize(t));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,91 @@
+package app.model.service.pipeline;
+
+import app.model.domain.RawPost;
+import app.model.service.ingest.QuerySpec;
+import app.model.service.ingest.SocialConnector;
+import app.model.service.pipeline.PipelineService.ConnectorTiming;
+import app.model.service.pipeline.PipelineService.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Connector chậm: không giới hạn thì đọc hết; có timeout thì bị ngắt và run bị đánh dấu thiếu. */
+class ConnectorFanOutTest {
+
+    @Test
+    void noTimeoutReadsSlowConnectorToTheEnd() {
+        ConnectorFanOut fan = new ConnectorFanOut(List.of(slow("slow", 20, 10)), null);
+        try (Stream<RawPost> s = fan.fetch(QuerySpec.ofKeywords(List.of()))) {
+            assertEquals(20, s.count());
+        }
+        RunResult r = new RunResult("run", 20, 20, fan.timings());
+        assertTrue(r.complete);
+        assertTrue(r.incompleteConnectors().isEmpty());
+    }
+
+    @Test
+    void timedOutConnectorMarksRunIncomplete() {
+        ConnectorFanOut fan = new ConnectorFanOut(List.of(slow("fast", 5, 0), slow("slow", 1000, 10)),
+                Duration.ofMillis(100));
+        long n;
+        try (Stream<RawPost> s = fan.fetch(QuerySpec.ofKeywords(List.of()))) {
+            n = s.count();
+        }
+        assertTrue(n >= 5 && n < 1005, "posts " + n);
+        RunResult r = new RunResult("run", (int) n, (int) n, fan.timings());
+        assertFalse(r.complete);
+        assertEquals(1, r.incompleteConnectors().size());
+        assertEquals("slow", r.incompleteConnectors().get(0).connector());
+        assertEquals(ConnectorTiming.Status.TIMED_OUT, r.incompleteConnectors().get(0).status());
+    }
+
+    /** Connector ném Error (giữa chừng hay ngay lúc fetch) vẫn kết thúc: stream gộp không bị treo. */
+    @Test
+    void connectorThrowingErrorFailsWithoutHanging() {
+        ConnectorFanOut fan = new ConnectorFanOut(List.of(slow("ok", 300, 0), throwing("mid", 600), throwing("early", -1)), null);
+        long n = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (Stream<RawPost> s = fan.fetch(QuerySpec.ofKeywords(List.of()))) {
+                return s.count();
+            }
+        });
+        assertEquals(300 + 600, n);
+        RunResult r = new RunResult("run", (int) n, (int) n, fan.timings());
+        assertFalse(r.complete);
+        assertEquals(List.of("mid", "early"), r.incompleteConnectors().stream().map(ConnectorTiming::connector).toList());
+        for (ConnectorTiming t : r.incompleteConnectors()) assertEquals(ConnectorTiming.Status.FAILED, t.status());
+        assertEquals(600, r.incompleteConnectors().get(0).posts());
+    }
+
+    /** Ném StackOverflowError sau failAfter bản ghi; failAfter < 0 = ném ngay trong fetch. */
+    private static SocialConnector throwing(String id, int failAfter) {
+        return new SocialConnector() {
+            @Override public String id() { return id; }
+
+            @Override public Stream<RawPost> fetch(QuerySpec spec) {
+                if (failAfter < 0) throw new StackOverflowError(id);
+                return Stream.iterate(0, i -> i + 1).map(i -> {
+                    if (i == failAfter) throw new StackOverflowError(id);
+                    return new RawPost(id + i, id, "text", "vi", null, null, Map.of());
+                });
+            }
+        };
+    }
+
+    private static SocialConnector slow(String id, int posts, long sleepMs) {
+        return new SocialConnector() {
+            @Override public String id() { return id; }
+
+            @Override public Stream<RawPost> fetch(QuerySpec spec) {
+                return Stream.iterate(0, i -> i < posts, i -> i + 1).map(i -> {
+                    try { Thread.sleep(sleepMs); } catch (InterruptedException e) { throw new RuntimeException(e); }
+                    return new RawPost(id + i, id, "text", "vi", null, null, Map.of());
+                });
+            }
+        };
+    }
+}
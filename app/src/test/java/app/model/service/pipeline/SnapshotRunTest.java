@@ -0,0 +1,53 @@
+package app.model.service.pipeline;
+
+import app.model.repository.AnalyticsRepo;
+import app.model.repository.PostsRepo;
+import app.model.repository.RunsRepo;
+import app.model.repository.SQLite;
+import app.model.service.ingest.ColumnarSnapshot;
+import app.model.service.ingest.FileConnector;
+import app.model.service.ingest.SocialConnector;
+import app.model.service.nlp.LocalNlpModel;
+import app.model.service.preprocess.DefaultPreprocessService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** RunPlan.withSnapshots(true): cùng kết quả phân tích như đọc JSONL, snapshot được dựng cạnh collections. */
+class SnapshotRunTest {
+
+    @Test
+    void snapshotRunMatchesJsonlRun(@TempDir Path tmp) throws IOException {
+        Path root = Files.createDirectories(tmp.resolve("collections"));
+        Path coll = Files.createDirectories(root.resolve("damage-sept"));
+        Path src = Path.of("data", "collections", "damage-sept");
+        for (String f : List.of("dataset.yaml", "2024-09-simulated.jsonl")) Files.copy(src.resolve(f), coll.resolve(f));
+
+        SQLite db = new SQLite(tmp.resolve("app.db").toString());
+        db.migrate();
+        AnalyticsRepo analytics = new AnalyticsRepo(db);
+        PipelineService pipeline = new PipelineService(db, List.<SocialConnector>of(new FileConnector(root)),
+                new DefaultPreprocessService(), new PostsRepo(db), new RunsRepo(db), analytics, LocalNlpModel.shared());
+
+        RunPlan plan = RunPlan.of("ngap").withWindow(Instant.parse("2024-09-07T00:00:00Z"), Instant.parse("2024-09-11T12:00:00Z"));
+        PipelineService.RunResult jsonl = pipeline.run(plan);
+        assertTrue(jsonl.ingested > 0);
+        assertFalse(Files.exists(tmp.resolve("snapshots")));
+
+        PipelineService.RunResult snap = pipeline.run(plan.withSnapshots(true));
+        assertTrue(snap.complete);
+        assertEquals("snapshot", snap.connectors.get(0).connector());
+        assertTrue(Files.isRegularFile(tmp.resolve("snapshots").resolve("damage-sept" + ColumnarSnapshot.SUFFIX)));
+        assertEquals(jsonl.ingested, snap.ingested);
+        assertEquals(jsonl.analyzed, snap.analyzed);
+        assertEquals(analytics.readOverallRows(jsonl.runId), analytics.readOverallRows(snap.runId));
+        assertEquals(analytics.readReliefDaily(jsonl.runId), analytics.readReliefDaily(snap.runId));
+    }
+}
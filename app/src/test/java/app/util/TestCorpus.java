@@ -0,0 +1,48 @@
+package app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Trường text của mọi bài trong data/collections (các file .jsonl), đọc một lần cho cả lượt test. */
+public final class TestCorpus {
+
+    private static List<String> texts;
+
+    private TestCorpus() {}
+
+    public static synchronized List<String> texts() {
+        if (texts == null) texts = load(Path.of("data", "collections"));
+        return texts;
+    }
+
+    private static List<String> load(Path root) {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> out = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path f : s.filter(p -> p.getFileName().toString().endsWith(".jsonl")).sorted().toList()) {
+                try (BufferedReader br = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                    for (String line; (line = br.readLine()) != null; ) {
+                        if (line.isBlank()) continue;
+                        try {
+                            JsonNode text = mapper.readTree(line).get("text");
+                            if (text != null && text.isTextual()) out.add(text.asText());
+                        } catch (IOException ignore) { }   // dòng hỏng: connector cũng bỏ qua
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return List.copyOf(out);
+    }
+}
@@ -0,0 +1,55 @@
+package app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** normalize() (một lượt, không regex) phải cho đúng textNorm của chuỗi regex cũ. */
+class TextNormTest {
+
+    @Test
+    void bundledCollectionsMatchReference() {
+        List<String> texts = TestCorpus.texts();
+        assertFalse(texts.isEmpty());
+        TextNorm.Scratch scratch = new TextNorm.Scratch();
+        for (String t : texts) assertEquals(TextNorm.normalizeReference(t), TextNorm.normalize(t, scratch), t);
+    }
+
+    @Test
+    void edgeCasesMatchReference() {
+        String[] cases = {
+                "", "   ", "Đà Nẵng ĐÃ ngập!!!", "Hàaaaa nộiiii???", "xem https://a.b/c?d=1,e và www.x.vn.",
+                "mail: ab.c+d@ex-ample.com.vn, @user_1 #BãoYagi #123", "x@y.z a@b.cc", "http://x.y@a.bc",
+                "ǅemal ﬁ ß ẞ İstanbul Kelvin K", "ΣΑΣ σας Σ", "tab\tnew\nline\r nbsp em",
+                "é ạ̀ combining", "emoji 😀 𝐀𝐁 \uD800 lẻ", "!!!???!?", "aaaAAAaaa",
+        };
+        for (String t : cases) assertEquals(TextNorm.normalizeReference(t), TextNorm.normalize(t), t);
+    }
+
+    /** Bảng VnFold được điền dần từ nhiều luồng: không luồng nào được thấy ô chưa đủ. */
+    @Test
+    void concurrentFirstUseOfFoldTables() throws Exception {
+        StringBuilder all = new StringBuilder();
+        for (char c = 0x80; c < 0xD800; c++) all.append(c);
+        String text = all.toString();
+
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        String[] out = new String[4];
+        for (int i = 0; i < out.length; i++) {
+            int k = i;
+            threads.add(new Thread(() -> {
+                try { out[k] = TextNorm.normalize(text) + "|" + VnFold.fold(text); }
+                catch (Throwable t) { err.set(t); }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) t.join();
+        assertNull(err.get());
+        for (String s : out) assertEquals(out[0], s);
+    }
+}
@@ -0,0 +1,140 @@
+package app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** TimestampParser phải cho đúng kết quả của chuỗi regex + Instant.parse + DateTimeFormatter cũ. */
+class TimestampParserTest {
+
+    private static final String MUTATIONS = "09Zz Tt-/:.+?";
+
+    @Test
+    void bundledCollectionsMatchReference() throws IOException {
+        List<String> values = bundledTimestamps();
+        assertFalse(values.isEmpty());
+        TimestampParser p = new TimestampParser();
+        for (String v : values) {
+            Instant expected = reference(v);
+            assertNotNull(expected, v);
+            assertEquals(expected, TimestampParser.parseOnce(v), v);
+            assertEquals(expected, p.parse(v), v);
+        }
+    }
+
+    /** Mỗi dạng có sẵn bị sửa/xoá/thêm từng ký tự: chuỗi gần đúng dạng cũng phải ra như cũ. */
+    @Test
+    void nearMissesMatchReference() throws IOException {
+        Set<String> seeds = new LinkedHashSet<>(List.of(
+                "2024-09-07T03:15:00Z", "2024-09-07T03:15:00.123Z", "2024-09-07T03:15:00+07:00",
+                "2024-09-07 03:15:00", "2024/09/07 03:15:00", "1725678900", "1725678900123"));
+        List<String> bundled = bundledTimestamps();
+        for (int i = 0; i < bundled.size(); i += Math.max(1, bundled.size() / 20)) seeds.add(bundled.get(i));
+
+        // một parser dùng chung cho mọi chuỗi: dạng nhớ từ lần trước không được làm sai lần sau
+        TimestampParser p = new TimestampParser();
+        for (String seed : seeds) {
+            for (String v : mutations(seed)) {
+                Instant expected = reference(v);
+                assertEquals(expected, TimestampParser.parseOnce(v), v);
+                assertEquals(expected, p.parse(v), v);
+            }
+        }
+    }
+
+    @Test
+    void edgeCasesMatchReference() {
+        String[] cases = {
+                null, "", "   ", " 2024-09-07T03:15:00Z ", "2024-09-07t03:15:00z", "2024-09-07T03:15:00.123456789Z",
+                "2024-09-07T03:15:00.1234567891Z", "2024-09-07T03:15:00-05:30", "2024-09-07T03:15:00+07:00:30",
+                "2024-09-07T03:15Z", "2016-12-31T23:59:60Z", "2024-09-07T24:00:00Z", "2024-02-29T00:00:00Z",
+                "2023-02-29T00:00:00Z", "2024-02-31 00:00:00", "2024-04-31 12:00:00", "+12024-09-07T03:15:00Z",
+                "12024-09-07 03:15:00", "0000-01-01 00:00:00", "0000-01-01T00:00:00Z", "0001/01/01 00:00:00",
+                "9999-12-31 23:59:59", "-0001-01-01T00:00:00Z", "0000000000", "9999999999999", "123456789",
+                "12345678901", "2024-09-07 03:15:00Z", "2024/09/07T03:15:00Z", "2024-09-07  03:15:00",
+                "2024-9-7 3:15:00", "2024-09-07 03:15:00.5",
+        };
+        for (String v : cases) {
+            Instant expected = reference(v);
+            assertEquals(expected, TimestampParser.parseOnce(v), v);
+            assertEquals(expected, new TimestampParser().parse(v), v);
+        }
+    }
+
+    private static List<String> mutations(String seed) {
+        List<String> out = new ArrayList<>();
+        out.add(seed);
+        for (int i = 0; i <= seed.length(); i++) {
+            if (i < seed.length()) out.add(seed.substring(0, i) + seed.substring(i + 1));
+            for (char c : MUTATIONS.toCharArray()) {
+                out.add(seed.substring(0, i) + c + seed.substring(i));
+                if (i < seed.length()) out.add(seed.substring(0, i) + c + seed.substring(i + 1));
+            }
+        }
+        return out;
+    }
+
+    private static List<String> bundledTimestamps() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> out = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(Path.of("data", "collections"))) {
+            for (Path f : s.filter(p -> p.getFileName().toString().endsWith(".jsonl")).sorted().toList()) {
+                for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    JsonNode n;
+                    try { n = mapper.readTree(line); }
+                    catch (IOException ignore) { continue; }
+                    for (String field : new String[]{"ts", "createdAt"}) {
+                        JsonNode v = n.get(field);
+                        if (v != null && v.isTextual() && !v.asText().isBlank()) out.add(v.asText());
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /** FileConnector/DefaultPreprocessService.parseInstantSafe trước khi có TimestampParser. */
+    private static Instant reference(String s) {
+        if (s == null || s.isBlank()) return null;
+        String x = s.trim();
+
+        if (x.matches("^\\d{13}$")) {
+            try { return Instant.ofEpochMilli(Long.parseLong(x)); }
+            catch (NumberFormatException ignore) {}
+        }
+        if (x.matches("^\\d{10}$")) {
+            try { return Instant.ofEpochSecond(Long.parseLong(x)); }
+            catch (NumberFormatException ignore) {}
+        }
+        try { return Instant.parse(x); }
+        catch (DateTimeParseException ignore) {}
+
+        try {
+            return LocalDateTime.parse(x, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignore) {}
+
+        try {
+            return LocalDateTime.parse(x, DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignore) {}
+
+        return null;
+    }
+}
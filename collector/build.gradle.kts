@@ -22,6 +22,7 @@ dependencies {
     implementation("com.google.code.gson:gson:2.11.0")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.2")
     implementation("org.slf4j:slf4j-simple:2.0.13")
+    implementation("com.github.luben:zstd-jni:1.5.6-3") // đọc/ghi .jsonl.zst
     // KHÔNG thêm selenium-devtools-* để tránh lỗi
 }
 
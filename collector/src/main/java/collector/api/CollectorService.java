@@ -1,5 +1,7 @@
 package collector.api;
 
+import collector.core.Compression;
+import collector.core.Config;
 import collector.core.RawPost;
 import collector.core.QuerySpec;
 import collector.core.SourceConnector;
@@ -97,7 +99,10 @@ public class CollectorService {
             saveDir = saveDir.resolve(collection);
             Files.createDirectories(saveDir);
         }
-        Path out = saveDir.resolve("raw-" + System.currentTimeMillis() + ".jsonl");
+        // collector.compress (conf.properties / -Dcollector.compress / COLLECTOR_COMPRESS): gz | zst | none
+        Compression comp = Compression.parse(Config.firstFileThen("collector.compress", null,
+                "collector.compress", "COLLECTOR_COMPRESS"));
+        Path out = saveDir.resolve("raw-" + System.currentTimeMillis() + comp.suffix());
         collector.core.JsonlWriter.write(out, finalList);
 
         System.out.println("[Collector] saved " + finalList.size() + " rows -> " + out);
@@ -0,0 +1,78 @@
+package collector.core;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** Nén file JSONL theo đuôi tên: .jsonl (không nén), .jsonl.gz, .jsonl.zst. */
+public enum Compression {
+    NONE(".jsonl"),
+    GZIP(".jsonl.gz"),
+    ZSTD(".jsonl.zst");
+
+    private static final int BUF = 64 * 1024;
+
+    private final String suffix;
+
+    Compression(String suffix) { this.suffix = suffix; }
+
+    /** Đuôi file tương ứng, ví dụ ".jsonl.gz". */
+    public String suffix() { return suffix; }
+
+    public static Compression ofFile(Path file) {
+        String n = file.getFileName().toString();
+        if (n.endsWith(GZIP.suffix)) return GZIP;
+        if (n.endsWith(ZSTD.suffix)) return ZSTD;
+        return NONE;
+    }
+
+    /** "gz"/"gzip", "zst"/"zstd", còn lại (kể cả null) = không nén. */
+    public static Compression parse(String name) {
+        if (name == null) return NONE;
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "gz", "gzip" -> GZIP;
+            case "zst", "zstd" -> ZSTD;
+            default -> NONE;
+        };
+    }
+
+    /** Writer UTF-8 ghi đè file, nén theo đuôi tên file. */
+    public static BufferedWriter newWriter(Path file) throws IOException {
+        OutputStream raw = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream out;
+        try {
+            out = switch (ofFile(file)) {
+                case NONE -> raw;
+                case GZIP -> new GZIPOutputStream(raw, BUF);
+                case ZSTD -> new ZstdOutputStream(new BufferedOutputStream(raw, BUF));
+            };
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUF);
+    }
+
+    /** Reader UTF-8, giải nén theo đuôi tên file. */
+    public static BufferedReader newReader(Path file) throws IOException {
+        InputStream raw = Files.newInputStream(file);
+        InputStream in;
+        try {
+            in = switch (ofFile(file)) {
+                case NONE -> raw;
+                case GZIP -> new GZIPInputStream(raw, BUF);
+                case ZSTD -> new ZstdInputStream(new BufferedInputStream(raw, BUF));
+            };
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUF);
+    }
+}
@@ -3,11 +3,13 @@ package collector.core;
 import com.google.gson.*;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 
-/** Ghi JSONL an toàn với JDK21: đăng ký TypeAdapter cho java.time.Instant */
+/**
+ * Ghi JSONL an toàn với JDK21: đăng ký TypeAdapter cho java.time.Instant.
+ * Đuôi .jsonl.gz / .jsonl.zst thì nén khi ghi (xem Compression).
+ */
 public final class JsonlWriter implements AutoCloseable {
     private final Path outfile;
     private final BufferedWriter writer;
@@ -24,8 +26,7 @@ public final class JsonlWriter implements AutoCloseable {
     public JsonlWriter(Path outfile) throws IOException {
         this.outfile = outfile;
         Files.createDirectories(outfile.getParent());
-        this.writer = Files.newBufferedWriter(outfile, StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = Compression.newWriter(outfile);
     }
 
     public void write(RawPost p) throws IOException {